@@ -0,0 +1,135 @@
+package bench;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import db.DB;
+import model.dao.DaoFactory;
+import model.dao.DepartmentDao;
+import model.dao.SellerDao;
+import model.dao.impl.DepartmentDaoJDBC;
+import model.entities.Department;
+
+/**
+ * Measures the persistence hot paths (findAll, findByDepartment and the
+ * row mapping behind them) against {@link SyntheticDriver}.
+ *
+ * Usage: java -cp out:bench-out bench.DaoBenchmark [--sellers N] [--departments N]
+ *        [--warmup N] [--iterations N] [--only name,name] [--metrics true|false]
+ */
+public class DaoBenchmark {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int sellers = Integer.parseInt(options.getOrDefault("sellers", "100000"));
+        int departments = Integer.parseInt(options.getOrDefault("departments", "20"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        int iterations = Integer.parseInt(options.getOrDefault("iterations", "30"));
+        List<String> only = options.containsKey("only") ? Arrays.asList(options.get("only").split(",")) : null;
+        boolean metrics = Boolean.parseBoolean(options.getOrDefault("metrics", "true"));
+
+        SyntheticDriver.register();
+        Path props = Files.createTempFile("bench-db", ".properties");
+        Files.write(props, Arrays.asList(
+                "dburl=jdbc:synthetic:sellers=" + sellers + ";departments=" + departments,
+                "pool.minSize=1",
+                "pool.maxSize=4",
+                "metrics.enabled=" + metrics));
+        System.setProperty("db.properties", props.toString());
+
+        SellerDao sellerDao = DaoFactory.createSellerDao();
+        DepartmentDao departmentDao = new DepartmentDaoJDBC();
+        List<Department> allDepartments = departmentDao.findAll();
+
+        Map<String, Benchmark> benchmarks = new LinkedHashMap<>();
+        benchmarks.put("seller.findAll", () -> sellerDao.findAll().size());
+        benchmarks.put("seller.findByDepartment", () -> {
+            int rows = 0;
+            for (Department dep : allDepartments) {
+                rows += sellerDao.findByDepartment(dep).size();
+            }
+            return rows;
+        });
+        benchmarks.put("seller.findPage", () -> sellerDao.findPage(null, null, 100).size());
+        benchmarks.put("department.findAll", () -> departmentDao.findAll().size());
+
+        System.out.printf("sellers=%d departments=%d warmup=%d iterations=%d%n", sellers, departments, warmup,
+                iterations);
+        System.out.printf("%-26s %10s %10s %10s %10s %10s %14s %10s%n", "benchmark", "ops/s", "p50 ms", "p90 ms",
+                "p99 ms", "max ms", "alloc B/op", "B/row");
+        for (Map.Entry<String, Benchmark> entry : benchmarks.entrySet()) {
+            if (only == null || only.contains(entry.getKey())) {
+                run(entry.getKey(), entry.getValue(), warmup, iterations);
+            }
+        }
+        System.out.println(DB.getPool());
+        if (DB.getQueryMetrics() != null) {
+            System.out.print(DB.getQueryMetrics().report());
+        }
+        DB.closePool();
+        try {
+            Files.deleteIfExists(props);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void run(String name, Benchmark benchmark, int warmup, int iterations) {
+        for (int i = 0; i < warmup; i++) {
+            benchmark.run();
+        }
+        long threadId = Thread.currentThread().getId();
+        long[] nanos = new long[iterations];
+        long totalBytes = 0;
+        long totalRows = 0;
+        for (int i = 0; i < iterations; i++) {
+            long bytesBefore = THREADS.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            totalRows += benchmark.run();
+            nanos[i] = System.nanoTime() - start;
+            totalBytes += THREADS.getThreadAllocatedBytes(threadId) - bytesBefore;
+        }
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        long sum = 0;
+        for (long n : nanos) {
+            sum += n;
+        }
+        double opsPerSecond = iterations / (sum / 1e9);
+        System.out.printf("%-26s %10.1f %10.3f %10.3f %10.3f %10.3f %14d %10.1f%n", name, opsPerSecond,
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                sorted[sorted.length - 1] / 1e6, totalBytes / iterations,
+                totalRows == 0 ? 0.0 : (double) totalBytes / totalRows);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    private interface Benchmark {
+
+        int run();
+    }
+}
@@ -0,0 +1,375 @@
+package bench;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * In-process JDBC driver that serves generated seller and department rows,
+ * so the DAO code paths can be measured without a database server.
+ * URL format: jdbc:synthetic:sellers=N;departments=M
+ */
+public class SyntheticDriver implements Driver {
+
+    private static final String PREFIX = "jdbc:synthetic:";
+
+    private static final String[] SELLER_COLUMNS = { "Id", "Name", "Email", "BirthDate", "BaseSalary",
+            "DepartmentId", "Version", "DepName", "DepVersion" };
+
+    private static final String[] DEPARTMENT_COLUMNS = { "Id", "Name", "Version" };
+
+    private static final long BASE_BIRTH_DAY = LocalDate.of(1980, 1, 1).toEpochDay();
+
+    public static void register() {
+        try {
+            DriverManager.registerDriver(new SyntheticDriver());
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+        Map<String, Integer> params = new HashMap<>();
+        for (String part : url.substring(PREFIX.length()).split(";")) {
+            String[] kv = part.split("=");
+            if (kv.length == 2) {
+                params.put(kv[0].trim(), Integer.parseInt(kv[1].trim()));
+            }
+        }
+        int sellers = params.getOrDefault("sellers", 1000);
+        int departments = Math.max(1, params.getOrDefault("departments", 10));
+        return proxy(Connection.class, new ConnectionHandler(sellers, departments));
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return url != null && url.startsWith(PREFIX);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() {
+        return Logger.getLogger("bench");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(SyntheticDriver.class.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+
+    private static class ConnectionHandler implements InvocationHandler {
+
+        private final int sellers;
+
+        private final int departments;
+
+        private boolean autoCommit = true;
+
+        private boolean closed;
+
+        ConnectionHandler(int sellers, int departments) {
+            this.sellers = sellers;
+            this.departments = departments;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "prepareStatement":
+                    return proxy(PreparedStatement.class, new StatementHandler(this, (String) args[0]));
+                case "isValid":
+                    return !closed;
+                case "isClosed":
+                    return closed;
+                case "close":
+                    closed = true;
+                    return null;
+                case "getAutoCommit":
+                    return autoCommit;
+                case "setAutoCommit":
+                    autoCommit = (Boolean) args[0];
+                    return null;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        }
+    }
+
+    private static class StatementHandler implements InvocationHandler {
+
+        private final ConnectionHandler conn;
+
+        private final String sql;
+
+        private final Map<Integer, Object> params = new HashMap<>();
+
+        StatementHandler(ConnectionHandler conn, String sql) {
+            this.conn = conn;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length == 2 && args[0] instanceof Integer) {
+                params.put((Integer) args[0], args[1]);
+                return null;
+            }
+            switch (name) {
+                case "executeQuery":
+                    return proxy(ResultSet.class, newResultSet());
+                case "executeUpdate":
+                    return 1;
+                case "executeBatch":
+                    return new int[0];
+                case "clearParameters":
+                    params.clear();
+                    return null;
+                case "getGeneratedKeys":
+                    return proxy(ResultSet.class, new ResultSetHandler(new String[] { "GENERATED_KEY" }, 0, 0, 1) {
+                        @Override
+                        Object value(int column, int row) {
+                            return row + 1;
+                        }
+                    });
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        }
+
+        private ResultSetHandler newResultSet() {
+            if (sql.contains("FROM department")) {
+                int first = 0;
+                int count = conn.departments;
+                if (sql.contains("WHERE Id = ?")) {
+                    first = ((Number) params.get(1)).intValue() - 1;
+                    count = first >= 0 && first < conn.departments ? 1 : 0;
+                }
+                return new ResultSetHandler(DEPARTMENT_COLUMNS, first, 1, count) {
+                    @Override
+                    Object value(int column, int row) {
+                        switch (column) {
+                            case 0:
+                                return row + 1;
+                            case 1:
+                                return "Department " + (row + 1);
+                            default:
+                                return 0;
+                        }
+                    }
+                };
+            }
+            if (sql.contains("DepartmentId = ?")) {
+                int dep = ((Number) params.get(1)).intValue();
+                int count = conn.sellers / conn.departments + (dep <= conn.sellers % conn.departments ? 1 : 0);
+                return new SellerResultSet(dep - 1, conn.departments, count, conn.departments);
+            }
+            int count = conn.sellers;
+            if (sql.endsWith("LIMIT ?")) {
+                count = Math.min(count, ((Number) params.get(params.size())).intValue());
+            }
+            return new SellerResultSet(0, 1, count, conn.departments);
+        }
+    }
+
+    private static class SellerResultSet extends ResultSetHandler {
+
+        private final int departments;
+
+        SellerResultSet(int first, int step, int count, int departments) {
+            super(SELLER_COLUMNS, first, step, count);
+            this.departments = departments;
+        }
+
+        @Override
+        Object value(int column, int row) {
+            switch (column) {
+                case 0:
+                    return row + 1;
+                case 1:
+                    return "Seller " + (row + 1);
+                case 2:
+                    return "seller" + (row + 1) + "@example.com";
+                case 3:
+                    return new EpochDay(BASE_BIRTH_DAY + row % 10000);
+                case 4:
+                    return 1000.0 + row % 5000;
+                case 5:
+                    return row % departments + 1;
+                case 7:
+                    return "Department " + (row % departments + 1);
+                default:
+                    return 0;
+            }
+        }
+    }
+
+    private abstract static class ResultSetHandler implements InvocationHandler {
+
+        private final String[] columns;
+
+        private final int first;
+
+        private final int step;
+
+        private final int count;
+
+        private int position = -1;
+
+        private Object lastValue;
+
+        ResultSetHandler(String[] columns, int first, int step, int count) {
+            this.columns = columns;
+            this.first = first;
+            this.step = step;
+            this.count = count;
+        }
+
+        abstract Object value(int column, int row);
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+            String name = method.getName();
+            switch (name) {
+                case "next":
+                    return ++position < count;
+                case "close":
+                    return null;
+                case "wasNull":
+                    return lastValue == null;
+                case "findColumn":
+                    return indexOf((String) args[0]) + 1;
+                case "getMetaData":
+                    return proxy(ResultSetMetaData.class, (p, m, a) -> {
+                        switch (m.getName()) {
+                            case "getColumnCount":
+                                return columns.length;
+                            case "getColumnLabel":
+                            case "getColumnName":
+                                return columns[(Integer) a[0] - 1];
+                            default:
+                                return defaultValue(m.getReturnType());
+                        }
+                    });
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            if (name.startsWith("get") && args != null && args.length >= 1) {
+                int column = args[0] instanceof Integer ? (Integer) args[0] - 1 : indexOf((String) args[0]);
+                lastValue = value(column, first + position * step);
+                if (args.length == 2 && args[1] instanceof Class) {
+                    return convert(lastValue, (Class<?>) args[1]);
+                }
+                return convert(lastValue, method.getReturnType());
+            }
+            return defaultValue(method.getReturnType());
+        }
+
+        private int indexOf(String label) throws SQLException {
+            for (int i = 0; i < columns.length; i++) {
+                if (columns[i].equalsIgnoreCase(label)) {
+                    return i;
+                }
+            }
+            if (label.equals("1") || label.equalsIgnoreCase("GENERATED_KEY")) {
+                return 0;
+            }
+            throw new SQLException("Column '" + label + "' not found");
+        }
+
+        private static Object convert(Object value, Class<?> type) {
+            if (type == int.class) {
+                return value == null ? 0 : ((Number) value).intValue();
+            }
+            if (type == double.class) {
+                return value == null ? 0.0 : ((Number) value).doubleValue();
+            }
+            if (value instanceof EpochDay) {
+                long day = ((EpochDay) value).day;
+                if (type == LocalDate.class) {
+                    return LocalDate.ofEpochDay(day);
+                }
+                if (type == java.sql.Date.class) {
+                    return java.sql.Date.valueOf(LocalDate.ofEpochDay(day));
+                }
+                return Timestamp.valueOf(LocalDate.ofEpochDay(day).atStartOfDay());
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Raw date value, decoded into whatever type the caller asks for the way
+     * a real driver decodes it from the wire.
+     */
+    private static class EpochDay {
+
+        private final long day;
+
+        EpochDay(long day) {
+            this.day = day;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+#!/usr/bin/env bash
+#
+# Launches the app repeatedly with -Dapp.exitAfterFirstFrame=true and reports
+# the time from JVM start to the first frame of the main window, with and
+# without the archive built by scripts/build-cds.sh.
+#
+# Needs JAVAFX_LIB and JDBC_JAR as for build-cds.sh, and a display.
+# RUNS sets the number of launches per configuration (default 10).
+
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+: "${JAVAFX_LIB:?set JAVAFX_LIB to the JavaFX SDK lib directory}"
+: "${JDBC_JAR:?set JDBC_JAR to the MySQL Connector/J jar}"
+RUNS=${RUNS:-10}
+
+OUT=out
+JAVA_OPTS=(--module-path "$JAVAFX_LIB" --add-modules javafx.controls,javafx.fxml -cp "$OUT/app.jar:$JDBC_JAR")
+
+if [ ! -f "$OUT/app.jar" ]; then
+    echo "$OUT/app.jar not found, run scripts/build-cds.sh first" >&2
+    exit 1
+fi
+
+measure() {
+    local label=$1
+    shift
+    local times=()
+    for ((i = 0; i < RUNS; i++)); do
+        times+=("$(java "$@" -Dapp.exitAfterFirstFrame=true "${JAVA_OPTS[@]}" application.Main \
+            | sed -n 's/^first-frame-ms=//p')")
+    done
+    printf '%s\n' "${times[@]}" | sort -n | awk -v label="$label" '
+        { t[NR] = $1 }
+        END { printf "%-22s min %6d ms   median %6d ms   max %6d ms\n", label, t[1], t[int((NR + 1) / 2)], t[NR] }'
+}
+
+printf 'time to first frame, %d runs each\n' "$RUNS"
+measure "no app archive"
+if [ -f "$OUT/app.aot" ]; then
+    measure "AOT cache" -XX:AOTCache="$OUT/app.aot"
+elif [ -f "$OUT/app.jsa" ]; then
+    measure "AppCDS archive" -XX:SharedArchiveFile="$OUT/app.jsa"
+else
+    echo "no archive in $OUT, run scripts/build-cds.sh to compare" >&2
+fi
@@ -0,0 +1,48 @@
+#!/usr/bin/env bash
+#
+# Builds out/app.jar and a class archive for it from a training run of
+# application.Main. With -Dapp.training=true the app shows the main window,
+# runs the startup DAO queries, loads every FXML view and exits, so the
+# archive covers JavaFX, the JDBC driver, the DAOs and the controllers.
+#
+# Needs:
+#   JAVAFX_LIB  lib directory of the JavaFX SDK
+#   JDBC_JAR    MySQL Connector/J jar
+# The training run reads db.properties from the working directory. Point it
+# at a reachable database, otherwise the driver and DAO classes that are only
+# loaded after connecting are left out of the archive.
+#
+# On JDK 24+ this writes an AOT cache (out/app.aot); on older JDKs a dynamic
+# AppCDS archive (out/app.jsa). The archive is only used with the exact same
+# JDK and class path, so rebuild it after changing either.
+
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+: "${JAVAFX_LIB:?set JAVAFX_LIB to the JavaFX SDK lib directory}"
+: "${JDBC_JAR:?set JDBC_JAR to the MySQL Connector/J jar}"
+
+OUT=out
+MODULES=javafx.controls,javafx.fxml
+
+rm -rf "$OUT/classes"
+mkdir -p "$OUT/classes"
+javac --module-path "$JAVAFX_LIB" --add-modules "$MODULES" -d "$OUT/classes" $(find src -name '*.java')
+(cd src && find . -name '*.fxml' -exec cp --parents {} "../$OUT/classes" \;)
+jar --create --file "$OUT/app.jar" --main-class application.Main -C "$OUT/classes" .
+
+JAVA_OPTS=(--module-path "$JAVAFX_LIB" --add-modules "$MODULES" -cp "$OUT/app.jar:$JDBC_JAR")
+FEATURE=$(java -XshowSettings:properties -version 2>&1 | awk -F'= ' '/java.specification.version/ {print $2}')
+
+if [ "$FEATURE" -ge 24 ]; then
+    rm -f "$OUT/app.aotconf" "$OUT/app.aot" "$OUT/app.jsa"
+    java -XX:AOTMode=record -XX:AOTConfiguration="$OUT/app.aotconf" -Dapp.training=true \
+        "${JAVA_OPTS[@]}" application.Main
+    java -XX:AOTMode=create -XX:AOTConfiguration="$OUT/app.aotconf" -XX:AOTCache="$OUT/app.aot" \
+        "${JAVA_OPTS[@]}" application.Main
+    echo "Archive: $OUT/app.aot (run with -XX:AOTCache=$OUT/app.aot)"
+else
+    rm -f "$OUT/app.jsa" "$OUT/app.aot"
+    java -XX:ArchiveClassesAtExit="$OUT/app.jsa" -Dapp.training=true "${JAVA_OPTS[@]}" application.Main
+    echo "Archive: $OUT/app.jsa (run with -XX:SharedArchiveFile=$OUT/app.jsa)"
+fi
@@ -0,0 +1,37 @@
+-- Change log read by db.ChangePoller. Every insert, update and delete on
+-- seller and department appends one row; clients poll for Id > last seen.
+
+CREATE TABLE IF NOT EXISTS change_log (
+    Id BIGINT NOT NULL AUTO_INCREMENT,
+    TableName VARCHAR(30) NOT NULL,
+    RowId INT NOT NULL,
+    Operation CHAR(1) NOT NULL,
+    ChangedAt TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    PRIMARY KEY (Id),
+    KEY idx_change_log_changed_at (ChangedAt)
+);
+
+DROP TRIGGER IF EXISTS seller_after_insert;
+DROP TRIGGER IF EXISTS seller_after_update;
+DROP TRIGGER IF EXISTS seller_after_delete;
+DROP TRIGGER IF EXISTS department_after_insert;
+DROP TRIGGER IF EXISTS department_after_update;
+DROP TRIGGER IF EXISTS department_after_delete;
+
+CREATE TRIGGER seller_after_insert AFTER INSERT ON seller FOR EACH ROW
+    INSERT INTO change_log (TableName, RowId, Operation) VALUES ('seller', NEW.Id, 'I');
+CREATE TRIGGER seller_after_update AFTER UPDATE ON seller FOR EACH ROW
+    INSERT INTO change_log (TableName, RowId, Operation) VALUES ('seller', NEW.Id, 'U');
+CREATE TRIGGER seller_after_delete AFTER DELETE ON seller FOR EACH ROW
+    INSERT INTO change_log (TableName, RowId, Operation) VALUES ('seller', OLD.Id, 'D');
+
+CREATE TRIGGER department_after_insert AFTER INSERT ON department FOR EACH ROW
+    INSERT INTO change_log (TableName, RowId, Operation) VALUES ('department', NEW.Id, 'I');
+CREATE TRIGGER department_after_update AFTER UPDATE ON department FOR EACH ROW
+    INSERT INTO change_log (TableName, RowId, Operation) VALUES ('department', NEW.Id, 'U');
+CREATE TRIGGER department_after_delete AFTER DELETE ON department FOR EACH ROW
+    INSERT INTO change_log (TableName, RowId, Operation) VALUES ('department', OLD.Id, 'D');
+
+-- Keep the log short; requires event_scheduler=ON.
+CREATE EVENT IF NOT EXISTS change_log_purge ON SCHEDULE EVERY 1 HOUR DO
+    DELETE FROM change_log WHERE ChangedAt < NOW(3) - INTERVAL 1 DAY;
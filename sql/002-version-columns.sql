@@ -0,0 +1,6 @@
+-- Row versions for optimistic locking. Updates run with
+-- "WHERE Id = ? AND Version = ?" and bump the version; an update that
+-- matches no row means someone else changed it first.
+
+ALTER TABLE seller ADD COLUMN Version INT NOT NULL DEFAULT 0;
+ALTER TABLE department ADD COLUMN Version INT NOT NULL DEFAULT 0;
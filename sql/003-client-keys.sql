@@ -0,0 +1,6 @@
+-- Keys the offline client generates for the rows it creates. A client
+-- that lost the connection after an insert looks the row up by its key
+-- instead of inserting it a second time.
+
+ALTER TABLE seller ADD COLUMN ClientKey CHAR(36) NULL, ADD UNIQUE KEY uk_seller_client_key (ClientKey);
+ALTER TABLE department ADD COLUMN ClientKey CHAR(36) NULL, ADD UNIQUE KEY uk_department_client_key (ClientKey);
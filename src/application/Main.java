@@ -1,35 +1,117 @@
 package application;
 
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+import db.DB;
+import gui.listeners.ChangeFeed;
+import gui.util.ViewRegistry;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.control.ScrollPane;
 import javafx.stage.Stage;
+import metrics.FileMetricsSink;
+import model.dao.DaoFactory;
+import model.services.ServiceExecutor;
 
 /**
  * Main
  */
 public class Main extends Application {
 
+    private static final String[] VIEWS = { "/gui/SellerList.fxml", "/gui/DepartmentList.fxml",
+            "/gui/SellerForm.fxml", "/gui/DepartmentForm.fxml", "/gui/DepartmentStats.fxml", "/gui/About.fxml" };
+
     private static Scene mainScene;
-    
+
+    private CompletableFuture<Void> warmUp;
+
+    @Override
+    public void init() {
+        Startup.mark("init");
+        FileMetricsSink.startFromSystemProperties();
+        warmUp = Startup.warmUp();
+    }
+
     @Override
     public void start(Stage primaryStage) {
         try {
+            Startup.mark("fx start");
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/gui/MainView.fxml"));
             ScrollPane scrollPane = loader.load();
+            Startup.mark("fxml load");
             scrollPane.setFitToHeight(true);
             scrollPane.setFitToWidth(true);
             mainScene = new Scene(scrollPane);
             primaryStage.setScene(mainScene);
             primaryStage.setTitle("Sample JavaFx application");
+            markFirstFrame(mainScene);
             primaryStage.show();
+            Startup.mark("stage shown");
+            if (Startup.isTraining()) {
+                warmUp.whenComplete((x, e) -> Platform.runLater(Main::runTraining));
+                return;
+            }
+            ViewRegistry.preloadLater(VIEWS);
+            warmUp.whenComplete((x, e) -> {
+                Startup.report();
+                if (DaoFactory.usesDatabase()) {
+                    ChangeFeed.start();
+                }
+            });
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
+    private static void markFirstFrame(Scene scene) {
+        boolean[] seen = new boolean[1];
+        Runnable listener = new Runnable() {
+            @Override
+            public void run() {
+                if (seen[0]) {
+                    return;
+                }
+                seen[0] = true;
+                Platform.runLater(() -> scene.removePostLayoutPulseListener(this));
+                Startup.mark("first frame");
+                if (Startup.isExitAfterFirstFrame()) {
+                    System.out.println("first-frame-ms=" + Startup.getPhases().get("first frame"));
+                    Platform.exit();
+                }
+            }
+        };
+        scene.addPostLayoutPulseListener(listener);
+    }
+
+    /**
+     * Touches every view and controller once, after the warm-up has run the
+     * DAO queries, then exits so the JVM can write its class archive.
+     */
+    private static void runTraining() {
+        for (String view : VIEWS) {
+            try {
+                ViewRegistry.get(view);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        Startup.report();
+        Platform.exit();
+    }
+
+    @Override
+    public void stop() {
+        ServiceExecutor.shutdown();
+        DaoFactory.close();
+        DB.closePool();
+        FileMetricsSink.stop();
+    }
+
     public static void main(String[] args) {
+        Startup.mark("main");
         launch(args);
     }
 
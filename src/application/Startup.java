@@ -0,0 +1,68 @@
+package application;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import db.DB;
+import model.dao.DaoFactory;
+import model.dao.SellerSearchCriteria;
+import model.services.DepartmentService;
+import model.services.SellerService;
+import model.services.ServiceExecutor;
+
+/**
+ * Startup phase timings, measured in milliseconds since the JVM started,
+ * and the background warm-up that opens the pool and runs the first
+ * queries while the main window is being shown.
+ */
+public class Startup {
+
+    private static final Logger LOG = Logger.getLogger(Startup.class.getName());
+
+    private static final int WARM_UP_PAGE_SIZE = 100;
+
+    private static final long jvmStartMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+
+    private static final Map<String, Long> phases = new LinkedHashMap<>();
+
+    public static boolean isTraining() {
+        return Boolean.getBoolean("app.training");
+    }
+
+    public static boolean isExitAfterFirstFrame() {
+        return Boolean.getBoolean("app.exitAfterFirstFrame");
+    }
+
+    public static synchronized void mark(String phase) {
+        phases.put(phase, System.currentTimeMillis() - jvmStartMillis);
+    }
+
+    public static synchronized Map<String, Long> getPhases() {
+        return new LinkedHashMap<>(phases);
+    }
+
+    public static CompletableFuture<Void> warmUp() {
+        return CompletableFuture.runAsync(() -> {
+            if (DaoFactory.usesDatabase()) {
+                DB.getPool();
+                mark("connection");
+            }
+            new DepartmentService().findAll();
+            mark("first query");
+            new SellerService().search(new SellerSearchCriteria(), null, WARM_UP_PAGE_SIZE);
+            mark("seller page");
+        }, ServiceExecutor.get()).whenComplete((x, e) -> {
+            if (e != null) {
+                LOG.log(Level.WARNING, "Startup warm-up failed, the first screen will connect on demand", e);
+            }
+        });
+    }
+
+    public static void report() {
+        LOG.info("Startup phases (ms since JVM start): " + getPhases());
+    }
+}
@@ -0,0 +1,269 @@
+package db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Polls change_log for rows after the last one seen and hands them to the
+ * listeners. Ids are handed out when a writer inserts, not when it
+ * commits, so a row can become visible after a higher id was already
+ * read. Every id skipped over is remembered and looked for again on each
+ * poll until it shows up or gapTimeoutMillis passes, which covers writes
+ * that were rolled back.
+ */
+public class ChangePoller {
+
+    private static final Logger LOG = Logger.getLogger(ChangePoller.class.getName());
+
+    private static final int MAX_GAPS = 10000;
+
+    private final long intervalMillis;
+
+    private final int batchSize;
+
+    private final long gapTimeoutMillis;
+
+    private final NavigableMap<Long, Long> gaps = new TreeMap<>();
+
+    private final List<Consumer<List<RowChange>>> listeners = new CopyOnWriteArrayList<>();
+
+    private ScheduledExecutorService scheduler;
+
+    private volatile long lastChangeId = -1;
+
+    private boolean failing;
+
+    public ChangePoller(long intervalMillis, int batchSize) {
+        this(intervalMillis, batchSize, 30000);
+    }
+
+    public ChangePoller(long intervalMillis, int batchSize, long gapTimeoutMillis) {
+        this.intervalMillis = intervalMillis;
+        this.batchSize = batchSize;
+        this.gapTimeoutMillis = gapTimeoutMillis;
+    }
+
+    public void addListener(Consumer<List<RowChange>> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<List<RowChange>> listener) {
+        listeners.remove(listener);
+    }
+
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-change-poller");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::poll, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    public long getLastChangeId() {
+        return lastChangeId;
+    }
+
+    private void poll() {
+        try {
+            read(this::publish);
+            failing = false;
+        } catch (RuntimeException e) {
+            if (!failing) {
+                LOG.log(Level.WARNING, "Change polling failed, will keep retrying", e);
+                failing = true;
+            }
+        }
+    }
+
+    /**
+     * Reads every change after the last one seen, for callers that read on
+     * their own schedule instead of starting the poller. The first call only
+     * moves to the newest change and returns nothing. Throws DbException
+     * when change_log cannot be read; changes of the batches read before
+     * the failure are skipped by the next call.
+     */
+    public List<RowChange> fetchChanges() {
+        List<RowChange> all = new ArrayList<>();
+        read(all::addAll);
+        return coalesce(all);
+    }
+
+    private void read(Consumer<List<RowChange>> sink) {
+        if (lastChangeId < 0) {
+            lastChangeId = currentMaxId();
+        }
+        List<RowChange> late = fetchGaps();
+        List<RowChange> changes;
+        do {
+            changes = fetchSince(lastChangeId);
+            if (!changes.isEmpty()) {
+                recordGaps(changes);
+                lastChangeId = changes.get(changes.size() - 1).getChangeId();
+            }
+            if (!late.isEmpty() || !changes.isEmpty()) {
+                List<RowChange> batch = new ArrayList<>(late);
+                batch.addAll(changes);
+                batch.sort(Comparator.comparingLong(RowChange::getChangeId));
+                sink.accept(coalesce(batch));
+                late = new ArrayList<>();
+            }
+        } while (changes.size() == batchSize);
+    }
+
+    private long currentMaxId() {
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+        try {
+            conn = DB.getConnection();
+            st = conn.prepareStatement("SELECT COALESCE(MAX(Id), 0) FROM change_log");
+            rs = st.executeQuery();
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            throw new DbException(e.getMessage());
+        } finally {
+            DB.closeResultSet(rs);
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
+        }
+    }
+
+    /**
+     * Remembers the ids between the cursor and the new rows that were not
+     * returned: they belong to transactions that had not committed yet.
+     */
+    private void recordGaps(List<RowChange> changes) {
+        long now = System.currentTimeMillis();
+        long expected = lastChangeId + 1;
+        for (RowChange change : changes) {
+            for (long id = expected; id < change.getChangeId() && gaps.size() < MAX_GAPS; id++) {
+                gaps.put(id, now);
+            }
+            expected = change.getChangeId() + 1;
+        }
+    }
+
+    /**
+     * The changes that filled earlier gaps since the last poll. Gaps older
+     * than the timeout are given up on.
+     */
+    private List<RowChange> fetchGaps() {
+        long now = System.currentTimeMillis();
+        gaps.values().removeIf(since -> now - since > gapTimeoutMillis);
+        if (gaps.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> ids = new ArrayList<>(DB.IN_LIST_SIZE);
+        for (Long id : gaps.keySet()) {
+            if (ids.size() == DB.IN_LIST_SIZE) {
+                break;
+            }
+            ids.add(id);
+        }
+        int size = DB.inListSize(ids.size());
+        List<RowChange> list = new ArrayList<>();
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+        try {
+            conn = DB.getConnection();
+            st = conn.prepareStatement("SELECT Id, TableName, RowId, Operation FROM change_log " +
+                "WHERE Id IN (" + DB.placeholders(size) + ")");
+            for (int i = 0; i < size; i++) {
+                st.setLong(i + 1, ids.get(Math.min(i, ids.size() - 1)));
+            }
+            rs = st.executeQuery();
+            while (rs.next()) {
+                RowChange change = new RowChange(rs.getLong(1), rs.getString(2), rs.getInt(3),
+                        RowChange.Operation.fromCode(rs.getString(4)));
+                gaps.remove(change.getChangeId());
+                list.add(change);
+            }
+            return list;
+        } catch (SQLException e) {
+            throw new DbException(e.getMessage());
+        } finally {
+            DB.closeResultSet(rs);
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
+        }
+    }
+
+    private List<RowChange> fetchSince(long changeId) {
+        List<RowChange> list = new ArrayList<>();
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+        try {
+            conn = DB.getConnection();
+            st = conn.prepareStatement("SELECT Id, TableName, RowId, Operation FROM change_log " +
+                "WHERE Id > ? ORDER BY Id LIMIT ?");
+            st.setLong(1, changeId);
+            st.setInt(2, batchSize);
+            rs = st.executeQuery();
+            while (rs.next()) {
+                list.add(new RowChange(rs.getLong(1), rs.getString(2), rs.getInt(3),
+                        RowChange.Operation.fromCode(rs.getString(4))));
+            }
+            return list;
+        } catch (SQLException e) {
+            throw new DbException(e.getMessage());
+        } finally {
+            DB.closeResultSet(rs);
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
+        }
+    }
+
+    private static List<RowChange> coalesce(List<RowChange> changes) {
+        Map<String, RowChange> latest = new LinkedHashMap<>();
+        for (RowChange change : changes) {
+            String key = change.getTable() + ":" + change.getRowId();
+            RowChange previous = latest.remove(key);
+            if (previous != null && previous.getOperation() == RowChange.Operation.INSERT
+                    && change.getOperation() == RowChange.Operation.UPDATE) {
+                change = new RowChange(change.getChangeId(), change.getTable(), change.getRowId(),
+                        RowChange.Operation.INSERT);
+            }
+            latest.put(key, change);
+        }
+        return new ArrayList<>(latest.values());
+    }
+
+    private void publish(List<RowChange> changes) {
+        for (Consumer<List<RowChange>> listener : listeners) {
+            try {
+                listener.accept(changes);
+            } catch (RuntimeException e) {
+                LOG.log(Level.WARNING, "Change listener failed", e);
+            }
+        }
+    }
+}
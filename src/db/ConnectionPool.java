@@ -0,0 +1,409 @@
+package db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class ConnectionPool {
+
+    private static final Logger LOG = Logger.getLogger(ConnectionPool.class.getName());
+
+    private final String url;
+
+    private final Properties props;
+
+    private final int minSize;
+
+    private final int maxSize;
+
+    private final long acquireTimeoutMillis;
+
+    private final long idleTimeoutMillis;
+
+    private final long leakThresholdMillis;
+
+    private final int validationTimeoutSeconds;
+
+    private final int statementCacheSize;
+
+    private final QueryMetrics metrics;
+
+    private final Semaphore permits;
+
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+
+    private final Map<PooledConnection, Lease> leased = new ConcurrentHashMap<>();
+
+    private final AtomicLong waitCount = new AtomicLong();
+
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    private final AtomicLong timeoutCount = new AtomicLong();
+
+    private final AtomicLong statementHits = new AtomicLong();
+
+    private final AtomicLong statementMisses = new AtomicLong();
+
+    private final ScheduledExecutorService housekeeper;
+
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, Properties props) {
+        this(url, props, null);
+    }
+
+    public ConnectionPool(String url, Properties props, QueryMetrics metrics) {
+        this.url = url;
+        this.props = props;
+        this.metrics = metrics;
+        this.minSize = intProperty(props, "pool.minSize", 1);
+        this.maxSize = Math.max(1, intProperty(props, "pool.maxSize", 10));
+        this.acquireTimeoutMillis = intProperty(props, "pool.acquireTimeoutMillis", 30000);
+        this.idleTimeoutMillis = intProperty(props, "pool.idleTimeoutMillis", 600000);
+        this.leakThresholdMillis = intProperty(props, "pool.leakThresholdMillis", 60000);
+        this.validationTimeoutSeconds = intProperty(props, "pool.validationTimeoutSeconds", 2);
+        this.statementCacheSize = intProperty(props, "pool.statementCacheSize", 50);
+        this.permits = new Semaphore(maxSize, true);
+        for (int i = 0; i < Math.min(minSize, maxSize); i++) {
+            idle.push(new PooledConnection(openPhysical()));
+        }
+        long period = Math.max(1000, Math.min(idleTimeoutMillis, leakThresholdMillis) / 2);
+        housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    static int intProperty(Properties props, String key, int defaultValue) {
+        String value = props.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new DbException("Invalid value for " + key + ": " + value);
+        }
+    }
+
+    public Connection borrow() {
+        if (closed) {
+            throw new DbException("Connection pool is closed");
+        }
+        try {
+            // a zero timeout still honours the fair queue, unlike tryAcquire()
+            if (!permits.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+                long start = System.nanoTime();
+                if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    timeoutCount.incrementAndGet();
+                    throw new DbTimeoutException("Timeout waiting for a database connection after "
+                            + acquireTimeoutMillis + " ms (" + leased.size() + " in use)");
+                }
+                recordWait(System.nanoTime() - start);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DbException("Interrupted waiting for a database connection");
+        }
+        try {
+            PooledConnection pooled = takeValidIdle();
+            if (pooled == null) {
+                pooled = new PooledConnection(openPhysical());
+            }
+            leased.put(pooled, new Lease());
+            return pooled.newHandle();
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeValidIdle() {
+        while (true) {
+            PooledConnection pooled;
+            synchronized (idle) {
+                pooled = idle.poll();
+            }
+            if (pooled == null) {
+                return null;
+            }
+            if (pooled.isValid(validationTimeoutSeconds)) {
+                return pooled;
+            }
+            pooled.closePhysical();
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        leased.remove(pooled);
+        if (closed || !pooled.reset()) {
+            pooled.closePhysical();
+        } else {
+            pooled.lastUsed = System.currentTimeMillis();
+            synchronized (idle) {
+                idle.push(pooled);
+            }
+        }
+        permits.release();
+    }
+
+    private Connection openPhysical() {
+        try {
+            return DriverManager.getConnection(url, props);
+        } catch (SQLException e) {
+            throw new DbException(e.getMessage());
+        }
+    }
+
+    private void recordWait(long nanos) {
+        waitCount.incrementAndGet();
+        totalWaitNanos.addAndGet(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+        synchronized (idle) {
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext() && idle.size() > minSize) {
+                PooledConnection pooled = it.next();
+                if (now - pooled.lastUsed > idleTimeoutMillis) {
+                    it.remove();
+                    pooled.closePhysical();
+                }
+            }
+        }
+        refill();
+        for (Lease lease : leased.values()) {
+            if (!lease.reported && now - lease.since > leakThresholdMillis) {
+                lease.reported = true;
+                LOG.log(Level.WARNING, "Connection held for more than " + leakThresholdMillis
+                        + " ms, possible leak", lease.origin);
+            }
+        }
+    }
+
+    /**
+     * Opens connections until the pool holds minSize again, after idle ones
+     * were closed as invalid or the database was unreachable for a while.
+     */
+    private void refill() {
+        int target = Math.min(minSize, maxSize);
+        while (!closed && getIdleCount() + leased.size() < target) {
+            PooledConnection pooled;
+            try {
+                pooled = new PooledConnection(openPhysical());
+            } catch (DbException e) {
+                LOG.log(Level.FINE, "Could not refill the connection pool: " + e.getMessage());
+                return;
+            }
+            synchronized (idle) {
+                if (closed) {
+                    pooled.closePhysical();
+                    return;
+                }
+                idle.push(pooled);
+            }
+        }
+    }
+
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        synchronized (idle) {
+            for (PooledConnection pooled : idle) {
+                pooled.closePhysical();
+            }
+            idle.clear();
+        }
+    }
+
+    public int getInUseCount() {
+        return leased.size();
+    }
+
+    public int getIdleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getWaitCount() {
+        return waitCount.get();
+    }
+
+    public long getTotalWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get());
+    }
+
+    public long getMaxWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    public long getStatementCacheHits() {
+        return statementHits.get();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementMisses.get();
+    }
+
+    public double getStatementCacheHitRatio() {
+        long hits = statementHits.get();
+        long total = hits + statementMisses.get();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPool [inUse=" + getInUseCount() + ", idle=" + getIdleCount() + ", max=" + maxSize
+                + ", waits=" + getWaitCount() + ", totalWaitMillis=" + getTotalWaitMillis()
+                + ", maxWaitMillis=" + getMaxWaitMillis() + ", timeouts=" + getTimeoutCount()
+                + ", statementCacheHits=" + getStatementCacheHits()
+                + ", statementCacheMisses=" + getStatementCacheMisses() + "]";
+    }
+
+    private static class Lease {
+
+        private final long since = System.currentTimeMillis();
+
+        private final Throwable origin = new Throwable("Connection borrowed here");
+
+        private volatile boolean reported;
+    }
+
+    private class PooledConnection {
+
+        private final Connection physical;
+
+        private final StatementCache statementCache;
+
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statementCache = statementCacheSize > 0
+                    ? new StatementCache(physical, statementCacheSize, statementHits, statementMisses)
+                    : null;
+        }
+
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, new Handle(this));
+        }
+
+        boolean isValid(int timeoutSeconds) {
+            try {
+                return !physical.isClosed() && physical.isValid(timeoutSeconds);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        boolean reset() {
+            try {
+                if (physical.isClosed()) {
+                    return false;
+                }
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        void closePhysical() {
+            if (statementCache != null) {
+                statementCache.closeAll();
+            }
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                LOG.log(Level.FINE, "Error closing pooled connection", e);
+            }
+        }
+    }
+
+    private class Handle implements InvocationHandler {
+
+        private PooledConnection pooled;
+
+        Handle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (pooled != null) {
+                        PooledConnection p = pooled;
+                        pooled = null;
+                        release(p);
+                    }
+                    return null;
+                case "isClosed":
+                    return pooled == null || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + (pooled == null ? "closed" : pooled.physical) + "]";
+                default:
+                    break;
+            }
+            if (pooled == null) {
+                throw new SQLException("Connection is closed");
+            }
+            Object result;
+            if (pooled.statementCache != null && method.getName().equals("prepareStatement")) {
+                result = pooled.statementCache.prepare(method, args);
+            } else {
+                try {
+                    result = method.invoke(pooled.physical, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+            if (metrics != null && result instanceof Statement) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                return InstrumentedStatement.wrap((Statement) result, sql, metrics);
+            }
+            return result;
+        }
+    }
+}
@@ -3,18 +3,38 @@ package db;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Properties;
+import java.util.TreeSet;
+import java.util.function.Supplier;
 
 public class DB {
 
-    private static Connection conn = null;
+    public static final int IN_LIST_SIZE = 500;
 
-    private static Properties loadProperties() {
-        try (FileInputStream fs = new FileInputStream("db.properties")) {
+    private static final int[] IN_LIST_SIZES = { 1, 10, 50, 100, IN_LIST_SIZE };
+
+    private static ConnectionPool pool = null;
+
+    private static ReplicaRouter replicaRouter = null;
+
+    private static boolean replicaRouterLoaded = false;
+
+    private static ChangePoller changePoller = null;
+
+    private static QueryMetrics queryMetrics = null;
+
+    private static boolean queryMetricsLoaded = false;
+
+    private static final ThreadLocal<Boolean> primaryReads = new ThreadLocal<>();
+
+    public static Properties loadProperties() {
+        try (FileInputStream fs = new FileInputStream(System.getProperty("db.properties", "db.properties"))) {
             Properties props = new Properties();
             props.load(fs);
             return props;
@@ -23,17 +43,172 @@ public class DB {
         }
     }
 
+    public static synchronized ConnectionPool getPool() {
+        if (pool == null) {
+            Properties props = loadProperties();
+            String url = props.getProperty("dburl");
+            pool = new ConnectionPool(url, props, getQueryMetrics());
+        }
+        return pool;
+    }
+
+    /**
+     * Statement metrics shared by every pooled connection, or null when
+     * metrics.enabled is false.
+     */
+    public static synchronized QueryMetrics getQueryMetrics() {
+        if (!queryMetricsLoaded) {
+            queryMetrics = QueryMetrics.fromProperties(loadProperties());
+            if (queryMetrics != null) {
+                queryMetrics.register("db:type=QueryMetrics");
+            }
+            queryMetricsLoaded = true;
+        }
+        return queryMetrics;
+    }
+
+    /**
+     * Router over the read replicas in replica.urls, or null when only the
+     * primary is configured.
+     */
+    public static synchronized ReplicaRouter getReplicaRouter() {
+        if (!replicaRouterLoaded) {
+            replicaRouter = ReplicaRouter.fromProperties(loadProperties(), getQueryMetrics());
+            replicaRouterLoaded = true;
+        }
+        return replicaRouter;
+    }
+
+    public static synchronized ChangePoller getChangePoller() {
+        if (changePoller == null) {
+            Properties props = loadProperties();
+            changePoller = new ChangePoller(
+                    ConnectionPool.intProperty(props, "changes.pollIntervalMillis", 2000),
+                    ConnectionPool.intProperty(props, "changes.batchSize", 500),
+                    ConnectionPool.intProperty(props, "changes.gapTimeoutMillis", 30000));
+        }
+        return changePoller;
+    }
+
     public static Connection getConnection() {
-        if (conn == null) {
+        Connection conn = TransactionManager.currentConnection();
+        if (conn != null) {
+            return conn;
+        }
+        return getPool().borrow();
+    }
+
+    /**
+     * Connection for a read that may be served by a replica. Inside a
+     * transaction, inside readFromPrimary, shortly after a write, or when no
+     * replica is reachable this is a primary connection.
+     */
+    public static Connection getReadConnection() {
+        Connection conn = TransactionManager.currentConnection();
+        if (conn != null) {
+            return conn;
+        }
+        ReplicaRouter router = getReplicaRouter();
+        if (router != null && primaryReads.get() == null) {
+            conn = router.borrow();
+            if (conn != null) {
+                return conn;
+            }
+        }
+        return getPool().borrow();
+    }
+
+    /**
+     * Runs work with every read of this thread going to the primary. For
+     * re-reading rows another client has just changed: a replica may not
+     * have the change yet and would return the old row, or none at all.
+     */
+    public static <T> T readFromPrimary(Supplier<T> work) {
+        if (primaryReads.get() != null) {
+            return work.get();
+        }
+        primaryReads.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            primaryReads.remove();
+        }
+    }
+
+    /**
+     * Sends reads to the primary for replica.stickyMillis, so a save is
+     * visible on the next screen even if the replicas have not caught up.
+     */
+    public static void markWritten() {
+        ReplicaRouter router = getReplicaRouter();
+        if (router != null) {
+            router.markWritten();
+        }
+    }
+
+    public static synchronized void closePool() {
+        if (changePoller != null) {
+            changePoller.stop();
+            changePoller = null;
+        }
+        if (replicaRouter != null) {
+            replicaRouter.close();
+            replicaRouter = null;
+        }
+        replicaRouterLoaded = false;
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+
+    public static void closeConnection(Connection conn) {
+        if (conn != null) {
             try {
-                Properties props = loadProperties();
-                String url = props.getProperty("dburl");
-                conn = DriverManager.getConnection(url, props);
+                conn.close();
             } catch (SQLException e) {
                 throw new DbException(e.getMessage());
             }
         }
-        return conn;
+    }
+
+    /**
+     * The distinct ids in ascending order, ready to be split into IN lists
+     * of at most IN_LIST_SIZE ids whose results come back in id order.
+     */
+    public static List<Integer> distinctIds(Collection<Integer> ids) {
+        return new ArrayList<>(new TreeSet<>(ids));
+    }
+
+    /**
+     * The smallest of the fixed IN list sizes (1, 10, 50, 100 and
+     * IN_LIST_SIZE) that holds count ids. Lists are padded to that size by
+     * repeating their last id, so each IN query has only a few shapes in the
+     * statement cache and the query metrics.
+     */
+    public static int inListSize(int count) {
+        for (int size : IN_LIST_SIZES) {
+            if (count <= size) {
+                return size;
+            }
+        }
+        return IN_LIST_SIZE;
+    }
+
+    public static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder(count * 3);
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.toString();
+    }
+
+    public static int[] columnIndexes(ResultSet rs, String... labels) throws SQLException {
+        int[] indexes = new int[labels.length];
+        for (int i = 0; i < labels.length; i++) {
+            indexes[i] = rs.findColumn(labels[i]);
+        }
+        return indexes;
     }
 
     public static void closeStatement(Statement st) {
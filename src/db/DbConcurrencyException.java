@@ -0,0 +1,10 @@
+package db;
+
+public class DbConcurrencyException extends DbException {
+
+    private static final long serialVersionUID = 1L;
+
+    public DbConcurrencyException(String msg) {
+        super(msg);
+    }
+}
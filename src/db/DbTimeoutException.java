@@ -0,0 +1,14 @@
+package db;
+
+/**
+ * Thrown when no pooled connection became free within the acquire
+ * timeout. The database itself may be fine, just busy.
+ */
+public class DbTimeoutException extends DbException {
+
+    private static final long serialVersionUID = 1L;
+
+    public DbTimeoutException(String msg) {
+        super(msg);
+    }
+}
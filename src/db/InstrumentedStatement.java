@@ -0,0 +1,168 @@
+package db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/**
+ * Times every execute call of a statement and reports it to
+ * {@link QueryMetrics}. Queries hand their timing over to a
+ * {@link TrackedResultSet}, which reports them once it is closed. Bind
+ * parameters are remembered for the slow query and error logs.
+ */
+class InstrumentedStatement implements InvocationHandler {
+
+    private static final Object[] NO_PARAMS = new Object[0];
+
+    private final Statement target;
+
+    private final String sql;
+
+    private final QueryMetrics metrics;
+
+    private Object[] params = NO_PARAMS;
+
+    private int batchSize;
+
+    private TrackedResultSet open;
+
+    private InstrumentedStatement(Statement target, String sql, QueryMetrics metrics) {
+        this.target = target;
+        this.sql = sql;
+        this.metrics = metrics;
+    }
+
+    static Statement wrap(Statement target, String sql, QueryMetrics metrics) {
+        Class<?> type = target instanceof CallableStatement ? CallableStatement.class
+                : target instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[] { type },
+                new InstrumentedStatement(target, sql, metrics));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        if (name.startsWith("execute")) {
+            return execute(method, args);
+        }
+        switch (name) {
+            case "close":
+                closeOpenResultSet();
+                break;
+            case "addBatch":
+                batchSize++;
+                break;
+            case "clearBatch":
+                batchSize = 0;
+                break;
+            case "clearParameters":
+                params = NO_PARAMS;
+                break;
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "InstrumentedStatement[" + sql + "]";
+            default:
+                if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                    bind((Integer) args[0], name.equals("setNull") ? null : args[1]);
+                }
+                break;
+        }
+        return invokeTarget(target, method, args);
+    }
+
+    private void bind(int index, Object value) {
+        if (index < 1) {
+            return;
+        }
+        if (index > params.length) {
+            params = Arrays.copyOf(params, Math.max(index, params.length * 2));
+        }
+        params[index - 1] = value;
+    }
+
+    private Object execute(Method method, Object[] args) throws Throwable {
+        String text = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+        Object[] bound = batchSize > 0 ? new Object[] { "batch of " + batchSize } : params;
+        closeOpenResultSet();
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = invokeTarget(target, method, args);
+        } catch (SQLException e) {
+            metrics.record(text, System.nanoTime() - start, 0, 0, bound, e);
+            throw e;
+        }
+        long elapsed = System.nanoTime() - start;
+        if (result instanceof ResultSet) {
+            open = new TrackedResultSet((ResultSet) result, metrics, text, bound, elapsed);
+            return open;
+        }
+        long rows = 0;
+        if (result instanceof Number) {
+            rows = ((Number) result).longValue();
+        } else if (result instanceof int[]) {
+            for (int count : (int[]) result) {
+                rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+            }
+            batchSize = 0;
+        } else if (result instanceof long[]) {
+            for (long count : (long[]) result) {
+                rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+            }
+            batchSize = 0;
+        }
+        metrics.record(text, elapsed, rows, 0, bound, null);
+        return result;
+    }
+
+    private void closeOpenResultSet() {
+        if (open != null) {
+            open.finish(null);
+            open = null;
+        }
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    static long sizeOf(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof String) {
+            return ((String) value).length();
+        }
+        if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        }
+        if (value instanceof Integer || value instanceof Float) {
+            return 4;
+        }
+        if (value instanceof Short) {
+            return 2;
+        }
+        if (value instanceof Byte || value instanceof Boolean) {
+            return 1;
+        }
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).precision() / 2 + 2;
+        }
+        return 8;
+    }
+}
@@ -0,0 +1,183 @@
+package db;
+
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Per-statement latency histograms, row counts and bytes read, keyed by SQL
+ * text. Statements slower than the threshold are written to the
+ * "db.slowquery" logger with their bind parameters, failed statements to
+ * this class's logger.
+ */
+public class QueryMetrics implements QueryMetricsMXBean {
+
+    private static final Logger LOG = Logger.getLogger(QueryMetrics.class.getName());
+
+    private static final Logger SLOW_LOG = Logger.getLogger("db.slowquery");
+
+    private static final int MAX_TRACKED_STATEMENTS = 500;
+
+    private static final String OTHER_STATEMENTS = "(other statements)";
+
+    private final Map<String, QueryStats> stats = new ConcurrentHashMap<>();
+
+    private final LongAdder statementCount = new LongAdder();
+
+    private final LongAdder errorCount = new LongAdder();
+
+    private final LongAdder slowQueryCount = new LongAdder();
+
+    private volatile long slowQueryThresholdMillis;
+
+    private volatile boolean logParameters;
+
+    public QueryMetrics(long slowQueryThresholdMillis, boolean logParameters) {
+        this.slowQueryThresholdMillis = slowQueryThresholdMillis;
+        this.logParameters = logParameters;
+    }
+
+    static QueryMetrics fromProperties(Properties props) {
+        if (!Boolean.parseBoolean(props.getProperty("metrics.enabled", "true").trim())) {
+            return null;
+        }
+        return new QueryMetrics(ConnectionPool.intProperty(props, "metrics.slowQueryMillis", 500),
+                Boolean.parseBoolean(props.getProperty("metrics.logParameters", "true").trim()));
+    }
+
+    void record(String sql, long nanos, long rows, long bytes, Object[] params, SQLException error) {
+        String key = sql == null ? OTHER_STATEMENTS : sql;
+        QueryStats queryStats = stats.get(key);
+        if (queryStats == null) {
+            if (stats.size() >= MAX_TRACKED_STATEMENTS) {
+                key = OTHER_STATEMENTS;
+            }
+            queryStats = stats.computeIfAbsent(key, k -> new QueryStats());
+        }
+        queryStats.record(nanos, rows, bytes, error != null);
+        statementCount.increment();
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        if (error != null) {
+            errorCount.increment();
+            if (LOG.isLoggable(Level.WARNING)) {
+                LOG.log(Level.WARNING, "Statement failed after " + millis + " ms: " + describe(sql, params), error);
+            }
+        }
+        long threshold = slowQueryThresholdMillis;
+        if (threshold > 0 && millis >= threshold) {
+            slowQueryCount.increment();
+            if (SLOW_LOG.isLoggable(Level.WARNING)) {
+                SLOW_LOG.warning("Slow statement (" + millis + " ms, " + rows + " rows, " + bytes + " bytes): "
+                        + describe(sql, params));
+            }
+        }
+    }
+
+    private String describe(String sql, Object[] params) {
+        StringBuilder sb = new StringBuilder(sql == null ? OTHER_STATEMENTS : sql);
+        if (!logParameters || params == null || params.length == 0) {
+            return sb.toString();
+        }
+        sb.append(" [");
+        for (int i = 0; i < params.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            Object value = params[i];
+            sb.append(i + 1).append('=');
+            sb.append(value instanceof CharSequence ? "'" + value + "'" : String.valueOf(value));
+        }
+        return sb.append(']').toString();
+    }
+
+    public void register(String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(this, objectName);
+        } catch (JMException e) {
+            LOG.log(Level.WARNING, "Could not register " + name, e);
+        }
+    }
+
+    @Override
+    public long getStatementCount() {
+        return statementCount.sum();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    @Override
+    public long getSlowQueryCount() {
+        return slowQueryCount.sum();
+    }
+
+    @Override
+    public long getSlowQueryThresholdMillis() {
+        return slowQueryThresholdMillis;
+    }
+
+    @Override
+    public void setSlowQueryThresholdMillis(long millis) {
+        this.slowQueryThresholdMillis = millis;
+    }
+
+    @Override
+    public boolean isLogParameters() {
+        return logParameters;
+    }
+
+    @Override
+    public void setLogParameters(boolean logParameters) {
+        this.logParameters = logParameters;
+    }
+
+    /**
+     * Statements ordered by total time spent in them, hottest first.
+     */
+    @Override
+    public List<QueryStatsSnapshot> getQueries() {
+        List<QueryStatsSnapshot> list = new ArrayList<>(stats.size());
+        for (Map.Entry<String, QueryStats> entry : stats.entrySet()) {
+            list.add(entry.getValue().snapshot(entry.getKey()));
+        }
+        list.sort(Comparator.comparingDouble((QueryStatsSnapshot s) -> s.getMeanMillis() * s.getCount()).reversed());
+        return list;
+    }
+
+    @Override
+    public void reset() {
+        stats.clear();
+        statementCount.reset();
+        errorCount.reset();
+        slowQueryCount.reset();
+    }
+
+    public String report() {
+        StringBuilder sb = new StringBuilder(String.format("%8s %6s %9s %9s %9s %9s %9s %10s %12s  %s%n", "count",
+                "errors", "mean ms", "p50 ms", "p90 ms", "p99 ms", "max ms", "rows", "bytes", "sql"));
+        for (QueryStatsSnapshot snapshot : getQueries()) {
+            sb.append(snapshot).append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+}
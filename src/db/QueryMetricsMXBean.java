@@ -0,0 +1,24 @@
+package db;
+
+import java.util.List;
+
+public interface QueryMetricsMXBean {
+
+    long getStatementCount();
+
+    long getErrorCount();
+
+    long getSlowQueryCount();
+
+    long getSlowQueryThresholdMillis();
+
+    void setSlowQueryThresholdMillis(long millis);
+
+    boolean isLogParameters();
+
+    void setLogParameters(boolean logParameters);
+
+    List<QueryStatsSnapshot> getQueries();
+
+    void reset();
+}
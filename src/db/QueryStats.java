@@ -0,0 +1,35 @@
+package db;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import metrics.Histogram;
+
+class QueryStats {
+
+    private final Histogram nanos = new Histogram();
+
+    private final LongAdder errors = new LongAdder();
+
+    private final LongAdder rows = new LongAdder();
+
+    private final LongAdder bytes = new LongAdder();
+
+    void record(long nanos, long rowCount, long byteCount, boolean failed) {
+        this.nanos.record(nanos);
+        if (failed) {
+            errors.increment();
+        }
+        rows.add(rowCount);
+        bytes.add(byteCount);
+    }
+
+    QueryStatsSnapshot snapshot(String sql) {
+        return new QueryStatsSnapshot(sql, nanos.getCount(), errors.sum(), millis(nanos.getMean()),
+                millis(nanos.getMax()), millis(nanos.getPercentile(0.50)), millis(nanos.getPercentile(0.90)),
+                millis(nanos.getPercentile(0.99)), rows.sum(), bytes.sum());
+    }
+
+    private static double millis(double nanos) {
+        return nanos / 1e6;
+    }
+}
@@ -0,0 +1,87 @@
+package db;
+
+public class QueryStatsSnapshot {
+
+    private final String sql;
+
+    private final long count;
+
+    private final long errors;
+
+    private final double meanMillis;
+
+    private final double maxMillis;
+
+    private final double p50Millis;
+
+    private final double p90Millis;
+
+    private final double p99Millis;
+
+    private final long rows;
+
+    private final long bytes;
+
+    public QueryStatsSnapshot(String sql, long count, long errors, double meanMillis, double maxMillis,
+            double p50Millis, double p90Millis, double p99Millis, long rows, long bytes) {
+        this.sql = sql;
+        this.count = count;
+        this.errors = errors;
+        this.meanMillis = meanMillis;
+        this.maxMillis = maxMillis;
+        this.p50Millis = p50Millis;
+        this.p90Millis = p90Millis;
+        this.p99Millis = p99Millis;
+        this.rows = rows;
+        this.bytes = bytes;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public double getMeanMillis() {
+        return meanMillis;
+    }
+
+    public double getMaxMillis() {
+        return maxMillis;
+    }
+
+    public double getP50Millis() {
+        return p50Millis;
+    }
+
+    public double getP90Millis() {
+        return p90Millis;
+    }
+
+    public double getP99Millis() {
+        return p99Millis;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Approximate payload read through the ResultSet getters.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%8d %6d %9.2f %9.2f %9.2f %9.2f %9.2f %10d %12d  %s", count, errors, meanMillis,
+                p50Millis, p90Millis, p99Millis, maxMillis, rows, bytes, sql);
+    }
+}
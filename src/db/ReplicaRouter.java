@@ -0,0 +1,196 @@
+package db;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hands out connections to read replicas. Replicas are picked round-robin
+ * or by the fewest connections in use, and a replica that fails to connect
+ * is skipped for a while. A replica whose pool is busy is not down: its
+ * pool waits only replica.acquireTimeoutMillis before the next replica or
+ * the primary is tried. After a write every read goes to the primary for
+ * a short window, so the user sees their own changes even when the
+ * replicas lag behind.
+ */
+public class ReplicaRouter {
+
+    private static final Logger LOG = Logger.getLogger(ReplicaRouter.class.getName());
+
+    public enum Selection {
+        ROUND_ROBIN, LEAST_LOADED
+    }
+
+    private final List<Replica> replicas;
+
+    private final Selection selection;
+
+    private final long stickyMillis;
+
+    private final long retryMillis;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private volatile long lastWriteAt;
+
+    public ReplicaRouter(List<String> urls, Properties props, QueryMetrics metrics) {
+        Properties replicaProps = new Properties();
+        replicaProps.putAll(props);
+        replicaProps.setProperty("pool.acquireTimeoutMillis",
+                String.valueOf(ConnectionPool.intProperty(props, "replica.acquireTimeoutMillis", 250)));
+        List<Replica> list = new ArrayList<>();
+        for (String url : urls) {
+            list.add(new Replica(url, replicaProps, metrics));
+        }
+        this.replicas = Collections.unmodifiableList(list);
+        this.selection = parseSelection(props.getProperty("replica.selection", "round-robin"));
+        this.stickyMillis = ConnectionPool.intProperty(props, "replica.stickyMillis", 5000);
+        this.retryMillis = ConnectionPool.intProperty(props, "replica.retryMillis", 30000);
+    }
+
+    /**
+     * Router for the comma separated replica.urls, or null when none are
+     * configured.
+     */
+    static ReplicaRouter fromProperties(Properties props, QueryMetrics metrics) {
+        List<String> urls = new ArrayList<>();
+        for (String url : props.getProperty("replica.urls", "").split(",")) {
+            if (!url.trim().isEmpty()) {
+                urls.add(url.trim());
+            }
+        }
+        return urls.isEmpty() ? null : new ReplicaRouter(urls, props, metrics);
+    }
+
+    private static Selection parseSelection(String value) {
+        try {
+            return Selection.valueOf(value.trim().toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new DbException("Invalid value for replica.selection: " + value);
+        }
+    }
+
+    public void markWritten() {
+        lastWriteAt = System.currentTimeMillis();
+    }
+
+    public boolean isSticky() {
+        return System.currentTimeMillis() - lastWriteAt < stickyMillis;
+    }
+
+    /**
+     * A connection to one of the replicas, or null when all of them are
+     * down or the last write is too recent, in which case the caller reads
+     * from the primary.
+     */
+    public Connection borrow() {
+        if (isSticky()) {
+            return null;
+        }
+        int start = selection == Selection.LEAST_LOADED ? leastLoaded()
+                : Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            Connection conn = replica.borrow(retryMillis);
+            if (conn != null) {
+                return conn;
+            }
+        }
+        return null;
+    }
+
+    private int leastLoaded() {
+        int best = 0;
+        int bestInUse = Integer.MAX_VALUE;
+        int offset = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            int index = (offset + i) % replicas.size();
+            int inUse = replicas.get(index).getInUseCount();
+            if (inUse < bestInUse) {
+                best = index;
+                bestInUse = inUse;
+            }
+        }
+        return best;
+    }
+
+    public List<ConnectionPool> getPools() {
+        List<ConnectionPool> pools = new ArrayList<>();
+        for (Replica replica : replicas) {
+            ConnectionPool pool = replica.pool;
+            if (pool != null) {
+                pools.add(pool);
+            }
+        }
+        return pools;
+    }
+
+    public void close() {
+        for (Replica replica : replicas) {
+            replica.close();
+        }
+    }
+
+    private static class Replica {
+
+        private final String url;
+
+        private final Properties props;
+
+        private final QueryMetrics metrics;
+
+        private volatile ConnectionPool pool;
+
+        private volatile long downUntil;
+
+        Replica(String url, Properties props, QueryMetrics metrics) {
+            this.url = url;
+            this.props = props;
+            this.metrics = metrics;
+        }
+
+        Connection borrow(long retryMillis) {
+            if (System.currentTimeMillis() < downUntil) {
+                return null;
+            }
+            try {
+                return getPool().borrow();
+            } catch (DbTimeoutException e) {
+                LOG.fine(() -> "Replica " + url + " is busy: " + e.getMessage());
+                return null;
+            } catch (DbException e) {
+                downUntil = System.currentTimeMillis() + retryMillis;
+                LOG.log(Level.WARNING, "Replica " + url + " is unavailable, reading from the primary for "
+                        + retryMillis + " ms: " + e.getMessage());
+                return null;
+            }
+        }
+
+        private synchronized ConnectionPool getPool() {
+            if (pool == null) {
+                pool = new ConnectionPool(url, props, metrics);
+            }
+            return pool;
+        }
+
+        int getInUseCount() {
+            ConnectionPool current = pool;
+            if (System.currentTimeMillis() < downUntil) {
+                return Integer.MAX_VALUE;
+            }
+            return current == null ? 0 : current.getInUseCount();
+        }
+
+        synchronized void close() {
+            if (pool != null) {
+                pool.close();
+                pool = null;
+            }
+        }
+    }
+}
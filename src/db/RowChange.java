@@ -0,0 +1,58 @@
+package db;
+
+public class RowChange {
+
+    public enum Operation {
+        INSERT, UPDATE, DELETE;
+
+        static Operation fromCode(String code) {
+            switch (code) {
+                case "I":
+                    return INSERT;
+                case "U":
+                    return UPDATE;
+                case "D":
+                    return DELETE;
+                default:
+                    throw new DbException("Unknown change operation: " + code);
+            }
+        }
+    }
+
+    private final long changeId;
+
+    private final String table;
+
+    private final int rowId;
+
+    private final Operation operation;
+
+    public RowChange(long changeId, String table, int rowId, Operation operation) {
+        this.changeId = changeId;
+        this.table = table;
+        this.rowId = rowId;
+        this.operation = operation;
+    }
+
+    public long getChangeId() {
+        return changeId;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public int getRowId() {
+        return rowId;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    @Override
+    public String toString() {
+        return "RowChange [changeId=" + changeId + ", table=" + table + ", rowId=" + rowId + ", operation="
+                + operation + "]";
+    }
+}
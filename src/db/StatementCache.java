@@ -0,0 +1,152 @@
+package db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+class StatementCache {
+
+    private final Connection physical;
+
+    private final int maxSize;
+
+    private final AtomicLong hits;
+
+    private final AtomicLong misses;
+
+    private final Map<String, CachedStatement> statements;
+
+    StatementCache(Connection physical, int maxSize, AtomicLong hits, AtomicLong misses) {
+        this.physical = physical;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() > StatementCache.this.maxSize) {
+                    eldest.getValue().evict();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    PreparedStatement prepare(Method method, Object[] args) throws Throwable {
+        String key = Arrays.deepToString(args);
+        CachedStatement cached = statements.get(key);
+        if (cached != null && cached.evicted) {
+            statements.remove(key);
+            cached = null;
+        }
+        if (cached != null && !cached.inUse) {
+            hits.incrementAndGet();
+            cached.inUse = true;
+            return cached.proxy;
+        }
+        misses.incrementAndGet();
+        PreparedStatement st = (PreparedStatement) invoke(physical, method, args);
+        if (cached != null) {
+            return st;
+        }
+        cached = new CachedStatement(st);
+        cached.inUse = true;
+        statements.put(key, cached);
+        return cached.proxy;
+    }
+
+    void closeAll() {
+        for (CachedStatement cached : statements.values()) {
+            cached.evict();
+        }
+        statements.clear();
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static class CachedStatement implements InvocationHandler {
+
+        private final PreparedStatement physical;
+
+        private final PreparedStatement proxy;
+
+        private boolean inUse;
+
+        private boolean evicted;
+
+        CachedStatement(PreparedStatement physical) {
+            this.physical = physical;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class }, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (inUse) {
+                        inUse = false;
+                        if (!evicted) {
+                            try {
+                                reset();
+                                return null;
+                            } catch (SQLException e) {
+                                evicted = true;
+                            }
+                        }
+                        physical.close();
+                    }
+                    return null;
+                case "isClosed":
+                    return !inUse || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            if (!inUse) {
+                throw new SQLException("Statement is closed");
+            }
+            return StatementCache.invoke(physical, method, args);
+        }
+
+        private void reset() throws SQLException {
+            physical.clearParameters();
+            physical.clearBatch();
+            physical.clearWarnings();
+            physical.setFetchSize(0);
+            physical.setMaxRows(0);
+            physical.setQueryTimeout(0);
+        }
+
+        void evict() {
+            evicted = true;
+            if (!inUse) {
+                try {
+                    physical.close();
+                } catch (SQLException e) {
+                    // the connection is going away or the statement is already gone
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+public class TransactionManager {
+
+    private static final ThreadLocal<Transaction> current = new ThreadLocal<>();
+
+    public static void inTransaction(Runnable work) {
+        inTransaction(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public static <T> T inTransaction(Supplier<T> work) {
+        if (current.get() != null) {
+            return work.get();
+        }
+        Transaction tx = begin();
+        current.set(tx);
+        try {
+            T result;
+            try {
+                result = work.get();
+            } catch (RuntimeException | Error e) {
+                tx.rollbackQuietly(e);
+                throw e;
+            }
+            // commit and rollback clean up after their own failures
+            if (tx.rollbackOnly) {
+                tx.rollback();
+            } else {
+                tx.commit();
+                DB.markWritten();
+            }
+            return result;
+        } finally {
+            current.remove();
+            tx.close();
+            for (Runnable callback : tx.afterCompletion) {
+                callback.run();
+            }
+        }
+    }
+
+    public static boolean isActive() {
+        return current.get() != null;
+    }
+
+    /**
+     * Runs the callback once the current transaction has committed or
+     * rolled back, or right away when there is none.
+     */
+    public static void afterCompletion(Runnable callback) {
+        Transaction tx = current.get();
+        if (tx == null) {
+            callback.run();
+        } else {
+            tx.afterCompletion.add(callback);
+        }
+    }
+
+    public static void setRollbackOnly() {
+        requireTransaction().rollbackOnly = true;
+    }
+
+    public static Savepoint setSavepoint(String name) {
+        try {
+            return requireTransaction().physical.setSavepoint(name);
+        } catch (SQLException e) {
+            throw new DbException(e.getMessage());
+        }
+    }
+
+    public static void rollbackTo(Savepoint savepoint) {
+        try {
+            requireTransaction().physical.rollback(savepoint);
+        } catch (SQLException e) {
+            throw new DbException(e.getMessage());
+        }
+    }
+
+    public static void releaseSavepoint(Savepoint savepoint) {
+        try {
+            requireTransaction().physical.releaseSavepoint(savepoint);
+        } catch (SQLException e) {
+            throw new DbException(e.getMessage());
+        }
+    }
+
+    static Connection currentConnection() {
+        Transaction tx = current.get();
+        return tx == null ? null : tx.participant;
+    }
+
+    private static Transaction requireTransaction() {
+        Transaction tx = current.get();
+        if (tx == null) {
+            throw new IllegalStateException("No transaction is active on this thread");
+        }
+        return tx;
+    }
+
+    private static Transaction begin() {
+        Connection conn = DB.getPool().borrow();
+        try {
+            conn.setAutoCommit(false);
+        } catch (SQLException e) {
+            DB.closeConnection(conn);
+            throw new DbException(e.getMessage());
+        }
+        return new Transaction(conn);
+    }
+
+    private static class Transaction implements InvocationHandler {
+
+        private final Connection physical;
+
+        private final Connection participant;
+
+        private final List<Runnable> afterCompletion = new ArrayList<>();
+
+        private boolean rollbackOnly;
+
+        Transaction(Connection physical) {
+            this.physical = physical;
+            this.participant = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                case "commit":
+                case "setAutoCommit":
+                    return null;
+                case "getAutoCommit":
+                    return false;
+                case "rollback":
+                    if (args == null || args.length == 0) {
+                        rollbackOnly = true;
+                        return null;
+                    }
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        void commit() {
+            try {
+                physical.commit();
+            } catch (SQLException e) {
+                DbException failure = new DbException(e.getMessage());
+                rollbackQuietly(failure);
+                throw failure;
+            }
+        }
+
+        void rollback() {
+            try {
+                physical.rollback();
+            } catch (SQLException e) {
+                throw new DbException(e.getMessage());
+            }
+        }
+
+        void rollbackQuietly(Throwable cause) {
+            try {
+                physical.rollback();
+            } catch (SQLException e) {
+                cause.addSuppressed(e);
+            }
+        }
+
+        void close() {
+            try {
+                physical.setAutoCommit(true);
+            } catch (SQLException e) {
+                // the pool rolls back and resets the connection when it comes back
+            }
+            DB.closeConnection(physical);
+        }
+    }
+}
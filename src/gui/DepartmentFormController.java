@@ -7,10 +7,12 @@ import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Set;
 
-import db.DbException;
+import db.DbConcurrencyException;
+import gui.listeners.DataChangeEvent;
 import gui.listeners.DataChangeListener;
 import gui.util.Alerts;
 import gui.util.Constraints;
+import gui.util.FxAsync;
 import gui.util.Utils;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -19,6 +21,8 @@ import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
+import javafx.stage.Stage;
+import metrics.Metrics;
 import model.entities.Department;
 import model.exceptions.ValidationException;
 import model.services.DepartmentService;
@@ -55,7 +59,9 @@ public class DepartmentFormController implements Initializable {
     }
 
     public void subscribeDataChangeListener(DataChangeListener listener) {
-        dataChangeListeners.add(listener);
+        if (!dataChangeListeners.contains(listener)) {
+            dataChangeListeners.add(listener);
+        }
     }
 
     @FXML
@@ -66,21 +72,55 @@ public class DepartmentFormController implements Initializable {
         if (service == null) {
             throw new IllegalStateException("Service was null");
         }
+        long start = System.nanoTime();
         try {
             entity = getFormData();
-            service.saveOrUpdate(entity);
-            notityDataChangeListeners();
-            Utils.currentStage(event).close();
-        } catch (DbException e) {
-            Alerts.showAlerts("Error saving object", null, e.getMessage(), AlertType.ERROR);
         } catch (ValidationException e) {
+            Metrics.counter("ui.departmentForm.validationErrors").increment();
             setErrorMessages(e.getErrors());
+            return;
+        } finally {
+            Metrics.timer("ui.departmentForm.validate").recordSince(start);
         }
+        Stage stage = Utils.currentStage(event);
+        boolean inserting = entity.getId() == null;
+        buttonSave.setDisable(true);
+        long saveStart = System.nanoTime();
+        FxAsync.run(service.saveOrUpdateAsync(entity), null, obj -> {
+            Metrics.timer("ui.departmentForm.save").recordSince(saveStart);
+            notityDataChangeListeners(inserting
+                    ? DataChangeEvent.inserted(obj, obj.getId())
+                    : DataChangeEvent.updated(obj, obj.getId()));
+            stage.close();
+        }, e -> {
+            buttonSave.setDisable(false);
+            if (e instanceof DbConcurrencyException) {
+                Metrics.counter("ui.departmentForm.conflicts").increment();
+                reloadAfterConflict(stage, e.getMessage());
+            } else {
+                Alerts.showAlerts("Error saving object", null, e.getMessage(), AlertType.ERROR);
+            }
+        });
+    }
+
+    private void reloadAfterConflict(Stage stage, String message) {
+        FxAsync.run(service.findByIdAsync(entity.getId()), null, current -> {
+            if (current == null) {
+                Alerts.showAlerts("Department removed", null, message, AlertType.WARNING);
+                notityDataChangeListeners(DataChangeEvent.deleted(null, entity.getId()));
+                stage.close();
+                return;
+            }
+            entity = current;
+            updateFormData();
+            Alerts.showAlerts("Department changed", null,
+                    message + ". The form now shows the current data, apply your changes again.", AlertType.WARNING);
+        }, e -> Alerts.showAlerts("Error reloading object", null, e.getMessage(), AlertType.ERROR));
     }
 
-    private void notityDataChangeListeners() {
+    private void notityDataChangeListeners(DataChangeEvent<Department> event) {
         for (DataChangeListener listener: dataChangeListeners) {
-            listener.onDataChanged();
+            listener.onDataChanged(event);
         }
     }
 
@@ -88,6 +128,7 @@ public class DepartmentFormController implements Initializable {
         Department obj = new Department();
         ValidationException exception = new ValidationException("Validation error");
         obj.setId(Utils.tryParseToInt(textFieldId.getText()));
+        obj.setVersion(entity.getVersion());
         if (textFieldName.getText() == null) {
             exception.addError("name", "Field can't be empty");
         } else {
@@ -123,6 +164,8 @@ public class DepartmentFormController implements Initializable {
         }
         textFieldId.setText(String.valueOf(entity.getId()));
         textFieldName.setText(entity.getName());
+        labelErrorName.setText("");
+        buttonSave.setDisable(false);
     }
     
     private void setErrorMessages(Map<String, String> errors) {
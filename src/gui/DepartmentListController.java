@@ -2,34 +2,33 @@ package gui;
 
 import java.io.IOException;
 import java.net.URL;
-import java.util.List;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
 
 import application.Main;
-import db.DbException;
-import db.DbIntegrityException;
+import gui.listeners.DataChangeEvent;
 import gui.listeners.DataChangeListener;
 import gui.util.Alerts;
+import gui.util.FxAsync;
 import gui.util.Utils;
+import gui.util.ViewRegistry;
 import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
-import javafx.scene.Scene;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.cell.PropertyValueFactory;
-import javafx.scene.layout.Pane;
-import javafx.stage.Modality;
 import javafx.stage.Stage;
+import metrics.Metrics;
 import model.entities.Department;
 import model.services.DepartmentService;
 
@@ -52,10 +51,18 @@ public class DepartmentListController implements Initializable, DataChangeListen
     @FXML
     private TableColumn<Department, Department> tableColumnRemove;
 
-    private ObservableList<Department> observableList;
+    private ObservableList<Department> observableList = FXCollections.observableArrayList();
+
+    private CompletableFuture<?> pendingLoad;
+
+    private long loadSequence;
+
     @FXML
     private Button buttonNew;
 
+    @FXML
+    private ProgressIndicator progressIndicator;
+
     @FXML
     public void onButtonNewAction(ActionEvent event) {
         Stage parentStage = Utils.currentStage(event);
@@ -68,6 +75,9 @@ public class DepartmentListController implements Initializable, DataChangeListen
         tableViewDepartment.prefHeightProperty().bind(stage.heightProperty());
         tableColumnId.setCellValueFactory(new PropertyValueFactory<>("id"));
         tableColumnName.setCellValueFactory(new PropertyValueFactory<>("name"));
+        tableViewDepartment.setItems(observableList);
+        initEditButtons();
+        initRemoveButtons();
     }
 
     public void setService(DepartmentService service) {
@@ -83,29 +93,34 @@ public class DepartmentListController implements Initializable, DataChangeListen
         if (service == null) {
             throw new IllegalStateException("Service was null");
         }
-        List<Department> serviceList = service.findAll();
-        observableList = FXCollections.observableArrayList(serviceList);
-        tableViewDepartment.setItems(observableList);
-        initEditButtons();
-        initRemoveButtons();
+        FxAsync.cancel(pendingLoad);
+        long sequence = ++loadSequence;
+        long start = System.nanoTime();
+        pendingLoad = FxAsync.run(service.findAllAsync(), progressIndicator, list -> {
+            if (sequence != loadSequence) {
+                return;
+            }
+            observableList.setAll(list);
+            Metrics.timer("ui.departmentList.updateTableView").recordSince(start);
+        }, e -> {
+            if (sequence == loadSequence) {
+                Alerts.showAlerts("Error loading data", null, e.getMessage(), AlertType.ERROR);
+            }
+        });
     }
 
     public void createDialogForm(String absoluteName, Stage parentStage, Department obj) {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource(absoluteName));
-            Pane pane = loader.load();
-            DepartmentFormController controller = loader.getController();
+            long start = System.nanoTime();
+            ViewRegistry.View<DepartmentFormController> view =
+                    ViewRegistry.dialog(absoluteName, "Enter Department data", parentStage);
+            DepartmentFormController controller = view.getController();
             controller.setDepartment(obj);
             controller.setDepartmentService(new DepartmentService());
             controller.subscribeDataChangeListener(this);
             controller.updateFormData();
-            Stage dialogFormStage = new Stage();
-            dialogFormStage.setTitle("Enter Department data");
-            dialogFormStage.setScene(new Scene(pane));
-            dialogFormStage.setResizable(false);
-            dialogFormStage.initOwner(parentStage);
-            dialogFormStage.initModality(Modality.WINDOW_MODAL);
-            dialogFormStage.showAndWait();
+            Metrics.timer("ui.departmentForm.open").recordSince(start);
+            view.getStage().showAndWait();
         } catch (IOException e) {
             e.printStackTrace();
             Alerts.showAlerts("IOException", "Error loading view", e.getMessage(), AlertType.ERROR);
@@ -113,8 +128,22 @@ public class DepartmentListController implements Initializable, DataChangeListen
     }
 
     @Override
-    public void onDataChanged() {
-        updateTableView();
+    public void onDataChanged(DataChangeEvent<?> event) {
+        if (event.getType() == DataChangeEvent.Type.DELETED) {
+            observableList.removeIf(obj -> obj.getId().equals(event.getId()));
+            return;
+        }
+        if (!(event.getEntity() instanceof Department)) {
+            updateTableView();
+            return;
+        }
+        Department changed = (Department) event.getEntity();
+        int index = observableList.indexOf(changed);
+        if (index >= 0) {
+            observableList.set(index, changed);
+        } else {
+            observableList.add(changed);
+        }
     }
 
     private void initEditButtons() {
@@ -160,12 +189,9 @@ public class DepartmentListController implements Initializable, DataChangeListen
             if (service == null) {
                 throw new IllegalStateException("Service was null");
             }
-            try {
-                service.remove(obj);
-                updateTableView();
-            } catch (DbIntegrityException e) {
-                Alerts.showAlerts("Error removing object", null, e.getMessage(), AlertType.ERROR);
-            }
+            FxAsync.run(service.removeAsync(obj), progressIndicator,
+                    x -> onDataChanged(DataChangeEvent.deleted(obj, obj.getId())),
+                    e -> Alerts.showAlerts("Error removing object", null, e.getMessage(), AlertType.ERROR));
         }
     }
 }
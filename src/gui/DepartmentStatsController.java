@@ -0,0 +1,166 @@
+package gui;
+
+import java.net.URL;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+
+import application.Main;
+import gui.util.Alerts;
+import gui.util.FxAsync;
+import gui.util.Utils;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.event.ActionEvent;
+import javafx.fxml.FXML;
+import javafx.fxml.Initializable;
+import javafx.scene.control.Alert.AlertType;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+import model.entities.DepartmentStats;
+import model.services.DepartmentStatsService;
+
+public class DepartmentStatsController implements Initializable {
+
+    private static final DateTimeFormatter UPDATED_AT_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private DepartmentStatsService service;
+
+    private final ObservableList<DepartmentStats> observableList = FXCollections.observableArrayList();
+
+    private CompletableFuture<?> pendingLoad;
+
+    private long loadSequence;
+
+    private Timeline autoRefresh;
+
+    @FXML
+    private TableView<DepartmentStats> tableViewStats;
+
+    @FXML
+    private TableColumn<DepartmentStats, String> tableColumnDepartment;
+
+    @FXML
+    private TableColumn<DepartmentStats, Long> tableColumnSellerCount;
+
+    @FXML
+    private TableColumn<DepartmentStats, Double> tableColumnTotalBaseSalary;
+
+    @FXML
+    private TableColumn<DepartmentStats, Double> tableColumnAverageBaseSalary;
+
+    @FXML
+    private TableColumn<DepartmentStats, String> tableColumnAgeDistribution;
+
+    @FXML
+    private Button buttonRefresh;
+
+    @FXML
+    private ProgressIndicator progressIndicator;
+
+    @FXML
+    private Label labelUpdatedAt;
+
+    public void setService(DepartmentStatsService service) {
+        this.service = service;
+    }
+
+    @FXML
+    public void onButtonRefreshAction(ActionEvent event) {
+        load(service.refreshAsync());
+    }
+
+    @Override
+    public void initialize(URL url, ResourceBundle rb) {
+        initializeNodes();
+    }
+
+    private void initializeNodes() {
+        Stage stage = (Stage) Main.getMainScene().getWindow();
+        tableViewStats.prefHeightProperty().bind(stage.heightProperty());
+        tableColumnDepartment.setCellValueFactory(
+                param -> new ReadOnlyObjectWrapper<>(param.getValue().getDepartment().getName()));
+        tableColumnSellerCount.setCellValueFactory(
+                param -> new ReadOnlyObjectWrapper<>(param.getValue().getSellerCount()));
+        tableColumnTotalBaseSalary.setCellValueFactory(
+                param -> new ReadOnlyObjectWrapper<>(param.getValue().getTotalBaseSalary()));
+        tableColumnAverageBaseSalary.setCellValueFactory(
+                param -> new ReadOnlyObjectWrapper<>(param.getValue().getAverageBaseSalary()));
+        tableColumnAgeDistribution.setCellValueFactory(
+                param -> new ReadOnlyObjectWrapper<>(formatAgeDistribution(param.getValue().getAgeDistribution())));
+        Utils.formatTableColumnDouble(tableColumnTotalBaseSalary, 2);
+        Utils.formatTableColumnDouble(tableColumnAverageBaseSalary, 2);
+        tableViewStats.setItems(observableList);
+        tableViewStats.sceneProperty().addListener((obs, oldScene, newScene) -> {
+            if (oldScene != null && newScene == null) {
+                stopAutoRefresh();
+            }
+        });
+    }
+
+    public void updateTableView() {
+        if (service == null) {
+            throw new IllegalStateException("Service was null");
+        }
+        load(service.findAllAsync());
+    }
+
+    public void startAutoRefresh(long intervalMillis) {
+        stopAutoRefresh();
+        autoRefresh = new Timeline(new KeyFrame(Duration.millis(intervalMillis), e -> updateTableView()));
+        autoRefresh.setCycleCount(Animation.INDEFINITE);
+        autoRefresh.play();
+    }
+
+    public void stopAutoRefresh() {
+        if (autoRefresh != null) {
+            autoRefresh.stop();
+            autoRefresh = null;
+        }
+        FxAsync.cancel(pendingLoad);
+        loadSequence++;
+    }
+
+    private void load(CompletableFuture<List<DepartmentStats>> future) {
+        FxAsync.cancel(pendingLoad);
+        long sequence = ++loadSequence;
+        pendingLoad = FxAsync.run(future, progressIndicator, list -> {
+            if (sequence != loadSequence) {
+                return;
+            }
+            observableList.setAll(list);
+            long loadedAt = service.getLoadedAt();
+            labelUpdatedAt.setText(loadedAt == 0 ? ""
+                    : "Updated at " + UPDATED_AT_FORMAT.format(
+                            Instant.ofEpochMilli(loadedAt).atZone(ZoneId.systemDefault())));
+        }, e -> {
+            if (sequence == loadSequence) {
+                Alerts.showAlerts("Error loading statistics", null, e.getMessage(), AlertType.ERROR);
+            }
+        });
+    }
+
+    private static String formatAgeDistribution(Map<Integer, Long> distribution) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<Integer, Long> entry : distribution.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(entry.getKey()).append('-').append(entry.getKey() + 9).append(": ").append(entry.getValue());
+        }
+        return sb.toString();
+    }
+}
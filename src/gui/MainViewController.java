@@ -2,13 +2,17 @@ package gui;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.ResourceBundle;
 import java.util.function.Consumer;
+import java.util.logging.Logger;
 
 import application.Main;
+import gui.listeners.ChangeFeed;
 import gui.util.Alerts;
+import gui.util.ViewRegistry;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
 import javafx.scene.Node;
 import javafx.scene.Scene;
@@ -16,17 +20,24 @@ import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.MenuItem;
 import javafx.scene.control.ScrollPane;
 import javafx.scene.layout.VBox;
+import metrics.Metrics;
 import model.services.DepartmentService;
+import model.services.DepartmentStatsService;
 import model.services.SellerService;
 
 public class MainViewController implements Initializable {
 
+    private static final Logger LOG = Logger.getLogger(MainViewController.class.getName());
+
     @FXML
     private MenuItem menuItemSeller;
 
     @FXML
     private MenuItem menuItemDepartment;
 
+    @FXML
+    private MenuItem menuItemDepartmentStats;
+
     @FXML
     private MenuItem menuItemAbout;
 
@@ -35,6 +46,7 @@ public class MainViewController implements Initializable {
         loadView("/gui/SellerList.fxml", (SellerListController controller) -> {
             controller.setService(new SellerService());
             controller.updateTableView();
+            ChangeFeed.subscribe(ChangeFeed.SELLER, controller);
         });
     }
     
@@ -44,6 +56,18 @@ public class MainViewController implements Initializable {
         loadView("/gui/DepartmentList.fxml", (DepartmentListController controller) -> {
             controller.setService(new DepartmentService());
             controller.updateTableView();
+            ChangeFeed.subscribe(ChangeFeed.DEPARTMENT, controller);
+        });
+    }
+    
+
+    @FXML
+    public void onMenuItemDepartmentStatsAction() {
+        loadView("/gui/DepartmentStats.fxml", (DepartmentStatsController controller) -> {
+            DepartmentStatsService service = new DepartmentStatsService();
+            controller.setService(service);
+            controller.updateTableView();
+            controller.startAutoRefresh(service.getRefreshIntervalMillis());
         });
     }
     
@@ -59,17 +83,20 @@ public class MainViewController implements Initializable {
     }
 
     private <T> void loadView(String absoluteName, Consumer<T> initializerAction) {
-        FXMLLoader loader = new FXMLLoader(getClass().getResource(absoluteName));
         try {
-            VBox newVBox = loader.load();
+            long start = System.nanoTime();
+            ViewRegistry.View<T> view = ViewRegistry.get(absoluteName);
             Scene maiScene = Main.getMainScene();
             VBox mainVBox = (VBox) ((ScrollPane) maiScene.getRoot()).getContent();
-            Node mainMenu = mainVBox.getChildren().get(0);
-            mainVBox.getChildren().clear();
-            mainVBox.getChildren().add(mainMenu);
-            mainVBox.getChildren().addAll(newVBox.getChildren());
-            T controller = loader.getController();
-            initializerAction.accept(controller);
+            List<Node> children = new ArrayList<>();
+            children.add(mainVBox.getChildren().get(0));
+            children.addAll(view.getNodes());
+            mainVBox.getChildren().setAll(children);
+            ChangeFeed.unsubscribeAll();
+            initializerAction.accept(view.getController());
+            long elapsed = System.nanoTime() - start;
+            Metrics.timer("ui.loadView." + ViewRegistry.shortName(absoluteName)).record(elapsed);
+            LOG.fine(() -> "Switched to " + absoluteName + " in " + elapsed / 1_000_000 + " ms");
         } catch (IOException e) {
             Alerts.showAlerts("IO Exception", "Error loading view", e.getMessage(), AlertType.ERROR);
         }
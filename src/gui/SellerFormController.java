@@ -1,8 +1,6 @@
 package gui;
 
 import java.net.URL;
-import java.time.LocalDate;
-import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
@@ -10,10 +8,12 @@ import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Set;
 
-import db.DbException;
+import db.DbConcurrencyException;
+import gui.listeners.DataChangeEvent;
 import gui.listeners.DataChangeListener;
 import gui.util.Alerts;
 import gui.util.Constraints;
+import gui.util.FxAsync;
 import gui.util.Utils;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -28,7 +28,9 @@ import javafx.scene.control.Label;
 import javafx.scene.control.ListCell;
 import javafx.scene.control.ListView;
 import javafx.scene.control.TextField;
+import javafx.stage.Stage;
 import javafx.util.Callback;
+import metrics.Metrics;
 import model.entities.Department;
 import model.entities.Seller;
 import model.exceptions.ValidationException;
@@ -93,7 +95,9 @@ public class SellerFormController implements Initializable {
     }
 
     public void subscribeDataChangeListener(DataChangeListener listener) {
-        dataChangeListeners.add(listener);
+        if (!dataChangeListeners.contains(listener)) {
+            dataChangeListeners.add(listener);
+        }
     }
 
     @FXML
@@ -104,21 +108,55 @@ public class SellerFormController implements Initializable {
         if (service == null) {
             throw new IllegalStateException("Service was null");
         }
+        long start = System.nanoTime();
         try {
             entity = getFormData();
-            service.saveOrUpdate(entity);
-            notityDataChangeListeners();
-            Utils.currentStage(event).close();
-        } catch (DbException e) {
-            Alerts.showAlerts("Error saving object", null, e.getMessage(), AlertType.ERROR);
         } catch (ValidationException e) {
+            Metrics.counter("ui.sellerForm.validationErrors").increment();
             setErrorMessages(e.getErrors());
+            return;
+        } finally {
+            Metrics.timer("ui.sellerForm.validate").recordSince(start);
         }
+        Stage stage = Utils.currentStage(event);
+        boolean inserting = entity.getId() == null;
+        buttonSave.setDisable(true);
+        long saveStart = System.nanoTime();
+        FxAsync.run(service.saveOrUpdateAsync(entity), null, obj -> {
+            Metrics.timer("ui.sellerForm.save").recordSince(saveStart);
+            notityDataChangeListeners(inserting
+                    ? DataChangeEvent.inserted(obj, obj.getId())
+                    : DataChangeEvent.updated(obj, obj.getId()));
+            stage.close();
+        }, e -> {
+            buttonSave.setDisable(false);
+            if (e instanceof DbConcurrencyException) {
+                Metrics.counter("ui.sellerForm.conflicts").increment();
+                reloadAfterConflict(stage, e.getMessage());
+            } else {
+                Alerts.showAlerts("Error saving object", null, e.getMessage(), AlertType.ERROR);
+            }
+        });
+    }
+
+    private void reloadAfterConflict(Stage stage, String message) {
+        FxAsync.run(service.findByIdAsync(entity.getId()), null, current -> {
+            if (current == null) {
+                Alerts.showAlerts("Seller removed", null, message, AlertType.WARNING);
+                notityDataChangeListeners(DataChangeEvent.deleted(null, entity.getId()));
+                stage.close();
+                return;
+            }
+            entity = current;
+            updateFormData();
+            Alerts.showAlerts("Seller changed", null,
+                    message + ". The form now shows the current data, apply your changes again.", AlertType.WARNING);
+        }, e -> Alerts.showAlerts("Error reloading object", null, e.getMessage(), AlertType.ERROR));
     }
 
-    private void notityDataChangeListeners() {
+    private void notityDataChangeListeners(DataChangeEvent<Seller> event) {
         for (DataChangeListener listener: dataChangeListeners) {
-            listener.onDataChanged();
+            listener.onDataChanged(event);
         }
     }
 
@@ -126,6 +164,7 @@ public class SellerFormController implements Initializable {
         Seller obj = new Seller();
         ValidationException exception = new ValidationException("Validation error");
         obj.setId(Utils.tryParseToInt(textFieldId.getText()));
+        obj.setVersion(entity.getVersion());
         if (textFieldName.getText() == null) {
             exception.addError("name", "Field can't be empty");
         } else {
@@ -168,9 +207,20 @@ public class SellerFormController implements Initializable {
         textFieldEmail.setText(entity.getEmail());
         Locale.setDefault(Locale.US);
         textFieldBaseSalary.setText(String.format("%.2f", entity.getBaseSalary()));
-        if (entity.getBirthDate() != null) {
-            datePickerBirthDate.setValue(LocalDate.ofInstant(entity.getBirthDate().toInstant(), ZoneId.systemDefault()));
-        }
+        datePickerBirthDate.setValue(entity.getBirthDate());
+        selectDepartment();
+        clearErrorMessages();
+        buttonSave.setDisable(false);
+    }
+
+    private void clearErrorMessages() {
+        labelErrorName.setText("");
+        labelErrorEmail.setText("");
+        labelErrorBirthDate.setText("");
+        labelErrorBaseSalary.setText("");
+    }
+
+    private void selectDepartment() {
         if (entity.getDepartment()== null){
             comboBoxDepartment.getSelectionModel().selectFirst();
         } else {
@@ -182,9 +232,11 @@ public class SellerFormController implements Initializable {
         if (departmentService == null) {
             throw new IllegalStateException("DepartmentService was null");
         }
-        List<Department> list = departmentService.findAll();
-        obsList = FXCollections.observableArrayList(list);
-        comboBoxDepartment.setItems(obsList);
+        FxAsync.run(departmentService.findAllAsync(), null, list -> {
+            obsList = FXCollections.observableArrayList(list);
+            comboBoxDepartment.setItems(obsList);
+            selectDepartment();
+        }, e -> Alerts.showAlerts("Error loading departments", null, e.getMessage(), AlertType.ERROR));
     }
     
     private void setErrorMessages(Map<String, String> errors) {
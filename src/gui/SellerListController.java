@@ -2,40 +2,44 @@ package gui;
 
 import java.io.IOException;
 import java.net.URL;
-import java.util.Date;
-import java.util.List;
+import java.time.LocalDate;
 import java.util.Optional;
 import java.util.ResourceBundle;
 
 import application.Main;
-import db.DbIntegrityException;
+import gui.listeners.DataChangeEvent;
 import gui.listeners.DataChangeListener;
 import gui.util.Alerts;
+import gui.util.FxAsync;
+import gui.util.PagedLoader;
 import gui.util.Utils;
+import gui.util.ViewRegistry;
+import javafx.animation.PauseTransition;
 import javafx.beans.property.ReadOnlyObjectWrapper;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
-import javafx.scene.Scene;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
 import javafx.scene.control.cell.PropertyValueFactory;
-import javafx.scene.layout.Pane;
-import javafx.stage.Modality;
 import javafx.stage.Stage;
+import javafx.util.Duration;
+import metrics.Metrics;
+import model.dao.SellerSearchCriteria;
 import model.entities.Seller;
 import model.services.DepartmentService;
 import model.services.SellerService;
 
 public class SellerListController implements Initializable, DataChangeListener {
 
+    private static final int PAGE_SIZE = 100;
+
     private SellerService service;
 
     @FXML
@@ -51,7 +55,7 @@ public class SellerListController implements Initializable, DataChangeListener {
     private TableColumn<Seller, String> tableColumnEmail;
 
     @FXML
-    private TableColumn<Seller, Date> tableColumnBirthDate;
+    private TableColumn<Seller, LocalDate> tableColumnBirthDate;
 
     @FXML
     private TableColumn<Seller, Double> tableColumnBaseSalary;
@@ -62,10 +66,21 @@ public class SellerListController implements Initializable, DataChangeListener {
     @FXML
     private TableColumn<Seller, Seller> tableColumnRemove;
 
-    private ObservableList<Seller> observableList;
+    private PagedLoader<Seller> pagedLoader;
+
+    private SellerSearchCriteria criteria = new SellerSearchCriteria();
+
+    private PauseTransition searchDebounce = new PauseTransition(Duration.millis(300));
+
     @FXML
     private Button buttonNew;
 
+    @FXML
+    private ProgressIndicator progressIndicator;
+
+    @FXML
+    private TextField textFieldSearch;
+
     @FXML
     public void onButtonNewAction(ActionEvent event) {
         Stage parentStage = Utils.currentStage(event);
@@ -80,9 +95,26 @@ public class SellerListController implements Initializable, DataChangeListener {
         tableColumnName.setCellValueFactory(new PropertyValueFactory<>("name"));
         tableColumnEmail.setCellValueFactory(new PropertyValueFactory<>("email"));
         tableColumnBirthDate.setCellValueFactory(new PropertyValueFactory<>("birthDate"));
-        Utils.formatTableColumnDate(tableColumnBirthDate, "dd/MM/yyyy");
+        Utils.formatTableColumnLocalDate(tableColumnBirthDate, "dd/MM/yyyy");
         tableColumnBaseSalary.setCellValueFactory(new PropertyValueFactory<>("baseSalary"));
         Utils.formatTableColumnDouble(tableColumnBaseSalary , 2);
+        searchDebounce.setOnFinished(event -> applySearch(textFieldSearch.getText()));
+        textFieldSearch.textProperty().addListener((obs, oldValue, newValue) -> searchDebounce.playFromStart());
+    }
+
+    private void applySearch(String text) {
+        SellerSearchCriteria newCriteria = new SellerSearchCriteria();
+        if (text != null && !text.trim().isEmpty()) {
+            if (text.contains("@")) {
+                newCriteria.setEmailPrefix(text.trim());
+            } else {
+                newCriteria.setNamePrefix(text.trim());
+            }
+        }
+        criteria = newCriteria;
+        if (pagedLoader != null) {
+            pagedLoader.reset();
+        }
     }
 
     public void setService(SellerService service) {
@@ -98,30 +130,31 @@ public class SellerListController implements Initializable, DataChangeListener {
         if (service == null) {
             throw new IllegalStateException("Service was null");
         }
-        List<Seller> serviceList = service.findAll();
-        observableList = FXCollections.observableArrayList(serviceList);
-        tableViewSeller.setItems(observableList);
-        initEditButtons();
-        initRemoveButtons();
+        if (pagedLoader == null) {
+            pagedLoader = new PagedLoader<>(PAGE_SIZE, progressIndicator,
+                    last -> Metrics.timer(last == null ? "ui.sellerList.firstPage" : "ui.sellerList.nextPage")
+                            .timeAsync(service.searchAsync(criteria, last, PAGE_SIZE)),
+                    e -> Alerts.showAlerts("Error loading data", null, e.getMessage(), AlertType.ERROR));
+            pagedLoader.install(tableViewSeller);
+            initEditButtons();
+            initRemoveButtons();
+        }
+        pagedLoader.reset();
     }
 
      public void createDialogForm(String absoluteName, Stage parentStage, Seller obj) {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource(absoluteName));
-            Pane pane = loader.load();
-            SellerFormController controller = loader.getController();
+            long start = System.nanoTime();
+            ViewRegistry.View<SellerFormController> view =
+                    ViewRegistry.dialog(absoluteName, "Enter Seller data", parentStage);
+            SellerFormController controller = view.getController();
             controller.setSeller(obj);
             controller.setServices(new SellerService(), new DepartmentService());
             controller.loadAssociatedObjects();
             controller.subscribeDataChangeListener(this);
             controller.updateFormData();
-            Stage dialogFormStage = new Stage();
-            dialogFormStage.setTitle("Enter Seller data");
-            dialogFormStage.setScene(new Scene(pane));
-            dialogFormStage.setResizable(false);
-            dialogFormStage.initOwner(parentStage);
-            dialogFormStage.initModality(Modality.WINDOW_MODAL);
-            dialogFormStage.showAndWait();
+            Metrics.timer("ui.sellerForm.open").recordSince(start);
+            view.getStage().showAndWait();
         } catch (IOException e) {
             e.printStackTrace();
             Alerts.showAlerts("IOException", "Error loading view", e.getMessage(), AlertType.ERROR);
@@ -129,8 +162,19 @@ public class SellerListController implements Initializable, DataChangeListener {
     }
 
     @Override
-    public void onDataChanged() {
-        updateTableView();
+    public void onDataChanged(DataChangeEvent<?> event) {
+        if (pagedLoader == null) {
+            return;
+        }
+        if (event.getType() == DataChangeEvent.Type.DELETED) {
+            pagedLoader.removeIf(obj -> obj.getId().equals(event.getId()));
+            return;
+        }
+        if (!criteria.isEmpty() || !(event.getEntity() instanceof Seller)) {
+            pagedLoader.reset();
+            return;
+        }
+        pagedLoader.upsert((Seller) event.getEntity(), SellerService.PAGE_ORDER);
     }
 
     private void initEditButtons() {
@@ -176,12 +220,9 @@ public class SellerListController implements Initializable, DataChangeListener {
             if (service == null) {
                 throw new IllegalStateException("Service was null");
             }
-            try {
-                service.remove(obj);
-                updateTableView();
-            } catch (DbIntegrityException e) {
-                Alerts.showAlerts("Error removing object", null, e.getMessage(), AlertType.ERROR);
-            }
+            FxAsync.run(service.removeAsync(obj), progressIndicator,
+                    x -> onDataChanged(DataChangeEvent.deleted(obj, obj.getId())),
+                    e -> Alerts.showAlerts("Error removing object", null, e.getMessage(), AlertType.ERROR));
         }
     }
 }
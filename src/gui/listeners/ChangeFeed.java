@@ -0,0 +1,100 @@
+package gui.listeners;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import db.DB;
+import db.RowChange;
+import javafx.application.Platform;
+import model.dao.DaoFactory;
+import model.services.DepartmentService;
+import model.services.SellerService;
+
+public class ChangeFeed {
+
+    public static final String SELLER = "seller";
+
+    public static final String DEPARTMENT = "department";
+
+    private static final Map<String, List<DataChangeListener>> listeners = new HashMap<>();
+
+    private static SellerService sellerService;
+
+    private static DepartmentService departmentService;
+
+    public static void start() {
+        DB.getChangePoller().addListener(ChangeFeed::onChanges);
+        DB.getChangePoller().start();
+    }
+
+    public static void subscribe(String table, DataChangeListener listener) {
+        listeners.computeIfAbsent(table, t -> new ArrayList<>()).add(listener);
+    }
+
+    public static void unsubscribeAll() {
+        listeners.clear();
+    }
+
+    private static void onChanges(List<RowChange> changes) {
+        Map<String, List<Integer>> changedIds = new HashMap<>();
+        for (RowChange change : changes) {
+            changedIds.computeIfAbsent(change.getTable(), t -> new ArrayList<>()).add(change.getRowId());
+        }
+        changedIds.forEach(DaoFactory::rowsChanged);
+        Platform.runLater(() -> {
+            for (RowChange change : changes) {
+                dispatch(change);
+            }
+        });
+    }
+
+    private static void dispatch(RowChange change) {
+        if (!listeners.containsKey(change.getTable())) {
+            return;
+        }
+        Integer id = change.getRowId();
+        if (change.getOperation() == RowChange.Operation.DELETE) {
+            notify(change.getTable(), DataChangeEvent.deleted(null, id));
+            return;
+        }
+        CompletableFuture<?> future;
+        if (change.getTable().equals(SELLER)) {
+            if (sellerService == null) {
+                sellerService = new SellerService();
+            }
+            future = sellerService.findChangedAsync(id);
+        } else if (change.getTable().equals(DEPARTMENT)) {
+            if (departmentService == null) {
+                departmentService = new DepartmentService();
+            }
+            future = departmentService.findChangedAsync(id);
+        } else {
+            return;
+        }
+        future.whenComplete((entity, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                return;
+            }
+            if (entity == null) {
+                notify(change.getTable(), DataChangeEvent.deleted(null, id));
+            } else if (change.getOperation() == RowChange.Operation.INSERT) {
+                notify(change.getTable(), DataChangeEvent.inserted(entity, id));
+            } else {
+                notify(change.getTable(), DataChangeEvent.updated(entity, id));
+            }
+        }));
+    }
+
+    private static void notify(String table, DataChangeEvent<?> event) {
+        List<DataChangeListener> subscribed = listeners.get(table);
+        if (subscribed == null) {
+            return;
+        }
+        for (DataChangeListener listener : new ArrayList<>(subscribed)) {
+            listener.onDataChanged(event);
+        }
+    }
+}
@@ -2,5 +2,5 @@ package gui.listeners;
 
 public interface DataChangeListener {
 
-    void onDataChanged();
+    void onDataChanged(DataChangeEvent<?> event);
 }
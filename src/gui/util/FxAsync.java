@@ -0,0 +1,58 @@
+package gui.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+import javafx.application.Platform;
+import javafx.scene.Node;
+
+public class FxAsync {
+
+    public static <T> CompletableFuture<T> run(CompletableFuture<T> future, Node loadingIndicator,
+            Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        setLoading(loadingIndicator, true);
+        future.whenComplete((result, error) -> Platform.runLater(() -> {
+            setLoading(loadingIndicator, false);
+            if (future.isCancelled()) {
+                return;
+            }
+            if (error != null) {
+                onError.accept(unwrap(error));
+            } else {
+                onSuccess.accept(result);
+            }
+        }));
+        return future;
+    }
+
+    /**
+     * Cancels the load and, for futures from ServiceExecutor.supplyAsync,
+     * interrupts the worker running it. A result that was already on its way
+     * to the FX thread can still arrive, so callers that replace a load also
+     * tag each one with a sequence number and ignore the older callbacks.
+     */
+    public static void cancel(CompletableFuture<?> future) {
+        if (future != null && !future.isDone()) {
+            future.cancel(true);
+        }
+    }
+
+    public static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    private static void setLoading(Node loadingIndicator, boolean loading) {
+        if (loadingIndicator == null) {
+            return;
+        }
+        if (Platform.isFxApplicationThread()) {
+            loadingIndicator.setVisible(loading);
+        } else {
+            Platform.runLater(() -> loadingIndicator.setVisible(loading));
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package gui.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.Node;
+import javafx.scene.control.IndexedCell;
+import javafx.scene.control.TableRow;
+import javafx.scene.control.TableView;
+import javafx.scene.control.skin.VirtualFlow;
+
+/**
+ * Loads a table page by page as the user scrolls, keeping at most a fixed
+ * number of rows. When the window is full the rows at the far end are
+ * dropped and fetched again by their keyset cursor if the user scrolls
+ * back to them.
+ */
+public class PagedLoader<T> {
+
+    private final ObservableList<T> items = FXCollections.observableArrayList();
+
+    private final int pageSize;
+
+    private final int maxItems;
+
+    private final Node loadingIndicator;
+
+    private final Consumer<Throwable> onError;
+
+    private Function<T, CompletableFuture<List<T>>> fetcher;
+
+    private TableView<T> tableView;
+
+    private CompletableFuture<List<T>> pending;
+
+    private long loadSequence;
+
+    private boolean exhausted;
+
+    // cursor of each page dropped from the top, oldest first; null for the first page
+    private final List<T> droppedCursors = new ArrayList<>();
+
+    // the row just before items.get(0), or null when the window starts at the first row
+    private T windowCursor;
+
+    public PagedLoader(int pageSize, Node loadingIndicator, Function<T, CompletableFuture<List<T>>> fetcher,
+            Consumer<Throwable> onError) {
+        this(pageSize, pageSize * 10, loadingIndicator, fetcher, onError);
+    }
+
+    public PagedLoader(int pageSize, int maxItems, Node loadingIndicator,
+            Function<T, CompletableFuture<List<T>>> fetcher, Consumer<Throwable> onError) {
+        this.pageSize = pageSize;
+        this.maxItems = Math.max(maxItems, pageSize * 2);
+        this.loadingIndicator = loadingIndicator;
+        this.fetcher = fetcher;
+        this.onError = onError;
+    }
+
+    public ObservableList<T> getItems() {
+        return items;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void install(TableView<T> tableView) {
+        this.tableView = tableView;
+        tableView.setItems(items);
+        tableView.setRowFactory(tv -> new TableRow<T>() {
+            @Override
+            public void updateIndex(int index) {
+                super.updateIndex(index);
+                if (index >= 0 && index >= items.size() - pageSize / 2) {
+                    loadNextPage();
+                } else if (index >= 0 && index < pageSize / 2 && !droppedCursors.isEmpty()) {
+                    loadPreviousPage();
+                }
+            }
+        });
+    }
+
+    public void setFetcher(Function<T, CompletableFuture<List<T>>> fetcher) {
+        this.fetcher = fetcher;
+    }
+
+    public void reset() {
+        FxAsync.cancel(pending);
+        pending = null;
+        loadSequence++;
+        exhausted = false;
+        droppedCursors.clear();
+        windowCursor = null;
+        items.clear();
+        loadNextPage();
+    }
+
+    public void removeIf(Predicate<T> filter) {
+        items.removeIf(filter);
+    }
+
+    public void upsert(T item, Comparator<T> order) {
+        items.remove(item);
+        int index = Collections.binarySearch(items, item, order);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        if (index == items.size() && !exhausted) {
+            return;
+        }
+        if (index == 0 && windowCursor != null) {
+            return;
+        }
+        items.add(index, item);
+    }
+
+    public void loadNextPage() {
+        if (exhausted || isLoading()) {
+            return;
+        }
+        T last = items.isEmpty() ? windowCursor : items.get(items.size() - 1);
+        long sequence = ++loadSequence;
+        pending = FxAsync.run(fetcher.apply(last), loadingIndicator, page -> {
+            if (sequence != loadSequence) {
+                return;
+            }
+            if (page.size() < pageSize) {
+                exhausted = true;
+            }
+            int excess = items.size() + page.size() - maxItems;
+            if (excess > 0) {
+                int dropped = Math.min(items.size(), (excess + pageSize - 1) / pageSize * pageSize);
+                for (int i = 0; i < dropped; i += pageSize) {
+                    droppedCursors.add(windowCursor);
+                    windowCursor = items.get(Math.min(i + pageSize, dropped) - 1);
+                }
+                shiftView(-dropped);
+                items.remove(0, dropped);
+            }
+            items.addAll(page);
+        }, onLoadError(sequence));
+    }
+
+    private void loadPreviousPage() {
+        if (droppedCursors.isEmpty() || isLoading()) {
+            return;
+        }
+        T cursor = droppedCursors.get(droppedCursors.size() - 1);
+        long sequence = ++loadSequence;
+        pending = FxAsync.run(fetcher.apply(cursor), loadingIndicator, page -> {
+            if (sequence != loadSequence) {
+                return;
+            }
+            droppedCursors.remove(droppedCursors.size() - 1);
+            windowCursor = cursor;
+            // rows deleted since the page was dropped would pull rows of the window into it
+            Set<T> shown = new HashSet<>(items);
+            List<T> rows = new ArrayList<>(page.size());
+            for (T row : page) {
+                if (!shown.contains(row)) {
+                    rows.add(row);
+                }
+            }
+            shiftView(rows.size());
+            items.addAll(0, rows);
+            if (items.size() > maxItems) {
+                items.remove(maxItems, items.size());
+                exhausted = false;
+            }
+        }, onLoadError(sequence));
+    }
+
+    private boolean isLoading() {
+        return pending != null && !pending.isDone();
+    }
+
+    private Consumer<Throwable> onLoadError(long sequence) {
+        return e -> {
+            if (sequence == loadSequence) {
+                onError.accept(e);
+            }
+        };
+    }
+
+    /**
+     * Keeps the same rows on screen when rows are added or removed above
+     * them.
+     */
+    private void shiftView(int rows) {
+        if (tableView == null) {
+            return;
+        }
+        VirtualFlow<?> flow = (VirtualFlow<?>) tableView.lookup(".virtual-flow");
+        IndexedCell<?> first = flow == null ? null : flow.getFirstVisibleCell();
+        if (first != null) {
+            flow.scrollToTop(Math.max(0, first.getIndex() + rows));
+        }
+    }
+}
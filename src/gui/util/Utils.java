@@ -46,6 +46,25 @@ public class Utils {
         });
     }
 
+    public static <T> void formatTableColumnLocalDate(TableColumn<T, LocalDate> tableColumn, String format) {
+        tableColumn.setCellFactory(column -> {
+            TableCell<T, LocalDate> cell = new TableCell<T, LocalDate>() {
+                private DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern(format);
+
+                @Override
+                protected void updateItem(LocalDate item, boolean empty) {
+                    super.updateItem(item, empty);
+                    if (empty || item == null) {
+                        setText(null);
+                    } else {
+                        setText(dateFormat.format(item));
+                    }
+                }
+            };
+            return cell;
+        });
+    }
+
     public static <T> void formatTableColumnDouble(TableColumn<T, Double> tableColumn, int decimalPlaces) {
         tableColumn.setCellFactory(column -> {
             TableCell<T, Double> cell = new TableCell<T, Double>() {
@@ -0,0 +1,140 @@
+package gui.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+import metrics.Metrics;
+
+/**
+ * Parses each FXML file once and hands out the same nodes and controller
+ * afterwards. Dialogs also keep their stage, so reopening a form only
+ * refreshes its data. All methods must be called on the FX thread.
+ */
+public class ViewRegistry {
+
+    private static final Logger LOG = Logger.getLogger(ViewRegistry.class.getName());
+
+    private static final Map<String, View<?>> views = new HashMap<>();
+
+    @SuppressWarnings("unchecked")
+    public static <T> View<T> get(String absoluteName) throws IOException {
+        View<?> view = views.get(absoluteName);
+        if (view == null) {
+            long start = System.nanoTime();
+            FXMLLoader loader = new FXMLLoader(ViewRegistry.class.getResource(absoluteName));
+            Parent root = loader.load();
+            long elapsed = System.nanoTime() - start;
+            Metrics.timer("ui.fxml.load." + shortName(absoluteName)).record(elapsed);
+            long loadMillis = elapsed / 1_000_000;
+            view = new View<>(root, loader.getController(), loadMillis);
+            views.put(absoluteName, view);
+            LOG.info(() -> "Loaded " + absoluteName + " in " + loadMillis + " ms");
+        }
+        return (View<T>) view;
+    }
+
+    /**
+     * "/gui/SellerList.fxml" becomes "SellerList", for use in metric names.
+     */
+    public static String shortName(String absoluteName) {
+        String name = absoluteName.substring(absoluteName.lastIndexOf('/') + 1);
+        return name.endsWith(".fxml") ? name.substring(0, name.length() - ".fxml".length()) : name;
+    }
+
+    public static <T> View<T> dialog(String absoluteName, String title, Window owner) throws IOException {
+        View<T> view = get(absoluteName);
+        if (view.stage == null) {
+            Stage stage = new Stage();
+            stage.setTitle(title);
+            stage.setScene(new Scene(view.root));
+            stage.setResizable(false);
+            stage.initOwner(owner);
+            stage.initModality(Modality.WINDOW_MODAL);
+            view.stage = stage;
+        }
+        return view;
+    }
+
+    /**
+     * Parses the given views one per pulse, so the window stays responsive
+     * while the first screens are being prepared in the background.
+     */
+    public static void preloadLater(String... absoluteNames) {
+        List<String> pending = new ArrayList<>();
+        Collections.addAll(pending, absoluteNames);
+        preloadNext(pending);
+    }
+
+    private static void preloadNext(List<String> pending) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Platform.runLater(() -> {
+            String absoluteName = pending.remove(0);
+            try {
+                get(absoluteName);
+            } catch (IOException | RuntimeException e) {
+                LOG.log(Level.WARNING, "Could not preload " + absoluteName, e);
+            }
+            preloadNext(pending);
+        });
+    }
+
+    public static class View<T> {
+
+        private final Parent root;
+
+        private final T controller;
+
+        private final List<Node> nodes;
+
+        private final long loadMillis;
+
+        private Stage stage;
+
+        private View(Parent root, T controller, long loadMillis) {
+            this.root = root;
+            this.controller = controller;
+            this.nodes = new ArrayList<>(root.getChildrenUnmodifiable());
+            this.loadMillis = loadMillis;
+        }
+
+        public Parent getRoot() {
+            return root;
+        }
+
+        public T getController() {
+            return controller;
+        }
+
+        /**
+         * Top-level children as parsed, kept so they can be moved into
+         * another container and back without parsing the file again.
+         */
+        public List<Node> getNodes() {
+            return nodes;
+        }
+
+        public long getLoadMillis() {
+            return loadMillis;
+        }
+
+        public Stage getStage() {
+            return stage;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package metrics;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Appends the registry to a local file at a fixed interval, one
+ * tab-separated line per metric prefixed with the timestamp. Enabled with
+ * -Dapp.metrics.file=path; the interval defaults to 60 seconds and can be
+ * changed with -Dapp.metrics.fileIntervalSeconds.
+ */
+public class FileMetricsSink {
+
+    private static final Logger LOG = Logger.getLogger(FileMetricsSink.class.getName());
+
+    private static FileMetricsSink sink;
+
+    private final Path file;
+
+    private final ScheduledExecutorService scheduler;
+
+    private FileMetricsSink(Path file, long intervalSeconds) {
+        this.file = file;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-file-sink");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public static synchronized void startFromSystemProperties() {
+        String path = System.getProperty("app.metrics.file");
+        if (sink != null || path == null || path.trim().isEmpty()) {
+            return;
+        }
+        long interval = Math.max(1, Long.getLong("app.metrics.fileIntervalSeconds", 60));
+        sink = new FileMetricsSink(Paths.get(path.trim()), interval);
+        LOG.info("Writing metrics to " + sink.file + " every " + interval + " s");
+    }
+
+    /**
+     * Writes a last sample and stops the sink, if one was started.
+     */
+    public static synchronized void stop() {
+        if (sink != null) {
+            sink.scheduler.shutdownNow();
+            sink.flush();
+            sink = null;
+        }
+    }
+
+    private synchronized void flush() {
+        String now = Instant.now().toString();
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND)) {
+            for (MetricSnapshot s : Metrics.get().getMetrics()) {
+                out.write(String.join("\t", now, s.getType(), s.getName(), Long.toString(s.getCount()),
+                        format(s.getMean()), format(s.getP50()), format(s.getP90()), format(s.getP99()),
+                        format(s.getMax())));
+                out.newLine();
+            }
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Could not write metrics to " + file, e);
+        }
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+}
@@ -0,0 +1,99 @@
+package metrics;
+
+/**
+ * Point-in-time values of one metric. Timer values are in milliseconds,
+ * histogram values in the unit they were recorded in, and counters only
+ * fill in the count.
+ */
+public class MetricSnapshot {
+
+    private final String name;
+
+    private final String type;
+
+    private final long count;
+
+    private final double mean;
+
+    private final double p50;
+
+    private final double p90;
+
+    private final double p99;
+
+    private final double max;
+
+    public MetricSnapshot(String name, String type, long count, double mean, double p50, double p90, double p99,
+            double max) {
+        this.name = name;
+        this.type = type;
+        this.count = count;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.max = max;
+    }
+
+    static MetricSnapshot of(String name, Counter counter) {
+        return new MetricSnapshot(name, "counter", counter.getCount(), 0, 0, 0, 0, 0);
+    }
+
+    static MetricSnapshot of(String name, Histogram histogram) {
+        return new MetricSnapshot(name, "histogram", histogram.getCount(), histogram.getMean(),
+                histogram.getPercentile(0.50), histogram.getPercentile(0.90), histogram.getPercentile(0.99),
+                histogram.getMax());
+    }
+
+    static MetricSnapshot of(String name, Timer timer) {
+        Histogram h = timer.getHistogram();
+        return new MetricSnapshot(name, "timer", h.getCount(), millis(h.getMean()),
+                millis(h.getPercentile(0.50)), millis(h.getPercentile(0.90)), millis(h.getPercentile(0.99)),
+                millis(h.getMax()));
+    }
+
+    private static double millis(double nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getP50() {
+        return p50;
+    }
+
+    public double getP90() {
+        return p90;
+    }
+
+    public double getP99() {
+        return p99;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        if (type.equals("counter")) {
+            return String.format("%-9s %8d %53s  %s", type, count, "", name);
+        }
+        return String.format("%-9s %8d %9.2f %9.2f %9.2f %9.2f %9.2f  %s", type, count, mean, p50, p90, p99, max,
+                name);
+    }
+}
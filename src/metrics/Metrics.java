@@ -0,0 +1,101 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * In-process registry of named counters, timers and histograms. Metrics are
+ * created on first use and live for the whole run; the registry is exported
+ * as "app:type=Metrics" and can also be appended to a local file, see
+ * {@link FileMetricsSink}.
+ */
+public class Metrics implements MetricsMXBean {
+
+    private static final Logger LOG = Logger.getLogger(Metrics.class.getName());
+
+    private static final String OBJECT_NAME = "app:type=Metrics";
+
+    private static final Metrics registry = new Metrics();
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    static {
+        registry.register();
+    }
+
+    private Metrics() {
+    }
+
+    public static Metrics get() {
+        return registry;
+    }
+
+    public static Counter counter(String name) {
+        return registry.counters.computeIfAbsent(name, k -> new Counter());
+    }
+
+    public static Timer timer(String name) {
+        return registry.timers.computeIfAbsent(name, k -> new Timer());
+    }
+
+    public static Histogram histogram(String name) {
+        return registry.histograms.computeIfAbsent(name, k -> new Histogram());
+    }
+
+    private void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(this, objectName);
+        } catch (JMException e) {
+            LOG.log(Level.WARNING, "Could not register " + OBJECT_NAME, e);
+        }
+    }
+
+    /**
+     * All metrics that have been recorded at least once, ordered by name.
+     */
+    @Override
+    public List<MetricSnapshot> getMetrics() {
+        List<MetricSnapshot> list = new ArrayList<>();
+        counters.forEach((name, counter) -> list.add(MetricSnapshot.of(name, counter)));
+        timers.forEach((name, timer) -> list.add(MetricSnapshot.of(name, timer)));
+        histograms.forEach((name, histogram) -> list.add(MetricSnapshot.of(name, histogram)));
+        list.removeIf(s -> s.getCount() == 0);
+        list.sort(Comparator.comparing(MetricSnapshot::getName));
+        return list;
+    }
+
+    @Override
+    public void reset() {
+        counters.values().forEach(Counter::reset);
+        timers.values().forEach(Timer::reset);
+        histograms.values().forEach(Histogram::reset);
+    }
+
+    public String report() {
+        StringBuilder sb = new StringBuilder(String.format("%-9s %8s %9s %9s %9s %9s %9s  %s%n", "type", "count",
+                "mean", "p50", "p90", "p99", "max", "name"));
+        for (MetricSnapshot snapshot : getMetrics()) {
+            sb.append(snapshot).append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,10 @@
+package metrics;
+
+import java.util.List;
+
+public interface MetricsMXBean {
+
+    List<MetricSnapshot> getMetrics();
+
+    void reset();
+}
@@ -0,0 +1,56 @@
+package metrics;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Histogram of durations in nanoseconds.
+ */
+public class Timer {
+
+    private final Histogram histogram = new Histogram();
+
+    public void record(long nanos) {
+        histogram.record(nanos);
+    }
+
+    public void recordSince(long startNanos) {
+        histogram.record(System.nanoTime() - startNanos);
+    }
+
+    public void time(Runnable action) {
+        long start = System.nanoTime();
+        try {
+            action.run();
+        } finally {
+            recordSince(start);
+        }
+    }
+
+    public <T> T time(Supplier<T> action) {
+        long start = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            recordSince(start);
+        }
+    }
+
+    /**
+     * Records the time from now until the future completes, successfully or
+     * not, and returns the same future.
+     */
+    public <T> CompletableFuture<T> timeAsync(CompletableFuture<T> future) {
+        long start = System.nanoTime();
+        future.whenComplete((result, error) -> recordSince(start));
+        return future;
+    }
+
+    public Histogram getHistogram() {
+        return histogram;
+    }
+
+    void reset() {
+        histogram.reset();
+    }
+}
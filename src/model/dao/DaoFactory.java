@@ -1,17 +1,107 @@
 package model.dao;
 
+import java.util.Collection;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
 import db.DB;
-import model.dao.impl.DepartmentDaoJDBC;
-import model.dao.impl.SellerDaoJDBC;
+import db.DbException;
+import model.dao.impl.CachingDepartmentStatsDao;
+import model.dao.impl.JdbcDaoProvider;
+import model.dao.impl.MemoryDaoProvider;
+import model.dao.impl.OfflineDaoProvider;
 
 public class DaoFactory {
-    
+
+    private static final DaoProvider provider = createProvider(configuration());
+
+    private static final CachingDepartmentStatsDao departmentStatsDao =
+            new CachingDepartmentStatsDao(provider.createDepartmentStatsDao(), TimeUnit.MINUTES.toMillis(1));
+
+    /**
+     * db.properties overlaid with any dao.*, memory.* and offline.* system
+     * properties, so tests and offline launches can pick a backend without a
+     * properties file.
+     */
+    private static Properties configuration() {
+        Properties props = new Properties();
+        try {
+            props.putAll(DB.loadProperties());
+        } catch (DbException e) {
+            // no db.properties: defaults and system properties only
+        }
+        for (String key : System.getProperties().stringPropertyNames()) {
+            if (key.startsWith("dao.") || key.startsWith("memory.") || key.startsWith("offline.")) {
+                props.setProperty(key, System.getProperty(key));
+            }
+        }
+        return props;
+    }
+
+    private static DaoProvider createProvider(Properties props) {
+        String name = props.getProperty("dao.provider", "jdbc").trim();
+        switch (name) {
+            case "jdbc":
+                return JdbcDaoProvider.fromProperties(props);
+            case "memory":
+                return MemoryDaoProvider.fromProperties(props);
+            case "offline":
+                return OfflineDaoProvider.fromProperties(props);
+            default:
+                try {
+                    return (DaoProvider) Class.forName(name).getDeclaredConstructor().newInstance();
+                } catch (ReflectiveOperationException | ClassCastException e) {
+                    throw new DbException("Invalid value for dao.provider: " + name);
+                }
+        }
+    }
+
+    public static DaoProvider getProvider() {
+        return provider;
+    }
+
     public static SellerDao createSellerDao() {
-        return new SellerDaoJDBC(DB.getConnection());
+        return provider.createSellerDao();
     }
 
 
     public static DepartmentDao createDepartmentDao() {
-        return new DepartmentDaoJDBC(DB.getConnection());
+        return provider.createDepartmentDao();
+    }
+
+    public static DepartmentStatsDao createDepartmentStatsDao() {
+        return departmentStatsDao;
+    }
+
+    public static CachingDepartmentStatsDao getDepartmentStatsCache() {
+        return departmentStatsDao;
+    }
+
+    public static void invalidateCaches() {
+        provider.invalidateCaches();
+    }
+
+    public static void rowsChanged(String table, Collection<Integer> ids) {
+        provider.rowsChanged(table, ids);
+    }
+
+    public static void inTransaction(Runnable work) {
+        inTransaction(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public static <T> T inTransaction(Supplier<T> work) {
+        return provider.inTransaction(work);
+    }
+
+    public static boolean usesDatabase() {
+        return provider.usesDatabase();
+    }
+
+    public static void close() {
+        provider.close();
     }
 }
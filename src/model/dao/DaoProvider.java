@@ -0,0 +1,41 @@
+package model.dao;
+
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/**
+ * A persistence backend. {@link DaoFactory} picks one at startup from the
+ * dao.provider setting: "jdbc" (the default), "memory", or the class name
+ * of another implementation with a public no-argument constructor.
+ */
+public interface DaoProvider {
+
+    SellerDao createSellerDao();
+
+    DepartmentDao createDepartmentDao();
+
+    DepartmentStatsDao createDepartmentStatsDao();
+
+    /**
+     * Runs the work atomically: either all of its writes are kept or, when
+     * it throws, none of them are.
+     */
+    <T> T inTransaction(Supplier<T> work);
+
+    void invalidateCaches();
+
+    /**
+     * Told about rows another client changed, by table name as in the
+     * change_log ("seller" or "department"), so cached copies of just those
+     * rows can be brought up to date.
+     */
+    void rowsChanged(String table, Collection<Integer> ids);
+
+    /**
+     * Whether this backend talks to the database configured by dburl, and
+     * so needs the connection pool and the change poller.
+     */
+    boolean usesDatabase();
+
+    void close();
+}
@@ -1,5 +1,6 @@
 package model.dao;
 
+import java.util.Collection;
 import java.util.List;
 
 import model.entities.Department;
@@ -12,6 +13,8 @@ public interface DepartmentDao {
 
     Department findById(Integer id);
 
+    List<Department> findByIds(Collection<Integer> ids);
+
     List<Department> findAll();
 
     void deleteById(Integer id);
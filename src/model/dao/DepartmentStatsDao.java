@@ -0,0 +1,10 @@
+package model.dao;
+
+import java.util.List;
+
+import model.entities.DepartmentStats;
+
+public interface DepartmentStatsDao {
+
+    List<DepartmentStats> findAll();
+}
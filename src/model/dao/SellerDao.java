@@ -1,6 +1,8 @@
 package model.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 import model.entities.Department;
 import model.entities.Seller;
@@ -11,12 +13,24 @@ public interface SellerDao {
 
     void update(Seller obj);
 
+    List<Integer> insertAll(Collection<Seller> sellers, int chunkSize);
+
+    int updateAll(Collection<Seller> sellers, int chunkSize);
+
     Seller findById(Integer id);
 
+    List<Seller> findByIds(Collection<Integer> ids);
+
     List<Seller> findAll();
 
     List<Seller> findByDepartment(Department department);
 
+    long streamAll(Consumer<Seller> action);
+
+    List<Seller> findPage(String afterName, Integer afterId, int limit);
+
+    List<Seller> search(SellerSearchCriteria criteria, String afterName, Integer afterId, int limit);
+
     void deleteById(Integer id);
 
 }
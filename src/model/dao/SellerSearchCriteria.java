@@ -0,0 +1,101 @@
+package model.dao;
+
+import java.time.LocalDate;
+
+import model.entities.Department;
+
+public class SellerSearchCriteria {
+
+    private String namePrefix;
+
+    private String emailPrefix;
+
+    private Department department;
+
+    private Double minBaseSalary;
+
+    private Double maxBaseSalary;
+
+    private LocalDate birthDateFrom;
+
+    private LocalDate birthDateTo;
+
+    public String getNamePrefix() {
+        return namePrefix;
+    }
+
+    public SellerSearchCriteria setNamePrefix(String namePrefix) {
+        this.namePrefix = namePrefix;
+        return this;
+    }
+
+    public String getEmailPrefix() {
+        return emailPrefix;
+    }
+
+    public SellerSearchCriteria setEmailPrefix(String emailPrefix) {
+        this.emailPrefix = emailPrefix;
+        return this;
+    }
+
+    public Department getDepartment() {
+        return department;
+    }
+
+    public SellerSearchCriteria setDepartment(Department department) {
+        this.department = department;
+        return this;
+    }
+
+    public Double getMinBaseSalary() {
+        return minBaseSalary;
+    }
+
+    public SellerSearchCriteria setMinBaseSalary(Double minBaseSalary) {
+        this.minBaseSalary = minBaseSalary;
+        return this;
+    }
+
+    public Double getMaxBaseSalary() {
+        return maxBaseSalary;
+    }
+
+    public SellerSearchCriteria setMaxBaseSalary(Double maxBaseSalary) {
+        this.maxBaseSalary = maxBaseSalary;
+        return this;
+    }
+
+    public LocalDate getBirthDateFrom() {
+        return birthDateFrom;
+    }
+
+    public SellerSearchCriteria setBirthDateFrom(LocalDate birthDateFrom) {
+        this.birthDateFrom = birthDateFrom;
+        return this;
+    }
+
+    public LocalDate getBirthDateTo() {
+        return birthDateTo;
+    }
+
+    public SellerSearchCriteria setBirthDateTo(LocalDate birthDateTo) {
+        this.birthDateTo = birthDateTo;
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return isBlank(namePrefix) && isBlank(emailPrefix) && department == null && minBaseSalary == null
+                && maxBaseSalary == null && birthDateFrom == null && birthDateTo == null;
+    }
+
+    private static boolean isBlank(String str) {
+        return str == null || str.trim().isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "SellerSearchCriteria [namePrefix=" + namePrefix + ", emailPrefix=" + emailPrefix + ", department="
+                + department + ", minBaseSalary=" + minBaseSalary + ", maxBaseSalary=" + maxBaseSalary
+                + ", birthDateFrom=" + birthDateFrom + ", birthDateTo=" + birthDateTo + "]";
+    }
+}
@@ -0,0 +1,236 @@
+package model.dao.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import db.TransactionManager;
+import model.dao.DepartmentDao;
+import model.entities.Department;
+
+public class CachingDepartmentDao implements DepartmentDao {
+
+    private final DepartmentDao delegate;
+
+    private final int maxSize;
+
+    private final long ttlMillis;
+
+    private final Map<Integer, Entry> entries;
+
+    private List<Department> all;
+
+    private long allLoadedAt;
+
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    public CachingDepartmentDao(DepartmentDao delegate, int maxSize, long ttlMillis) {
+        this.delegate = delegate;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<Integer, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                return size() > CachingDepartmentDao.this.maxSize;
+            }
+        };
+    }
+
+    @Override
+    public void insert(Department obj) {
+        delegate.insert(obj);
+        invalidateAfterWrite();
+    }
+
+    @Override
+    public void update(Department obj) {
+        try {
+            delegate.update(obj);
+        } finally {
+            invalidateAfterWrite();
+        }
+    }
+
+    @Override
+    public Department findById(Integer id) {
+        long gen;
+        synchronized (this) {
+            Entry entry = entries.get(id);
+            if (entry != null && !isExpired(entry.loadedAt)) {
+                hits.incrementAndGet();
+                return entry.department;
+            }
+            gen = generation;
+        }
+        misses.incrementAndGet();
+        Department obj = delegate.findById(id);
+        if (obj != null) {
+            synchronized (this) {
+                if (gen == generation) {
+                    entries.put(id, new Entry(obj));
+                }
+            }
+        }
+        return obj;
+    }
+
+    @Override
+    public List<Department> findByIds(Collection<Integer> ids) {
+        Map<Integer, Department> found = new TreeMap<>();
+        List<Integer> missing = new ArrayList<>();
+        long gen;
+        synchronized (this) {
+            for (Integer id : new TreeSet<>(ids)) {
+                Entry entry = entries.get(id);
+                if (entry != null && !isExpired(entry.loadedAt)) {
+                    hits.incrementAndGet();
+                    found.put(id, entry.department);
+                } else {
+                    missing.add(id);
+                }
+            }
+            gen = generation;
+        }
+        if (!missing.isEmpty()) {
+            misses.addAndGet(missing.size());
+            List<Department> loaded = delegate.findByIds(missing);
+            synchronized (this) {
+                for (Department obj : loaded) {
+                    if (gen == generation) {
+                        entries.put(obj.getId(), new Entry(obj));
+                    }
+                    found.put(obj.getId(), obj);
+                }
+            }
+        }
+        return new ArrayList<>(found.values());
+    }
+
+    @Override
+    public List<Department> findAll() {
+        long gen;
+        synchronized (this) {
+            if (all != null && !isExpired(allLoadedAt)) {
+                hits.incrementAndGet();
+                return new ArrayList<>(all);
+            }
+            gen = generation;
+        }
+        misses.incrementAndGet();
+        List<Department> list = delegate.findAll();
+        synchronized (this) {
+            if (gen == generation) {
+                List<Department> shared = new ArrayList<>(list.size());
+                for (Department obj : list) {
+                    Entry entry = entries.get(obj.getId());
+                    if (entry == null || isExpired(entry.loadedAt) || !sameRow(entry.department, obj)) {
+                        entry = new Entry(obj);
+                        entries.put(obj.getId(), entry);
+                    }
+                    shared.add(entry.department);
+                }
+                all = shared;
+                allLoadedAt = System.currentTimeMillis();
+                return new ArrayList<>(shared);
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void deleteById(Integer id) {
+        delegate.deleteById(id);
+        invalidateAfterWrite();
+    }
+
+    public synchronized Department intern(int id, String name, int version) {
+        Entry entry = entries.get(id);
+        if (entry != null && !isExpired(entry.loadedAt) && name != null && name.equals(entry.department.getName())
+                && Integer.valueOf(version).equals(entry.department.getVersion())) {
+            hits.incrementAndGet();
+            return entry.department;
+        }
+        misses.incrementAndGet();
+        if (entry != null) {
+            all = null;
+        }
+        Department obj = new Department(id, name, version);
+        entries.put(id, new Entry(obj));
+        return obj;
+    }
+
+    /**
+     * Invalidates now and, inside a transaction, again once it has committed
+     * or rolled back: rows cached in between may be uncommitted or may have
+     * been read by another thread before the commit.
+     */
+    private void invalidateAfterWrite() {
+        invalidate();
+        if (TransactionManager.isActive()) {
+            TransactionManager.afterCompletion(this::invalidate);
+        }
+    }
+
+    public synchronized void invalidate() {
+        generation++;
+        entries.clear();
+        all = null;
+    }
+
+    /**
+     * Changes every time the cache is invalidated, so callers holding data
+     * derived from departments can tell when it went stale.
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public double getHitRatio() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private boolean isExpired(long loadedAt) {
+        return System.currentTimeMillis() - loadedAt > ttlMillis;
+    }
+
+    private static boolean sameRow(Department a, Department b) {
+        return Objects.equals(a.getName(), b.getName()) && Objects.equals(a.getVersion(), b.getVersion());
+    }
+
+    private static class Entry {
+
+        private final Department department;
+
+        private final long loadedAt = System.currentTimeMillis();
+
+        Entry(Department department) {
+            this.department = department;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package model.dao.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import model.dao.DepartmentStatsDao;
+import model.entities.DepartmentStats;
+
+public class CachingDepartmentStatsDao implements DepartmentStatsDao {
+
+    private final DepartmentStatsDao delegate;
+
+    private final long refreshIntervalMillis;
+
+    private List<DepartmentStats> stats;
+
+    private long loadedAt;
+
+    private long generation;
+
+    public CachingDepartmentStatsDao(DepartmentStatsDao delegate, long refreshIntervalMillis) {
+        this.delegate = delegate;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+    }
+
+    @Override
+    public List<DepartmentStats> findAll() {
+        long gen;
+        synchronized (this) {
+            if (stats != null && System.currentTimeMillis() - loadedAt <= refreshIntervalMillis) {
+                return new ArrayList<>(stats);
+            }
+            gen = generation;
+        }
+        List<DepartmentStats> list = delegate.findAll();
+        synchronized (this) {
+            if (gen == generation) {
+                stats = list;
+                loadedAt = System.currentTimeMillis();
+            }
+        }
+        return new ArrayList<>(list);
+    }
+
+    public synchronized void invalidate() {
+        generation++;
+        stats = null;
+    }
+
+    public synchronized long getLoadedAt() {
+        return stats == null ? 0 : loadedAt;
+    }
+
+    public long getRefreshIntervalMillis() {
+        return refreshIntervalMillis;
+    }
+}
@@ -6,120 +6,257 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import db.DB;
+import db.DbConcurrencyException;
 import db.DbException;
 import db.DbIntegrityException;
+import db.RowMapper;
 import model.dao.DepartmentDao;
 import model.entities.Department;
 
 public class DepartmentDaoJDBC implements DepartmentDao {
 
-    private Connection conn;
-
-    public DepartmentDaoJDBC(Connection conn) {
-        this.conn = conn;
-    }
-
     @Override
     public void insert(Department obj) {
+        insert(obj, null);
+    }
+
+    /**
+     * Inserts the row tagged with a client key; see SellerDaoJDBC.
+     */
+    void insert(Department obj, String clientKey) {
+        Connection conn = null;
         PreparedStatement st = null;
         try {
-            st = conn.prepareStatement("INSERT INTO department " +
-                "(Name) VALUES " + 
-                "(?)",
-                Statement.RETURN_GENERATED_KEYS);
+            conn = DB.getConnection();
+            if (clientKey == null) {
+                st = conn.prepareStatement("INSERT INTO department " +
+                    "(Name) VALUES " + 
+                    "(?)",
+                    Statement.RETURN_GENERATED_KEYS);
+            } else {
+                st = conn.prepareStatement("INSERT INTO department " +
+                    "(Name, ClientKey) VALUES " +
+                    "(?, ?)",
+                    Statement.RETURN_GENERATED_KEYS);
+                st.setString(2, clientKey);
+            }
             st.setString(1, obj.getName());
             int rowsAffected = st.executeUpdate();
             if (rowsAffected > 0) {
-                ResultSet rs = st.getGeneratedKeys();
-                if (rs.next()) {
-                    obj.setId(rs.getInt(1));
+                try (ResultSet rs = st.getGeneratedKeys()) {
+                    if (rs.next()) {
+                        obj.setId(rs.getInt(1));
+                    }
                 }
             }
+            obj.setVersion(0);
         } catch (SQLException e) {
             throw new DbException("Unexpected error! No rows affected!");
         } finally {
+            DB.markWritten();
             DB.closeStatement(st);
+            DB.closeConnection(conn);
+        }
+    }
+
+    Integer findIdByClientKey(String clientKey) {
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+        try {
+            // the primary: a replica may not have the row yet
+            conn = DB.getConnection();
+            st = conn.prepareStatement("SELECT Id FROM department WHERE ClientKey = ?");
+            st.setString(1, clientKey);
+            rs = st.executeQuery();
+            return rs.next() ? rs.getInt(1) : null;
+        } catch (SQLException e) {
+            throw new DbException(e.getMessage());
+        } finally {
+            DB.closeResultSet(rs);
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
         }
     }
 
     @Override
     public void update(Department obj) {
+        if (obj.getVersion() == null) {
+            // never read from the database: a programming error, not a concurrent change
+            throw new IllegalArgumentException("Department " + obj.getId() + " has no version to check");
+        }
+        Connection conn = null;
         PreparedStatement st = null;
         try {
+            conn = DB.getConnection();
             st = conn.prepareStatement("UPDATE department " +
-            "SET Name = ? " +
-            "WHERE Id = ?");
+            "SET Name = ?, Version = Version + 1 " +
+            "WHERE Id = ? AND Version = ?");
             st.setString(1, obj.getName());
             st.setInt(2, obj.getId());
-            st.executeUpdate();
+            st.setInt(3, obj.getVersion());
+            if (st.executeUpdate() == 0) {
+                throw new DbConcurrencyException("Department " + obj.getId()
+                        + " was changed or removed by another user");
+            }
+            obj.setVersion(obj.getVersion() + 1);
         } catch (SQLException e) {
             throw new DbException(e.getMessage());
         } finally {
+            DB.markWritten();
             DB.closeStatement(st);
+            DB.closeConnection(conn);
         }
     }
 
+    private RowMapper<Department> departmentMapper(ResultSet rs) throws SQLException {
+        int[] col = DB.columnIndexes(rs, "Id", "Name", "Version");
+        return row -> new Department(row.getInt(col[0]), row.getString(col[1]), row.getInt(col[2]));
+    }
+
     @Override
     public Department findById(Integer id) {
+        Connection conn = null;
         PreparedStatement st = null;
         ResultSet rs = null;
         try {
+            conn = DB.getReadConnection();
             st = conn.prepareStatement("SELECT * FROM department WHERE Id = ?");
             st.setInt(1, id);
             rs = st.executeQuery();
             if (rs.next()) {
-                Department obj = new Department();
-                obj.setId(rs.getInt("Id"));
-                obj.setName(rs.getString("Name"));
-                return obj;
+                return departmentMapper(rs).mapRow(rs);
             }
             return null;
         } catch (SQLException e) {
             throw new DbException(e.getMessage());
         } finally {
+            DB.closeResultSet(rs);
             DB.closeStatement(st);
+            DB.closeConnection(conn);
+        }
+    }
+
+    @Override
+    public List<Department> findByIds(Collection<Integer> ids) {
+        List<Integer> sorted = DB.distinctIds(ids);
+        List<Department> list = new ArrayList<>(sorted.size());
+        if (sorted.isEmpty()) {
+            return list;
+        }
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+        try {
+            conn = DB.getReadConnection();
+            int preparedSize = 0;
+            for (int from = 0; from < sorted.size(); from += DB.IN_LIST_SIZE) {
+                List<Integer> chunk = sorted.subList(from, Math.min(from + DB.IN_LIST_SIZE, sorted.size()));
+                int size = DB.inListSize(chunk.size());
+                if (size != preparedSize) {
+                    DB.closeStatement(st);
+                    st = conn.prepareStatement("SELECT * FROM department WHERE Id IN ("
+                            + DB.placeholders(size) + ") ORDER BY Id");
+                    preparedSize = size;
+                }
+                for (int i = 0; i < size; i++) {
+                    st.setInt(i + 1, chunk.get(Math.min(i, chunk.size() - 1)));
+                }
+                rs = st.executeQuery();
+                RowMapper<Department> mapper = departmentMapper(rs);
+                while (rs.next()) {
+                    list.add(mapper.mapRow(rs));
+                }
+                DB.closeResultSet(rs);
+                rs = null;
+            }
+            return list;
+        } catch (SQLException e) {
+            throw new DbException(e.getMessage());
+        } finally {
             DB.closeResultSet(rs);
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
         }
     }
 
     @Override
     public List<Department> findAll() {
         List<Department> list = new ArrayList<>();
+        Connection conn = null;
         PreparedStatement st = null;
         ResultSet rs = null;
         try {
+            conn = DB.getReadConnection();
             st = conn.prepareStatement("SELECT * FROM department");
             rs = st.executeQuery();
+            RowMapper<Department> mapper = departmentMapper(rs);
             while (rs.next()) {
-                Department obj = new Department();
-                obj.setId(rs.getInt("Id"));
-                obj.setName(rs.getString("Name"));
-                list.add(obj);
+                list.add(mapper.mapRow(rs));
             }
             return list;
         } catch (SQLException e) {
             throw new DbException(e.getMessage());
         } finally {
-            DB.closeStatement(st);
             DB.closeResultSet(rs);
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
         }
     }
 
     @Override
     public void deleteById(Integer id) {
+        Connection conn = null;
         PreparedStatement st = null;
         try {
+            conn = DB.getConnection();
             st = conn.prepareStatement("DELETE FROM department WHERE Id = ?");
             st.setInt(1, id);
             st.executeUpdate();
         } catch (SQLException e) {
             throw new DbIntegrityException(e.getMessage());
         } finally {
+            DB.markWritten();
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
+        }
+    }
+
+    /**
+     * Deletes the row only if it still has the given version. Deleting a
+     * row that is already gone succeeds; deleting one that was changed in
+     * the meantime throws DbConcurrencyException.
+     */
+    void deleteById(Integer id, int version) {
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+        try {
+            conn = DB.getConnection();
+            st = conn.prepareStatement("DELETE FROM department WHERE Id = ? AND Version = ?");
+            st.setInt(1, id);
+            st.setInt(2, version);
+            if (st.executeUpdate() > 0) {
+                return;
+            }
+            DB.closeStatement(st);
+            st = conn.prepareStatement("SELECT 1 FROM department WHERE Id = ?");
+            st.setInt(1, id);
+            rs = st.executeQuery();
+            if (rs.next()) {
+                throw new DbConcurrencyException("Department " + id + " was changed by another user");
+            }
+        } catch (SQLException e) {
+            throw new DbIntegrityException(e.getMessage());
+        } finally {
+            DB.markWritten();
+            DB.closeResultSet(rs);
             DB.closeStatement(st);
+            DB.closeConnection(conn);
         }
     }
-    
 }
@@ -0,0 +1,102 @@
+package model.dao.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeSet;
+
+import db.DbConcurrencyException;
+import db.DbIntegrityException;
+import model.dao.DepartmentDao;
+import model.entities.Department;
+
+public class DepartmentDaoMemory implements DepartmentDao {
+
+    private final MemoryStore store;
+
+    DepartmentDaoMemory(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void insert(Department obj) {
+        store.inTransaction(() -> {
+            obj.setId(store.nextDepartmentId());
+            obj.setVersion(0);
+            store.putDepartment(MemoryStore.copy(obj));
+            return null;
+        });
+    }
+
+    @Override
+    public void update(Department obj) {
+        store.inTransaction(() -> {
+            Department current = store.getDepartment(obj.getId());
+            if (current == null || !Objects.equals(current.getVersion(), obj.getVersion())) {
+                throw new DbConcurrencyException("Department " + obj.getId()
+                        + " was changed or removed by another user");
+            }
+            Department stored = MemoryStore.copy(obj);
+            stored.setVersion(obj.getVersion() + 1);
+            store.putDepartment(stored);
+            obj.setVersion(stored.getVersion());
+            return null;
+        });
+    }
+
+    @Override
+    public Department findById(Integer id) {
+        store.lock.readLock().lock();
+        try {
+            Department stored = store.getDepartment(id);
+            return stored == null ? null : MemoryStore.copy(stored);
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Department> findByIds(Collection<Integer> ids) {
+        List<Department> list = new ArrayList<>(ids.size());
+        store.lock.readLock().lock();
+        try {
+            for (Integer id : new TreeSet<>(ids)) {
+                Department stored = store.getDepartment(id);
+                if (stored != null) {
+                    list.add(MemoryStore.copy(stored));
+                }
+            }
+            return list;
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Department> findAll() {
+        List<Department> list = new ArrayList<>();
+        store.lock.readLock().lock();
+        try {
+            for (Department stored : store.departments()) {
+                list.add(MemoryStore.copy(stored));
+            }
+        } finally {
+            store.lock.readLock().unlock();
+        }
+        list.sort(Comparator.comparing(Department::getId));
+        return list;
+    }
+
+    @Override
+    public void deleteById(Integer id) {
+        store.inTransaction(() -> {
+            if (store.hasSellers(id)) {
+                throw new DbIntegrityException("Cannot delete department " + id + ": it still has sellers");
+            }
+            store.removeDepartment(id);
+            return null;
+        });
+    }
+}
@@ -0,0 +1,69 @@
+package model.dao.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import model.entities.Department;
+
+/**
+ * Local department DAO that records every write in the outbox.
+ */
+class DepartmentDaoOffline extends DepartmentDaoMemory {
+
+    private final OfflineDaoProvider provider;
+
+    DepartmentDaoOffline(OfflineDaoProvider provider) {
+        super(provider.getStore());
+        this.provider = provider;
+    }
+
+    @Override
+    public void insert(Department obj) {
+        provider.inTransaction(() -> {
+            super.insert(obj);
+            provider.record(OutboxEntry.insert(obj));
+            return null;
+        });
+    }
+
+    @Override
+    public void update(Department obj) {
+        provider.inTransaction(() -> {
+            obj.setId(provider.resolveDepartmentId(obj.getId()));
+            super.update(obj);
+            provider.record(OutboxEntry.update(obj, obj.getVersion() - 1));
+            return null;
+        });
+    }
+
+    @Override
+    public Department findById(Integer id) {
+        return super.findById(provider.resolveDepartmentId(id));
+    }
+
+    @Override
+    public List<Department> findByIds(Collection<Integer> ids) {
+        List<Integer> resolved = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            resolved.add(provider.resolveDepartmentId(id));
+        }
+        return super.findByIds(resolved);
+    }
+
+    @Override
+    public void deleteById(Integer id) {
+        Integer resolved = provider.resolveDepartmentId(id);
+        provider.inTransaction(() -> {
+            Department stored = provider.getStore().getDepartment(resolved);
+            super.deleteById(resolved);
+            if (resolved < 0) {
+                provider.forget(false, resolved);
+            } else {
+                provider.record(OutboxEntry.deleteDepartment(resolved,
+                        stored == null ? null : stored.getVersion()));
+            }
+            return null;
+        });
+    }
+}
@@ -0,0 +1,69 @@
+package model.dao.impl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import db.DB;
+import db.DbException;
+import model.dao.DepartmentStatsDao;
+import model.entities.Department;
+import model.entities.DepartmentStats;
+
+public class DepartmentStatsDaoJDBC implements DepartmentStatsDao {
+
+    @Override
+    public List<DepartmentStats> findAll() {
+        Map<Integer, DepartmentStats> stats = new LinkedHashMap<>();
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+        try {
+            conn = DB.getReadConnection();
+            st = conn.prepareStatement("SELECT department.Id, department.Name, department.Version, " +
+                "COUNT(seller.Id) AS SellerCount, COALESCE(SUM(seller.BaseSalary), 0) AS TotalBaseSalary, " +
+                "COALESCE(AVG(seller.BaseSalary), 0) AS AverageBaseSalary " +
+                "FROM department LEFT JOIN seller ON seller.DepartmentId = department.Id " +
+                "GROUP BY department.Id, department.Name, department.Version " +
+                "ORDER BY department.Name");
+            rs = st.executeQuery();
+            int[] col = DB.columnIndexes(rs, "Id", "Name", "Version", "SellerCount", "TotalBaseSalary",
+                    "AverageBaseSalary");
+            while (rs.next()) {
+                Department dep = new Department(rs.getInt(col[0]), rs.getString(col[1]), rs.getInt(col[2]));
+                stats.put(dep.getId(), new DepartmentStats(dep, rs.getLong(col[3]), rs.getDouble(col[4]),
+                        rs.getDouble(col[5])));
+            }
+            DB.closeResultSet(rs);
+            DB.closeStatement(st);
+            rs = null;
+            st = null;
+
+            st = conn.prepareStatement("SELECT DepartmentId, " +
+                "FLOOR(TIMESTAMPDIFF(YEAR, BirthDate, CURDATE()) / 10) * 10 AS AgeGroup, " +
+                "COUNT(*) AS SellerCount " +
+                "FROM seller WHERE BirthDate IS NOT NULL " +
+                "GROUP BY DepartmentId, AgeGroup");
+            rs = st.executeQuery();
+            col = DB.columnIndexes(rs, "DepartmentId", "AgeGroup", "SellerCount");
+            while (rs.next()) {
+                DepartmentStats obj = stats.get(rs.getInt(col[0]));
+                if (obj != null) {
+                    obj.getAgeDistribution().put(rs.getInt(col[1]), rs.getLong(col[2]));
+                }
+            }
+            return new ArrayList<>(stats.values());
+        } catch (SQLException e) {
+            throw new DbException(e.getMessage());
+        } finally {
+            DB.closeResultSet(rs);
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package model.dao.impl;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import model.dao.DepartmentStatsDao;
+import model.entities.Department;
+import model.entities.DepartmentStats;
+import model.entities.Seller;
+
+public class DepartmentStatsDaoMemory implements DepartmentStatsDao {
+
+    private static final Comparator<String> NAME_ORDER = Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER);
+
+    private final MemoryStore store;
+
+    DepartmentStatsDaoMemory(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public List<DepartmentStats> findAll() {
+        LocalDate today = LocalDate.now();
+        List<DepartmentStats> list = new ArrayList<>();
+        store.lock.readLock().lock();
+        try {
+            for (Department department : store.departments()) {
+                long count = 0;
+                double total = 0;
+                DepartmentStats stats = new DepartmentStats(MemoryStore.copy(department), 0, 0, 0);
+                for (Seller seller : store.sellersByDepartment(department.getId()).values()) {
+                    count++;
+                    total += seller.getBaseSalary();
+                    if (seller.getBirthDate() != null) {
+                        int ageGroup = Period.between(seller.getBirthDate(), today).getYears() / 10 * 10;
+                        stats.getAgeDistribution().merge(ageGroup, 1L, Long::sum);
+                    }
+                }
+                stats.setSellerCount(count);
+                stats.setTotalBaseSalary(total);
+                stats.setAverageBaseSalary(count == 0 ? 0 : total / count);
+                list.add(stats);
+            }
+        } finally {
+            store.lock.readLock().unlock();
+        }
+        list.sort(Comparator.comparing((DepartmentStats s) -> s.getDepartment().getName(), NAME_ORDER));
+        return list;
+    }
+}
@@ -0,0 +1,406 @@
+package model.dao.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import db.DB;
+import db.TransactionManager;
+import metrics.Metrics;
+import metrics.Timer;
+import model.dao.SellerDao;
+import model.dao.SellerSearchCriteria;
+import model.entities.Department;
+import model.entities.Seller;
+
+/**
+ * Serves seller reads from an in-memory index of every seller, sorted by
+ * name and grouped by department, so drill-downs and name lookups do not
+ * query the database. The index is built from one scan on the first list
+ * read and then kept current row by row: writes through this DAO are
+ * applied directly, rows changed elsewhere are re-read by id through
+ * refresh(), and department changes are picked up from the department
+ * cache. Only one thread rebuilds at a time; after the TTL the others keep
+ * reading the old index meanwhile. Inside a transaction reads go straight
+ * to the database and the written rows are re-read once it ends.
+ */
+public class IndexedSellerDao implements SellerDao {
+
+    private static final Timer LOAD = Metrics.timer("dao.sellerIndex.load");
+
+    private final SellerDao delegate;
+
+    private final CachingDepartmentDao departmentCache;
+
+    private final long ttlMillis;
+
+    private final ReentrantLock loadLock = new ReentrantLock();
+
+    private volatile MemoryStore index;
+
+    private volatile long loadedAt;
+
+    private long departmentGeneration;
+
+    private Set<Integer> changedDuringLoad;
+
+    public IndexedSellerDao(SellerDao delegate, CachingDepartmentDao departmentCache, long ttlMillis) {
+        this.delegate = delegate;
+        this.departmentCache = departmentCache;
+        this.ttlMillis = ttlMillis;
+    }
+
+    @Override
+    public void insert(Seller obj) {
+        delegate.insert(obj);
+        put(List.of(obj));
+    }
+
+    @Override
+    public void update(Seller obj) {
+        try {
+            delegate.update(obj);
+        } catch (RuntimeException e) {
+            refreshLater(List.of(obj));
+            throw e;
+        }
+        put(List.of(obj));
+    }
+
+    @Override
+    public List<Integer> insertAll(Collection<Seller> sellers, int chunkSize) {
+        List<Integer> keys;
+        try {
+            keys = delegate.insertAll(sellers, chunkSize);
+        } catch (RuntimeException e) {
+            refreshLater(sellers);
+            throw e;
+        }
+        put(sellers);
+        return keys;
+    }
+
+    @Override
+    public int updateAll(Collection<Seller> sellers, int chunkSize) {
+        int updated;
+        try {
+            updated = delegate.updateAll(sellers, chunkSize);
+        } catch (RuntimeException e) {
+            refreshLater(sellers);
+            throw e;
+        }
+        put(sellers);
+        return updated;
+    }
+
+    @Override
+    public void deleteById(Integer id) {
+        delegate.deleteById(id);
+        if (TransactionManager.isActive()) {
+            TransactionManager.afterCompletion(() -> refreshOrInvalidate(List.of(id)));
+            return;
+        }
+        synchronized (this) {
+            if (changedDuringLoad != null) {
+                changedDuringLoad.add(id);
+            }
+            MemoryStore current = index;
+            if (current != null) {
+                current.inTransaction(() -> {
+                    current.removeSeller(id);
+                    return null;
+                });
+            }
+        }
+    }
+
+    @Override
+    public Seller findById(Integer id) {
+        MemoryStore current = loadedIndex();
+        return current == null ? delegate.findById(id) : new SellerDaoMemory(current).findById(id);
+    }
+
+    @Override
+    public List<Seller> findByIds(Collection<Integer> ids) {
+        MemoryStore current = loadedIndex();
+        return current == null ? delegate.findByIds(ids) : new SellerDaoMemory(current).findByIds(ids);
+    }
+
+    @Override
+    public List<Seller> findAll() {
+        MemoryStore current = index();
+        return current == null ? delegate.findAll() : new SellerDaoMemory(current).findAll();
+    }
+
+    @Override
+    public List<Seller> findByDepartment(Department department) {
+        MemoryStore current = index();
+        return current == null ? delegate.findByDepartment(department)
+                : new SellerDaoMemory(current).findByDepartment(department);
+    }
+
+    @Override
+    public long streamAll(Consumer<Seller> action) {
+        return delegate.streamAll(action);
+    }
+
+    @Override
+    public List<Seller> findPage(String afterName, Integer afterId, int limit) {
+        MemoryStore current = index();
+        return current == null ? delegate.findPage(afterName, afterId, limit)
+                : new SellerDaoMemory(current).findPage(afterName, afterId, limit);
+    }
+
+    @Override
+    public List<Seller> search(SellerSearchCriteria criteria, String afterName, Integer afterId, int limit) {
+        MemoryStore current = index();
+        return current == null ? delegate.search(criteria, afterName, afterId, limit)
+                : new SellerDaoMemory(current).search(criteria, afterName, afterId, limit);
+    }
+
+    public synchronized void invalidate() {
+        index = null;
+    }
+
+    public boolean isLoaded() {
+        return index != null;
+    }
+
+    /**
+     * Re-reads the given sellers from the primary in one query and applies
+     * them to the index: changed rows replace older versions and rows that
+     * are gone are removed. Does nothing while no index is loaded.
+     */
+    public void refresh(Collection<Integer> ids) {
+        synchronized (this) {
+            if (changedDuringLoad != null) {
+                changedDuringLoad.addAll(ids);
+            }
+            if (index == null || ids.isEmpty()) {
+                return;
+            }
+        }
+        List<Seller> rows = DB.readFromPrimary(() -> delegate.findByIds(ids));
+        Map<Integer, Seller> byId = new HashMap<>();
+        for (Seller obj : rows) {
+            byId.put(obj.getId(), obj);
+        }
+        synchronized (this) {
+            MemoryStore current = index;
+            if (current == null) {
+                return;
+            }
+            current.inTransaction(() -> {
+                for (Integer id : ids) {
+                    Seller obj = byId.get(id);
+                    if (obj == null) {
+                        current.removeSeller(id);
+                    } else {
+                        apply(current, obj);
+                    }
+                }
+                return null;
+            });
+        }
+    }
+
+    /**
+     * The index if one is loaded, without building it: single-row lookups
+     * are not worth a full scan.
+     */
+    private MemoryStore loadedIndex() {
+        if (TransactionManager.isActive()) {
+            return null;
+        }
+        MemoryStore current = index;
+        if (current != null) {
+            refreshDepartments(current);
+        }
+        return current;
+    }
+
+    /**
+     * The index, built now if there is none. When it is past its TTL the
+     * first caller rebuilds it while the others keep using the old one.
+     */
+    private MemoryStore index() {
+        if (TransactionManager.isActive()) {
+            return null;
+        }
+        MemoryStore current = index;
+        if (current != null && !isExpired()) {
+            refreshDepartments(current);
+            return current;
+        }
+        if (current != null) {
+            if (!loadLock.tryLock()) {
+                return current;
+            }
+        } else {
+            loadLock.lock();
+        }
+        try {
+            current = index;
+            if (current != null && !isExpired()) {
+                return current;
+            }
+            return rebuild();
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    private boolean isExpired() {
+        return System.currentTimeMillis() - loadedAt > ttlMillis;
+    }
+
+    private MemoryStore rebuild() {
+        synchronized (this) {
+            changedDuringLoad = new HashSet<>();
+        }
+        long departmentGen = departmentCache.getGeneration();
+        MemoryStore loaded = null;
+        Set<Integer> changed;
+        try {
+            loaded = LOAD.time(this::load);
+        } finally {
+            synchronized (this) {
+                changed = changedDuringLoad;
+                changedDuringLoad = null;
+                if (loaded != null) {
+                    index = loaded;
+                    loadedAt = System.currentTimeMillis();
+                    departmentGeneration = departmentGen;
+                }
+            }
+        }
+        // rows written while the scan ran may be missing from it
+        refresh(changed);
+        return loaded;
+    }
+
+    private MemoryStore load() {
+        Map<Integer, Department> departments = new HashMap<>();
+        for (Department obj : departmentCache.findAll()) {
+            departments.put(obj.getId(), MemoryStore.copy(obj));
+        }
+        List<Seller> sellers = delegate.findAll();
+        List<Seller> rows = new ArrayList<>(sellers.size());
+        for (Seller obj : sellers) {
+            Department department = departments.computeIfAbsent(obj.getDepartment().getId(),
+                    id -> MemoryStore.copy(obj.getDepartment()));
+            rows.add(MemoryStore.copy(obj, department));
+        }
+        MemoryStore loaded = new MemoryStore();
+        loaded.lock.writeLock().lock();
+        try {
+            loaded.replaceAll(departments.values(), rows);
+        } finally {
+            loaded.lock.writeLock().unlock();
+        }
+        return loaded;
+    }
+
+    /**
+     * Brings the department rows up to date after the department cache
+     * was invalidated. The departments table is small and usually cached,
+     * so this never rescans the sellers.
+     */
+    private void refreshDepartments(MemoryStore current) {
+        long gen = departmentCache.getGeneration();
+        synchronized (this) {
+            if (gen == departmentGeneration) {
+                return;
+            }
+        }
+        List<Department> departments = departmentCache.findAll();
+        synchronized (this) {
+            if (current != index || gen == departmentGeneration) {
+                return;
+            }
+            current.inTransaction(() -> {
+                Set<Integer> ids = new HashSet<>();
+                for (Department obj : departments) {
+                    ids.add(obj.getId());
+                    current.putDepartment(MemoryStore.copy(obj));
+                }
+                for (Department stored : new ArrayList<>(current.departments())) {
+                    if (!ids.contains(stored.getId()) && !current.hasSellers(stored.getId())) {
+                        current.removeDepartment(stored.getId());
+                    }
+                }
+                return null;
+            });
+            departmentGeneration = gen;
+        }
+    }
+
+    /**
+     * Applies rows just written to the index, or re-reads them once the
+     * current transaction ends.
+     */
+    private void put(Collection<Seller> sellers) {
+        if (TransactionManager.isActive()) {
+            refreshLater(sellers);
+            return;
+        }
+        synchronized (this) {
+            for (Seller obj : sellers) {
+                if (changedDuringLoad != null) {
+                    changedDuringLoad.add(obj.getId());
+                }
+            }
+            MemoryStore current = index;
+            if (current == null) {
+                return;
+            }
+            current.inTransaction(() -> {
+                for (Seller obj : sellers) {
+                    apply(current, obj);
+                }
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Stores the row unless the index already holds a newer version of it.
+     */
+    private static void apply(MemoryStore current, Seller obj) {
+        Seller stored = current.getSeller(obj.getId());
+        if (stored != null && stored.getVersion() != null && obj.getVersion() != null
+                && stored.getVersion() > obj.getVersion()) {
+            return;
+        }
+        Department department = current.getDepartment(obj.getDepartment().getId());
+        if (department == null) {
+            department = MemoryStore.copy(obj.getDepartment());
+            current.putDepartment(department);
+        }
+        current.putSeller(MemoryStore.copy(obj, department));
+    }
+
+    private void refreshLater(Collection<Seller> sellers) {
+        List<Integer> ids = new ArrayList<>();
+        for (Seller obj : sellers) {
+            if (obj.getId() != null) {
+                ids.add(obj.getId());
+            }
+        }
+        TransactionManager.afterCompletion(() -> refreshOrInvalidate(ids));
+    }
+
+    private void refreshOrInvalidate(Collection<Integer> ids) {
+        try {
+            refresh(ids);
+        } catch (RuntimeException e) {
+            invalidate();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package model.dao.impl;
+
+import java.util.Collection;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import db.TransactionManager;
+import model.dao.DaoProvider;
+import model.dao.DepartmentDao;
+import model.dao.DepartmentStatsDao;
+import model.dao.SellerDao;
+
+public class JdbcDaoProvider implements DaoProvider {
+
+    private final CachingDepartmentDao departmentDao =
+            new CachingDepartmentDao(new DepartmentDaoJDBC(), 1000, TimeUnit.MINUTES.toMillis(5));
+
+    private final IndexedSellerDao sellerIndex;
+
+    public JdbcDaoProvider() {
+        this(0);
+    }
+
+    /**
+     * With a positive TTL seller reads are served from an in-memory index
+     * that is rebuilt at most that often.
+     */
+    public JdbcDaoProvider(long sellerIndexTtlMillis) {
+        sellerIndex = sellerIndexTtlMillis > 0
+                ? new IndexedSellerDao(new SellerDaoJDBC(departmentDao), departmentDao, sellerIndexTtlMillis)
+                : null;
+    }
+
+    public static JdbcDaoProvider fromProperties(Properties props) {
+        boolean indexed = Boolean.parseBoolean(props.getProperty("dao.sellerIndex", "false").trim());
+        long ttlSeconds = Long.parseLong(props.getProperty("dao.sellerIndex.ttlSeconds", "300").trim());
+        return new JdbcDaoProvider(indexed ? TimeUnit.SECONDS.toMillis(ttlSeconds) : 0);
+    }
+
+    @Override
+    public SellerDao createSellerDao() {
+        return sellerIndex != null ? sellerIndex : new SellerDaoJDBC(departmentDao);
+    }
+
+    @Override
+    public DepartmentDao createDepartmentDao() {
+        return departmentDao;
+    }
+
+    @Override
+    public DepartmentStatsDao createDepartmentStatsDao() {
+        return new DepartmentStatsDaoJDBC();
+    }
+
+    @Override
+    public <T> T inTransaction(Supplier<T> work) {
+        return TransactionManager.inTransaction(work);
+    }
+
+    @Override
+    public void invalidateCaches() {
+        departmentDao.invalidate();
+        if (sellerIndex != null) {
+            sellerIndex.invalidate();
+        }
+    }
+
+    @Override
+    public void rowsChanged(String table, Collection<Integer> ids) {
+        if (table.equals("department")) {
+            departmentDao.invalidate();
+        } else if (table.equals("seller") && sellerIndex != null) {
+            sellerIndex.refresh(ids);
+        }
+    }
+
+    @Override
+    public boolean usesDatabase() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    public CachingDepartmentDao getDepartmentCache() {
+        return departmentDao;
+    }
+}
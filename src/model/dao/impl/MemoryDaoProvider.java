@@ -0,0 +1,188 @@
+package model.dao.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import db.DbException;
+import model.dao.DaoProvider;
+import model.dao.DepartmentDao;
+import model.dao.DepartmentStatsDao;
+import model.dao.SellerDao;
+import model.entities.Department;
+import model.entities.Seller;
+
+/**
+ * Keeps sellers and departments in memory, for offline use and for tests
+ * that should not need a server. With a snapshot file the data is loaded
+ * from it at startup and written back periodically when it has changed,
+ * and once more on close.
+ */
+public class MemoryDaoProvider implements DaoProvider {
+
+    private static final Logger LOG = Logger.getLogger(MemoryDaoProvider.class.getName());
+
+    private final MemoryStore store;
+
+    private final Path snapshotFile;
+
+    private final ScheduledExecutorService scheduler;
+
+    public MemoryDaoProvider() {
+        this(null, 0);
+    }
+
+    public MemoryDaoProvider(Path snapshotFile, long snapshotIntervalSeconds) {
+        this(new MemoryStore(), snapshotFile, snapshotIntervalSeconds);
+    }
+
+    MemoryDaoProvider(MemoryStore store, Path snapshotFile, long snapshotIntervalSeconds) {
+        this.store = store;
+        this.snapshotFile = snapshotFile;
+        if (snapshotFile != null && Files.exists(snapshotFile)) {
+            loadSnapshot();
+        }
+        if (snapshotFile != null && snapshotIntervalSeconds > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "memory-dao-snapshot");
+                t.setDaemon(true);
+                return t;
+            });
+            scheduler.scheduleWithFixedDelay(this::saveSnapshotQuietly, snapshotIntervalSeconds,
+                    snapshotIntervalSeconds, TimeUnit.SECONDS);
+        } else {
+            scheduler = null;
+        }
+    }
+
+    public static MemoryDaoProvider fromProperties(Properties props) {
+        String file = props.getProperty("memory.snapshotFile", "").trim();
+        long interval = Long.parseLong(props.getProperty("memory.snapshotIntervalSeconds", "30").trim());
+        return new MemoryDaoProvider(file.isEmpty() ? null : Paths.get(file), interval);
+    }
+
+    MemoryStore getStore() {
+        return store;
+    }
+
+    @Override
+    public SellerDao createSellerDao() {
+        return new SellerDaoMemory(store);
+    }
+
+    @Override
+    public DepartmentDao createDepartmentDao() {
+        return new DepartmentDaoMemory(store);
+    }
+
+    @Override
+    public DepartmentStatsDao createDepartmentStatsDao() {
+        return new DepartmentStatsDaoMemory(store);
+    }
+
+    @Override
+    public <T> T inTransaction(Supplier<T> work) {
+        return store.inTransaction(work);
+    }
+
+    @Override
+    public void invalidateCaches() {
+    }
+
+    @Override
+    public void rowsChanged(String table, Collection<Integer> ids) {
+    }
+
+    @Override
+    public boolean usesDatabase() {
+        return false;
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (snapshotFile != null) {
+            saveSnapshot();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void loadSnapshot() {
+        try (ObjectInputStream in = new ObjectInputStream(
+                new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            List<Department> departments = (List<Department>) in.readObject();
+            List<Seller> sellers = (List<Seller>) in.readObject();
+            store.lock.writeLock().lock();
+            try {
+                store.replaceAll(departments, sellers);
+                store.markClean();
+            } finally {
+                store.lock.writeLock().unlock();
+            }
+            LOG.info(() -> "Loaded " + departments.size() + " departments and " + sellers.size()
+                    + " sellers from " + snapshotFile);
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            throw new DbException("Could not read snapshot " + snapshotFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the data to a temporary file next to the snapshot and then
+     * moves it into place, so a crash never leaves a half written snapshot.
+     */
+    public synchronized void saveSnapshot() {
+        if (snapshotFile == null || !store.isDirty()) {
+            return;
+        }
+        List<Department> departments;
+        List<Seller> sellers;
+        store.lock.readLock().lock();
+        try {
+            departments = new ArrayList<>(store.departments());
+            sellers = new ArrayList<>(store.sellers());
+            store.markClean();
+        } finally {
+            store.lock.readLock().unlock();
+        }
+        try {
+            Path dir = snapshotFile.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            Path tmp = Files.createTempFile(dir, snapshotFile.getFileName().toString(), ".tmp");
+            try (ObjectOutputStream out = new ObjectOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeObject(departments);
+                out.writeObject(sellers);
+            }
+            Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            store.markDirty();
+            throw new DbException("Could not write snapshot " + snapshotFile + ": " + e.getMessage());
+        }
+    }
+
+    void saveSnapshotQuietly() {
+        try {
+            saveSnapshot();
+        } catch (DbException e) {
+            LOG.log(Level.WARNING, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package model.dao.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import model.entities.Department;
+import model.entities.Seller;
+
+/**
+ * Seller and department rows held in memory, with the seller indexes the
+ * DAOs need: by name and by department. Names are ordered ignoring case and
+ * then by id, like ORDER BY Name, Id under the default MySQL collation.
+ * Stored objects are never handed out or changed in place; writes replace
+ * them with fresh copies under the write lock, so readers holding the read
+ * lock always see a consistent, committed state.
+ */
+class MemoryStore {
+
+    private static final Comparator<String> NAME_ORDER = Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER);
+
+    final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Integer, Department> departments = new ConcurrentHashMap<>();
+
+    private final Map<Integer, Seller> sellers = new ConcurrentHashMap<>();
+
+    private final NavigableMap<SellerKey, Seller> sellersByName = new ConcurrentSkipListMap<>();
+
+    private final Map<Integer, NavigableMap<SellerKey, Seller>> sellersByDepartment = new ConcurrentHashMap<>();
+
+    private final AtomicInteger lastSellerId = new AtomicInteger();
+
+    private final AtomicInteger lastDepartmentId = new AtomicInteger();
+
+    private final AtomicInteger lastLocalSellerId = new AtomicInteger();
+
+    private final AtomicInteger lastLocalDepartmentId = new AtomicInteger();
+
+    private final boolean localIds;
+
+    private volatile boolean dirty;
+
+    private Map<Integer, Department> departmentUndo;
+
+    private Map<Integer, Seller> sellerUndo;
+
+    MemoryStore() {
+        this(false);
+    }
+
+    /**
+     * With local ids, new rows get negative ids that can never clash with
+     * the ones a server hands out later.
+     */
+    MemoryStore(boolean localIds) {
+        this.localIds = localIds;
+    }
+
+    static SellerKey key(String name, Integer id) {
+        return new SellerKey(name, id == null ? Integer.MIN_VALUE : id);
+    }
+
+    static Department copy(Department obj) {
+        Department copy = new Department();
+        copy.setId(obj.getId());
+        copy.setName(obj.getName());
+        copy.setVersion(obj.getVersion());
+        return copy;
+    }
+
+    static Seller copy(Seller obj, Department department) {
+        Seller copy = new Seller(obj.getId(), obj.getName(), obj.getEmail(), obj.getBirthDate(),
+                obj.getBaseSalary());
+        copy.setVersion(obj.getVersion());
+        copy.setDepartment(department);
+        return copy;
+    }
+
+    Department getDepartment(Integer id) {
+        return id == null ? null : departments.get(id);
+    }
+
+    Seller getSeller(Integer id) {
+        return id == null ? null : sellers.get(id);
+    }
+
+    Collection<Department> departments() {
+        return departments.values();
+    }
+
+    Collection<Seller> sellers() {
+        return sellers.values();
+    }
+
+    NavigableMap<SellerKey, Seller> sellersByName() {
+        return sellersByName;
+    }
+
+    NavigableMap<SellerKey, Seller> sellersByDepartment(Integer departmentId) {
+        NavigableMap<SellerKey, Seller> index = sellersByDepartment.get(departmentId);
+        return index == null ? new ConcurrentSkipListMap<>() : index;
+    }
+
+    /**
+     * The stored seller as callers see it: a copy that carries a copy of
+     * its department's current row.
+     */
+    Seller toEntity(Seller stored) {
+        Department department = departments.get(stored.getDepartment().getId());
+        return copy(stored, department == null ? null : copy(department));
+    }
+
+    int nextSellerId() {
+        return localIds ? lastLocalSellerId.decrementAndGet() : lastSellerId.incrementAndGet();
+    }
+
+    int nextDepartmentId() {
+        return localIds ? lastLocalDepartmentId.decrementAndGet() : lastDepartmentId.incrementAndGet();
+    }
+
+    void putDepartment(Department stored) {
+        Department previous = departments.put(stored.getId(), stored);
+        remember(departmentUndo, stored.getId(), previous);
+        lastDepartmentId.accumulateAndGet(stored.getId(), Math::max);
+        lastLocalDepartmentId.accumulateAndGet(stored.getId(), Math::min);
+        dirty = true;
+    }
+
+    void removeDepartment(Integer id) {
+        Department previous = departments.remove(id);
+        if (previous != null) {
+            remember(departmentUndo, id, previous);
+            sellersByDepartment.remove(id);
+            dirty = true;
+        }
+    }
+
+    void putSeller(Seller stored) {
+        Seller previous = sellers.put(stored.getId(), stored);
+        remember(sellerUndo, stored.getId(), previous);
+        if (previous != null) {
+            unindex(previous);
+        }
+        SellerKey key = key(stored.getName(), stored.getId());
+        sellersByName.put(key, stored);
+        sellersByDepartment.computeIfAbsent(stored.getDepartment().getId(), id -> new ConcurrentSkipListMap<>())
+                .put(key, stored);
+        lastSellerId.accumulateAndGet(stored.getId(), Math::max);
+        lastLocalSellerId.accumulateAndGet(stored.getId(), Math::min);
+        dirty = true;
+    }
+
+    void removeSeller(Integer id) {
+        Seller previous = sellers.remove(id);
+        if (previous != null) {
+            remember(sellerUndo, id, previous);
+            unindex(previous);
+            dirty = true;
+        }
+    }
+
+    private void unindex(Seller stored) {
+        SellerKey key = key(stored.getName(), stored.getId());
+        sellersByName.remove(key);
+        NavigableMap<SellerKey, Seller> index = sellersByDepartment.get(stored.getDepartment().getId());
+        if (index != null) {
+            index.remove(key);
+        }
+    }
+
+    boolean hasSellers(Integer departmentId) {
+        NavigableMap<SellerKey, Seller> index = sellersByDepartment.get(departmentId);
+        return index != null && !index.isEmpty();
+    }
+
+    /**
+     * Runs the work under the write lock. The first previous value of every
+     * row it touches is remembered, and if it throws those rows are put
+     * back as they were when the outermost call started.
+     */
+    <T> T inTransaction(Supplier<T> work) {
+        ReentrantReadWriteLock.WriteLock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            if (writeLock.getHoldCount() > 1) {
+                return work.get();
+            }
+            departmentUndo = new HashMap<>();
+            sellerUndo = new HashMap<>();
+            try {
+                return work.get();
+            } catch (RuntimeException | Error e) {
+                undo();
+                throw e;
+            } finally {
+                departmentUndo = null;
+                sellerUndo = null;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static <T> void remember(Map<Integer, T> undo, Integer id, T previous) {
+        if (undo != null && !undo.containsKey(id)) {
+            undo.put(id, previous);
+        }
+    }
+
+    private void undo() {
+        Map<Integer, Department> departmentRows = departmentUndo;
+        Map<Integer, Seller> sellerRows = sellerUndo;
+        departmentUndo = null;
+        sellerUndo = null;
+        for (Map.Entry<Integer, Seller> entry : sellerRows.entrySet()) {
+            if (entry.getValue() == null) {
+                removeSeller(entry.getKey());
+            } else {
+                putSeller(entry.getValue());
+            }
+        }
+        for (Map.Entry<Integer, Department> entry : departmentRows.entrySet()) {
+            if (entry.getValue() == null) {
+                removeDepartment(entry.getKey());
+            } else {
+                putDepartment(entry.getValue());
+            }
+        }
+    }
+
+    void replaceAll(Collection<Department> newDepartments, Collection<Seller> newSellers) {
+        List<Department> departmentRows = new ArrayList<>(newDepartments);
+        List<Seller> sellerRows = new ArrayList<>(newSellers);
+        departments.clear();
+        sellers.clear();
+        sellersByName.clear();
+        sellersByDepartment.clear();
+        for (Department obj : departmentRows) {
+            putDepartment(obj);
+        }
+        for (Seller obj : sellerRows) {
+            putSeller(obj);
+        }
+    }
+
+    boolean isDirty() {
+        return dirty;
+    }
+
+    void markClean() {
+        dirty = false;
+    }
+
+    void markDirty() {
+        dirty = true;
+    }
+
+    static final class SellerKey implements Comparable<SellerKey> {
+
+        private final String name;
+
+        private final int id;
+
+        SellerKey(String name, int id) {
+            this.name = name;
+            this.id = id;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        @Override
+        public int compareTo(SellerKey other) {
+            int result = NAME_ORDER.compare(name, other.name);
+            return result != 0 ? result : Integer.compare(id, other.id);
+        }
+    }
+}
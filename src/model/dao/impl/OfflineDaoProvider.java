@@ -0,0 +1,184 @@
+package model.dao.impl;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import model.dao.DepartmentDao;
+import model.dao.SellerDao;
+import model.entities.Department;
+import model.entities.Seller;
+
+/**
+ * Reads and writes a local copy of the data, so the application keeps
+ * working without a server. Every local write is also appended to an
+ * outbox on disk in the same transaction, and a background worker sends
+ * the outbox to the server and refreshes the local copy once it is sent.
+ * Rows created offline get negative ids until the server gives them real
+ * ones; the old ids keep working for lookups until the next restart.
+ */
+public class OfflineDaoProvider extends MemoryDaoProvider {
+
+    private static final Logger LOG = Logger.getLogger(OfflineDaoProvider.class.getName());
+
+    private final Outbox outbox;
+
+    private final SyncWorker worker;
+
+    private final Map<Integer, Integer> sellerAliases = new ConcurrentHashMap<>();
+
+    private final Map<Integer, Integer> departmentAliases = new ConcurrentHashMap<>();
+
+    private List<OutboxEntry> pending;
+
+    public OfflineDaoProvider(Path dir, long snapshotIntervalSeconds, long syncIntervalSeconds,
+            long pullIntervalSeconds) {
+        super(new MemoryStore(true), dir.resolve("offline.snapshot"), snapshotIntervalSeconds);
+        outbox = new Outbox(dir.resolve("outbox.log"));
+        replayOutbox();
+        worker = new SyncWorker(this, outbox, new JdbcDaoProvider(), syncIntervalSeconds, pullIntervalSeconds);
+        // the first round runs right away on the sync thread; an empty store fills in once it has pulled
+        worker.start();
+    }
+
+    public static OfflineDaoProvider fromProperties(Properties props) {
+        Path dir = Paths.get(props.getProperty("offline.dir", "data").trim());
+        long snapshotInterval = Long.parseLong(props.getProperty("memory.snapshotIntervalSeconds", "30").trim());
+        long syncInterval = Long.parseLong(props.getProperty("offline.syncIntervalSeconds", "5").trim());
+        long pullInterval = Long.parseLong(props.getProperty("offline.pullIntervalSeconds", "60").trim());
+        return new OfflineDaoProvider(dir, snapshotInterval, syncInterval, pullInterval);
+    }
+
+    /**
+     * Applies the pending writes again, since the snapshot may have been
+     * taken before some of them.
+     */
+    private void replayOutbox() {
+        MemoryStore store = getStore();
+        List<OutboxEntry> entries = outbox.entries();
+        store.lock.writeLock().lock();
+        try {
+            for (OutboxEntry entry : entries) {
+                boolean delete = entry.getOperation() == OutboxEntry.Operation.DELETE;
+                if (entry.isSeller()) {
+                    if (delete) {
+                        store.removeSeller(entry.getId());
+                    } else {
+                        Seller row = entry.getSeller();
+                        store.putSeller(MemoryStore.copy(row, MemoryStore.copy(row.getDepartment())));
+                    }
+                } else if (delete) {
+                    store.removeDepartment(entry.getId());
+                } else {
+                    store.putDepartment(MemoryStore.copy(entry.getDepartment()));
+                }
+            }
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+        if (!entries.isEmpty()) {
+            LOG.info(() -> entries.size() + " local changes are waiting for the server");
+        }
+    }
+
+    @Override
+    public SellerDao createSellerDao() {
+        return new SellerDaoOffline(this);
+    }
+
+    @Override
+    public DepartmentDao createDepartmentDao() {
+        return new DepartmentDaoOffline(this);
+    }
+
+    /**
+     * Runs the work in a local transaction and appends the writes it
+     * recorded to the outbox before committing. If the outbox cannot be
+     * written the local changes are rolled back too.
+     */
+    @Override
+    public <T> T inTransaction(Supplier<T> work) {
+        MemoryStore store = getStore();
+        return store.inTransaction(() -> {
+            if (store.lock.writeLock().getHoldCount() > 1) {
+                return work.get();
+            }
+            pending = new ArrayList<>();
+            try {
+                T result = work.get();
+                outbox.appendAll(pending);
+                return result;
+            } finally {
+                pending = null;
+            }
+        });
+    }
+
+    /**
+     * Adds a write to the outbox. Must be called inside inTransaction.
+     */
+    void record(OutboxEntry entry) {
+        pending.add(entry);
+    }
+
+    /**
+     * Forgets the pending writes for a row that never reached the server.
+     */
+    void forget(boolean seller, int localId) {
+        outbox.removeIf(entry -> entry.isFor(seller, localId));
+    }
+
+    void alias(boolean seller, int localId, int serverId) {
+        (seller ? sellerAliases : departmentAliases).put(localId, serverId);
+    }
+
+    Integer resolveSellerId(Integer id) {
+        return id == null ? null : sellerAliases.getOrDefault(id, id);
+    }
+
+    Integer resolveDepartmentId(Integer id) {
+        return id == null ? null : departmentAliases.getOrDefault(id, id);
+    }
+
+    Department resolve(Department obj) {
+        Integer id = resolveDepartmentId(obj.getId());
+        if (id == null || id.equals(obj.getId())) {
+            return obj;
+        }
+        Department resolved = MemoryStore.copy(obj);
+        resolved.setId(id);
+        return resolved;
+    }
+
+    /**
+     * Runs a sync round on the calling thread. Throws DbException when the
+     * server cannot be reached.
+     */
+    void syncNow() {
+        worker.runOnce();
+    }
+
+    public int getPendingCount() {
+        return outbox.size();
+    }
+
+    public boolean isOnline() {
+        return worker.isOnline();
+    }
+
+    @Override
+    public void close() {
+        worker.stop();
+        try {
+            super.close();
+        } finally {
+            outbox.close();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package model.dao.impl;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+import db.DbException;
+
+/**
+ * Local writes waiting for the server, in the order they were made. New
+ * entries are appended to the file and forced to disk before the write
+ * returns; removing entries rewrites the file through a temporary copy. A
+ * record cut short by a crash is dropped when the file is read back.
+ */
+class Outbox {
+
+    private static final Logger LOG = Logger.getLogger(Outbox.class.getName());
+
+    private final Path file;
+
+    private final Deque<OutboxEntry> entries = new ArrayDeque<>();
+
+    private FileChannel channel;
+
+    Outbox(Path file) {
+        this.file = file;
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            if (Files.exists(file) && load()) {
+                rewrite();
+            }
+            channel = open();
+        } catch (IOException e) {
+            throw new DbException("Could not open outbox " + file + ": " + e.getMessage());
+        }
+    }
+
+    private FileChannel open() throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Reads the entries back and tells whether a damaged tail was skipped.
+     */
+    private boolean load() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return false;
+                }
+                byte[] bytes = new byte[length];
+                try {
+                    in.readFully(bytes);
+                    entries.add(deserialize(bytes));
+                } catch (EOFException | ClassNotFoundException | ClassCastException e) {
+                    LOG.warning("Dropping an incomplete record at the end of " + file);
+                    return true;
+                }
+            }
+        }
+    }
+
+    synchronized void appendAll(List<OutboxEntry> newEntries) {
+        if (newEntries.isEmpty()) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(buffer);
+            for (OutboxEntry entry : newEntries) {
+                byte[] bytes = serialize(entry);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            ByteBuffer data = ByteBuffer.wrap(buffer.toByteArray());
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            try {
+                persist();
+            } catch (DbException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw new DbException("Could not write to outbox " + file + ": " + e.getMessage());
+        }
+        entries.addAll(newEntries);
+    }
+
+    synchronized OutboxEntry peek() {
+        return entries.peekFirst();
+    }
+
+    synchronized List<OutboxEntry> entries() {
+        return new ArrayList<>(entries);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    synchronized void removeFirst() {
+        entries.removeFirst();
+        persist();
+    }
+
+    synchronized int removeIf(Predicate<OutboxEntry> filter) {
+        int before = entries.size();
+        entries.removeIf(filter);
+        int removed = before - entries.size();
+        if (removed > 0) {
+            persist();
+        }
+        return removed;
+    }
+
+    /**
+     * Saves entries that were changed in place, such as remapped ids.
+     */
+    synchronized void persist() {
+        try {
+            channel.close();
+            rewrite();
+            channel = open();
+        } catch (IOException e) {
+            throw new DbException("Could not rewrite outbox " + file + ": " + e.getMessage());
+        }
+    }
+
+    private void rewrite() throws IOException {
+        Path tmp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(tmp))) {
+            for (OutboxEntry entry : entries) {
+                byte[] bytes = serialize(entry);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+        try (FileChannel tmpChannel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            tmpChannel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    synchronized void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new DbException(e.getMessage());
+        }
+    }
+
+    private static byte[] serialize(OutboxEntry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(entry);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static OutboxEntry deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (OutboxEntry) in.readObject();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package model.dao.impl;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+import model.entities.Department;
+import model.entities.Seller;
+
+/**
+ * One local write waiting to be sent to the server: the row as it was
+ * saved locally and, for updates and deletes, the version the server is expected to
+ * still have.
+ */
+class OutboxEntry implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    enum Operation {
+        INSERT, UPDATE, DELETE
+    }
+
+    private final Operation operation;
+
+    private final boolean seller;
+
+    private int id;
+
+    private final Integer baseVersion;
+
+    private final Serializable row;
+
+    private final String clientKey;
+
+    private OutboxEntry(Operation operation, boolean seller, int id, Integer baseVersion, Serializable row) {
+        this.operation = operation;
+        this.seller = seller;
+        this.id = id;
+        this.baseVersion = baseVersion;
+        this.row = row;
+        this.clientKey = operation == Operation.INSERT ? UUID.randomUUID().toString() : null;
+    }
+
+    static OutboxEntry insert(Seller obj) {
+        return new OutboxEntry(Operation.INSERT, true, obj.getId(), null, copy(obj));
+    }
+
+    static OutboxEntry update(Seller obj, Integer baseVersion) {
+        return new OutboxEntry(Operation.UPDATE, true, obj.getId(), baseVersion, copy(obj));
+    }
+
+    static OutboxEntry deleteSeller(int id, Integer baseVersion) {
+        return new OutboxEntry(Operation.DELETE, true, id, baseVersion, null);
+    }
+
+    static OutboxEntry insert(Department obj) {
+        return new OutboxEntry(Operation.INSERT, false, obj.getId(), null, MemoryStore.copy(obj));
+    }
+
+    static OutboxEntry update(Department obj, Integer baseVersion) {
+        return new OutboxEntry(Operation.UPDATE, false, obj.getId(), baseVersion, MemoryStore.copy(obj));
+    }
+
+    static OutboxEntry deleteDepartment(int id, Integer baseVersion) {
+        return new OutboxEntry(Operation.DELETE, false, id, baseVersion, null);
+    }
+
+    private static Seller copy(Seller obj) {
+        return MemoryStore.copy(obj, new Department(obj.getDepartment().getId(), null));
+    }
+
+    Operation getOperation() {
+        return operation;
+    }
+
+    boolean isSeller() {
+        return seller;
+    }
+
+    int getId() {
+        return id;
+    }
+
+    Integer getBaseVersion() {
+        return baseVersion;
+    }
+
+    /**
+     * For inserts, the key stored with the row on the server so a replayed
+     * insert finds the row instead of creating it again.
+     */
+    String getClientKey() {
+        return clientKey;
+    }
+
+    Seller getSeller() {
+        return (Seller) row;
+    }
+
+    Department getDepartment() {
+        return (Department) row;
+    }
+
+    /**
+     * Points the entry at the id the server gave a row that was created
+     * offline.
+     */
+    void remap(boolean sellerRow, int localId, int serverId) {
+        if (sellerRow == seller && id == localId) {
+            id = serverId;
+            if (row instanceof Seller) {
+                getSeller().setId(serverId);
+            } else if (row instanceof Department) {
+                getDepartment().setId(serverId);
+            }
+        }
+        if (!sellerRow && row instanceof Seller && getSeller().getDepartment().getId() == localId) {
+            getSeller().getDepartment().setId(serverId);
+        }
+    }
+
+    boolean isFor(boolean sellerRow, int rowId) {
+        return seller == sellerRow && id == rowId;
+    }
+
+    @Override
+    public String toString() {
+        return operation + " " + (seller ? "seller " : "department ") + id;
+    }
+}
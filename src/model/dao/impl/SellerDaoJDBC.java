@@ -6,177 +6,608 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 import db.DB;
+import db.DbConcurrencyException;
 import db.DbException;
+import db.RowMapper;
 import model.dao.SellerDao;
+import model.dao.SellerSearchCriteria;
 import model.entities.Department;
 import model.entities.Seller;
 
 public class SellerDaoJDBC implements SellerDao {
 
-   private Connection conn;
+    private static final int STREAM_FETCH_SIZE = 1000;
 
-    public SellerDaoJDBC(Connection conn) {
-        this.conn = conn;
+    private CachingDepartmentDao departmentCache;
+
+    public SellerDaoJDBC(CachingDepartmentDao departmentCache) {
+        this.departmentCache = departmentCache;
     }
 
     @Override
     public void insert(Seller obj) {
+        insert(obj, null);
+    }
+
+    /**
+     * Inserts the row tagged with a client key, unique per row, so a
+     * client that lost track of an insert can look the row up again with
+     * findIdByClientKey instead of inserting it twice.
+     */
+    void insert(Seller obj, String clientKey) {
+        Connection conn = null;
         PreparedStatement st = null;
         try {
-            st = conn.prepareStatement("INSERT INTO seller " +
-                "(Name, Email, BirthDate, BaseSalary, DepartmentId) VALUES " + 
-                "(?, ?, ?, ?, ?)",
-                Statement.RETURN_GENERATED_KEYS);
+            conn = DB.getConnection();
+            if (clientKey == null) {
+                st = conn.prepareStatement("INSERT INTO seller " +
+                    "(Name, Email, BirthDate, BaseSalary, DepartmentId) VALUES " + 
+                    "(?, ?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS);
+            } else {
+                st = conn.prepareStatement("INSERT INTO seller " +
+                    "(Name, Email, BirthDate, BaseSalary, DepartmentId, ClientKey) VALUES " +
+                    "(?, ?, ?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS);
+                st.setString(6, clientKey);
+            }
             st.setString(1, obj.getName());
             st.setString(2, obj.getEmail());
-            st.setDate(3, new Date(obj.getBirthDate().getTime()));
+            st.setDate(3, Date.valueOf(obj.getBirthDate()));
             st.setDouble(4, obj.getBaseSalary());
             st.setInt(5, obj.getDepartment().getId());
             int rowsAffected = st.executeUpdate();
             if (rowsAffected > 0) {
-                ResultSet rs = st.getGeneratedKeys();
-                if (rs.next()) {
-                    obj.setId(rs.getInt("1"));
+                try (ResultSet rs = st.getGeneratedKeys()) {
+                    if (rs.next()) {
+                        obj.setId(rs.getInt(1));
+                    }
                 }
             }
+            obj.setVersion(0);
         } catch (SQLException e) {
             throw new DbException(e.getMessage());
         } finally {
+            DB.markWritten();
             DB.closeStatement(st);
+            DB.closeConnection(conn);
+        }
+    }
+
+    Integer findIdByClientKey(String clientKey) {
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+        try {
+            // the primary: a replica may not have the row yet
+            conn = DB.getConnection();
+            st = conn.prepareStatement("SELECT Id FROM seller WHERE ClientKey = ?");
+            st.setString(1, clientKey);
+            rs = st.executeQuery();
+            return rs.next() ? rs.getInt(1) : null;
+        } catch (SQLException e) {
+            throw new DbException(e.getMessage());
+        } finally {
+            DB.closeResultSet(rs);
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
         }
     }
 
     @Override
     public void update(Seller obj) {
+        requireVersion(obj);
+        Connection conn = null;
         PreparedStatement st = null;
         try {
+            conn = DB.getConnection();
             st = conn.prepareStatement("UPDATE seller " +
-            "SET Name = ?, Email = ?, BirthDate = ?, BaseSalary = ?, DepartmentId = ? " +
-            "WHERE Id = ?");
+            "SET Name = ?, Email = ?, BirthDate = ?, BaseSalary = ?, DepartmentId = ?, Version = Version + 1 " +
+            "WHERE Id = ? AND Version = ?");
             st.setString(1, obj.getName());
             st.setString(2, obj.getEmail());
-            st.setDate(3, new Date(obj.getBirthDate().getTime()));
+            st.setDate(3, Date.valueOf(obj.getBirthDate()));
             st.setDouble(4, obj.getBaseSalary());
             st.setInt(5, obj.getDepartment().getId());
             st.setInt(6, obj.getId());
-            st.executeUpdate();
+            st.setInt(7, obj.getVersion());
+            if (st.executeUpdate() == 0) {
+                throw conflict(obj, 0);
+            }
+            obj.setVersion(obj.getVersion() + 1);
         } catch (SQLException e) {
             throw new DbException(e.getMessage());
         } finally {
+            DB.markWritten();
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
+        }
+    }
+
+    @Override
+    public List<Integer> insertAll(Collection<Seller> sellers, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        List<Integer> keys = new ArrayList<>(sellers.size());
+        Connection conn = null;
+        PreparedStatement st = null;
+        int committed = 0;
+        try {
+            conn = DB.getConnection();
+            conn.setAutoCommit(false);
+            st = conn.prepareStatement("INSERT INTO seller " +
+                "(Name, Email, BirthDate, BaseSalary, DepartmentId) VALUES " +
+                "(?, ?, ?, ?, ?)",
+                Statement.RETURN_GENERATED_KEYS);
+            List<Seller> chunk = new ArrayList<>(chunkSize);
+            for (Seller obj : sellers) {
+                setSellerParameters(st, obj);
+                st.addBatch();
+                chunk.add(obj);
+                if (chunk.size() == chunkSize) {
+                    executeInsertChunk(conn, st, chunk, keys);
+                    committed += chunk.size();
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                executeInsertChunk(conn, st, chunk, keys);
+            }
+            return keys;
+        } catch (SQLException e) {
+            DbException failure = new DbException(e.getMessage() + " (" + committed + " rows committed)");
+            rollbackQuietly(conn, failure);
+            throw failure;
+        } finally {
+            DB.markWritten();
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
+        }
+    }
+
+    private void executeInsertChunk(Connection conn, PreparedStatement st, List<Seller> chunk, List<Integer> keys)
+            throws SQLException {
+        st.executeBatch();
+        ResultSet rs = st.getGeneratedKeys();
+        try {
+            int i = 0;
+            while (rs.next() && i < chunk.size()) {
+                int id = rs.getInt(1);
+                chunk.get(i).setVersion(0);
+                chunk.get(i++).setId(id);
+                keys.add(id);
+            }
+        } finally {
+            DB.closeResultSet(rs);
+        }
+        conn.commit();
+    }
+
+    @Override
+    public int updateAll(Collection<Seller> sellers, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        for (Seller obj : sellers) {
+            requireVersion(obj);
+        }
+        Connection conn = null;
+        PreparedStatement st = null;
+        int committed = 0;
+        int rowsAffected = 0;
+        try {
+            conn = DB.getConnection();
+            conn.setAutoCommit(false);
+            st = conn.prepareStatement("UPDATE seller " +
+            "SET Name = ?, Email = ?, BirthDate = ?, BaseSalary = ?, DepartmentId = ?, Version = Version + 1 " +
+            "WHERE Id = ? AND Version = ?");
+            List<Seller> chunk = new ArrayList<>(Math.min(chunkSize, sellers.size()));
+            for (Seller obj : sellers) {
+                setSellerParameters(st, obj);
+                st.setInt(6, obj.getId());
+                st.setInt(7, obj.getVersion());
+                st.addBatch();
+                chunk.add(obj);
+                if (chunk.size() == chunkSize) {
+                    rowsAffected += executeUpdateChunk(conn, st, chunk, committed);
+                    committed += chunk.size();
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                rowsAffected += executeUpdateChunk(conn, st, chunk, committed);
+            }
+            return rowsAffected;
+        } catch (SQLException e) {
+            DbException failure = new DbException(e.getMessage() + " (" + committed + " rows committed)");
+            rollbackQuietly(conn, failure);
+            throw failure;
+        } finally {
+            DB.markWritten();
             DB.closeStatement(st);
+            DB.closeConnection(conn);
         }
     }
 
-    private Department instantiateDepartment(ResultSet rs) throws SQLException {
-        Department dep = new Department();
-        dep.setId(rs.getInt("DepartmentId"));
-        dep.setName(rs.getString("DepName"));
-        return dep;
+    private int executeUpdateChunk(Connection conn, PreparedStatement st, List<Seller> chunk, int committed)
+            throws SQLException {
+        int[] counts = st.executeBatch();
+        for (int i = 0; i < counts.length && i < chunk.size(); i++) {
+            if (counts[i] == 0) {
+                DbConcurrencyException failure = conflict(chunk.get(i), committed);
+                rollbackQuietly(conn, failure);
+                throw failure;
+            }
+        }
+        conn.commit();
+        for (Seller obj : chunk) {
+            obj.setVersion(obj.getVersion() + 1);
+        }
+        return countAffected(counts);
     }
 
-    private Seller instantiateSeller(ResultSet rs, Department dep) throws SQLException {
-        Seller obj = new Seller();
-        obj.setId(rs.getInt("Id"));
-        obj.setName(rs.getString("Name"));
-        obj.setEmail(rs.getString("Email"));
-        obj.setBirthDate(new java.util.Date(rs.getTimestamp("BirthDate").getTime()));
-        obj.setBaseSalary(rs.getDouble("BaseSalary"));
-        obj.setDepartment(dep);
-        return obj;
+    /**
+     * A row without a version was never read from the database, so the
+     * version check could only fail; that is a bug in the caller, not a
+     * concurrent change.
+     */
+    private static void requireVersion(Seller obj) {
+        if (obj.getVersion() == null) {
+            throw new IllegalArgumentException("Seller " + obj.getId() + " has no version to check");
+        }
+    }
+
+    private static DbConcurrencyException conflict(Seller obj, int committed) {
+        String msg = "Seller " + obj.getId() + " was changed or removed by another user";
+        if (committed > 0) {
+            msg += " (" + committed + " rows committed)";
+        }
+        return new DbConcurrencyException(msg);
+    }
+
+    private void setSellerParameters(PreparedStatement st, Seller obj) throws SQLException {
+        st.setString(1, obj.getName());
+        st.setString(2, obj.getEmail());
+        st.setDate(3, Date.valueOf(obj.getBirthDate()));
+        st.setDouble(4, obj.getBaseSalary());
+        st.setInt(5, obj.getDepartment().getId());
+    }
+
+    private static int countAffected(int[] counts) {
+        int total = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                total += count;
+            } else if (count == Statement.SUCCESS_NO_INFO) {
+                total++;
+            }
+        }
+        return total;
     }
 
+    /**
+     * Rolls back after a failure, keeping a failed rollback as a suppressed
+     * exception of the failure instead of hiding it.
+     */
+    private static void rollbackQuietly(Connection conn, Throwable cause) {
+        if (conn != null) {
+            try {
+                conn.rollback();
+            } catch (SQLException e) {
+                cause.addSuppressed(e);
+            }
+        }
+    }
+
+    private RowMapper<Seller> sellerMapper(ResultSet rs) throws SQLException {
+        int[] col = DB.columnIndexes(rs, "Id", "Name", "Email", "BirthDate", "BaseSalary", "DepartmentId", "Version",
+                "DepName", "DepVersion");
+        return row -> {
+            Seller obj = new Seller();
+            obj.setId(row.getInt(col[0]));
+            obj.setName(row.getString(col[1]));
+            obj.setEmail(row.getString(col[2]));
+            obj.setBirthDate(row.getObject(col[3], LocalDate.class));
+            obj.setBaseSalary(row.getDouble(col[4]));
+            obj.setVersion(row.getInt(col[6]));
+            obj.setDepartment(departmentCache.intern(row.getInt(col[5]), row.getString(col[7]),
+                    row.getInt(col[8])));
+            return obj;
+        };
+    }
 
     @Override
     public Seller findById(Integer id) {
+        Connection conn = null;
         PreparedStatement st = null;
         ResultSet rs = null;
         try {
-            st = conn.prepareStatement("SELECT * FROM seller INNER JOIN " +
+            conn = DB.getReadConnection();
+            st = conn.prepareStatement("SELECT seller.*, department.Name AS DepName, " +
+            "department.Version AS DepVersion FROM seller INNER JOIN " +
             " department ON seller.DepartmentId = department.Id " + 
-            "WHERE Id = ?");
+            "WHERE seller.Id = ?");
             st.setInt(1, id);
             rs = st.executeQuery();
             if (rs.next()) {
-                Department dep = instantiateDepartment(rs);
-                Seller obj = instantiateSeller(rs, dep);
-                return obj;
+                return sellerMapper(rs).mapRow(rs);
             }
             return null;
         } catch (SQLException e) {
             throw new DbException(e.getMessage());
         } finally {
-            DB.closeStatement(st);
             DB.closeResultSet(rs);
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
         }
     }
 
-
+    @Override
+    public List<Seller> findByIds(Collection<Integer> ids) {
+        List<Integer> sorted = DB.distinctIds(ids);
+        List<Seller> list = new ArrayList<>(sorted.size());
+        if (sorted.isEmpty()) {
+            return list;
+        }
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+        try {
+            conn = DB.getReadConnection();
+            int preparedSize = 0;
+            for (int from = 0; from < sorted.size(); from += DB.IN_LIST_SIZE) {
+                List<Integer> chunk = sorted.subList(from, Math.min(from + DB.IN_LIST_SIZE, sorted.size()));
+                int size = DB.inListSize(chunk.size());
+                if (size != preparedSize) {
+                    DB.closeStatement(st);
+                    st = conn.prepareStatement("SELECT seller.*, department.Name AS DepName, " +
+                    "department.Version AS DepVersion FROM seller INNER JOIN " +
+                    " department ON seller.DepartmentId = department.Id " +
+                    "WHERE seller.Id IN (" + DB.placeholders(size) + ") " +
+                    "ORDER BY seller.Id");
+                    preparedSize = size;
+                }
+                for (int i = 0; i < size; i++) {
+                    st.setInt(i + 1, chunk.get(Math.min(i, chunk.size() - 1)));
+                }
+                rs = st.executeQuery();
+                RowMapper<Seller> mapper = sellerMapper(rs);
+                while (rs.next()) {
+                    list.add(mapper.mapRow(rs));
+                }
+                DB.closeResultSet(rs);
+                rs = null;
+            }
+            return list;
+        } catch (SQLException e) {
+            throw new DbException(e.getMessage());
+        } finally {
+            DB.closeResultSet(rs);
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
+        }
+    }
 
     @Override
     public List<Seller> findByDepartment(Department department) {
         List<Seller> list = new ArrayList<>();
+        Connection conn = null;
         PreparedStatement st = null;
         ResultSet rs = null;
         try {
-            st = conn.prepareStatement("SELECT seller.*, department.Name AS DepName FROM seller INNER JOIN " +
+            conn = DB.getReadConnection();
+            st = conn.prepareStatement("SELECT seller.*, department.Name AS DepName, " +
+            "department.Version AS DepVersion FROM seller INNER JOIN " +
             " department ON seller.DepartmentId = department.Id " + 
             "WHERE DepartmentId = ? " +
             "ORDER BY Name");
             st.setInt(1, department.getId());
             rs = st.executeQuery();
+            RowMapper<Seller> mapper = sellerMapper(rs);
             while (rs.next()) {
-                Department dep = instantiateDepartment(rs);
-                Seller obj = instantiateSeller(rs, dep);
-                list.add(obj);
+                list.add(mapper.mapRow(rs));
             }
             return list;
         } catch (SQLException e) {
             throw new DbException(e.getMessage());
         } finally {
-            DB.closeStatement(st);
             DB.closeResultSet(rs);
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
         }
     }
 
     @Override
     public List<Seller> findAll() {
         List<Seller> list = new ArrayList<>();
+        Connection conn = null;
         PreparedStatement st = null;
         ResultSet rs = null;
         try {
-            st = conn.prepareStatement("SELECT seller.*, department.Name AS DepName FROM seller INNER JOIN " +
+            conn = DB.getReadConnection();
+            st = conn.prepareStatement("SELECT seller.*, department.Name AS DepName, " +
+            "department.Version AS DepVersion FROM seller INNER JOIN " +
             " department ON seller.DepartmentId = department.Id " + 
             "ORDER BY Name");
             rs = st.executeQuery();
+            RowMapper<Seller> mapper = sellerMapper(rs);
             while (rs.next()) {
-                Department dep = instantiateDepartment(rs);
-                Seller obj = instantiateSeller(rs, dep);
-                list.add(obj);
+                list.add(mapper.mapRow(rs));
             }
             return list;
         } catch (SQLException e) {
             throw new DbException(e.getMessage());
         } finally {
+            DB.closeResultSet(rs);
             DB.closeStatement(st);
+            DB.closeConnection(conn);
+        }
+    }
+
+    @Override
+    public long streamAll(Consumer<Seller> action) {
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+        try {
+            conn = DB.getReadConnection();
+            st = conn.prepareStatement("SELECT seller.*, department.Name AS DepName, " +
+            "department.Version AS DepVersion FROM seller INNER JOIN " +
+            " department ON seller.DepartmentId = department.Id " +
+            "ORDER BY seller.Id",
+            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            st.setFetchSize(STREAM_FETCH_SIZE);
+            rs = st.executeQuery();
+            RowMapper<Seller> mapper = sellerMapper(rs);
+            long count = 0;
+            while (rs.next()) {
+                action.accept(mapper.mapRow(rs));
+                count++;
+            }
+            return count;
+        } catch (SQLException e) {
+            throw new DbException(e.getMessage());
+        } finally {
+            DB.closeResultSet(rs);
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
+        }
+    }
+
+    @Override
+    public List<Seller> findPage(String afterName, Integer afterId, int limit) {
+        return search(new SellerSearchCriteria(), afterName, afterId, limit);
+    }
+
+    @Override
+    public List<Seller> search(SellerSearchCriteria criteria, String afterName, Integer afterId, int limit) {
+        List<Seller> list = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT seller.*, department.Name AS DepName, " +
+            "department.Version AS DepVersion FROM seller INNER JOIN " +
+            " department ON seller.DepartmentId = department.Id " +
+            "WHERE 1 = 1");
+        if (criteria.getNamePrefix() != null && !criteria.getNamePrefix().trim().isEmpty()) {
+            sql.append(" AND seller.Name LIKE ?");
+            params.add(escapeLike(criteria.getNamePrefix().trim()) + "%");
+        }
+        if (criteria.getEmailPrefix() != null && !criteria.getEmailPrefix().trim().isEmpty()) {
+            sql.append(" AND seller.Email LIKE ?");
+            params.add(escapeLike(criteria.getEmailPrefix().trim()) + "%");
+        }
+        if (criteria.getDepartment() != null) {
+            sql.append(" AND seller.DepartmentId = ?");
+            params.add(criteria.getDepartment().getId());
+        }
+        if (criteria.getMinBaseSalary() != null) {
+            sql.append(" AND seller.BaseSalary >= ?");
+            params.add(criteria.getMinBaseSalary());
+        }
+        if (criteria.getMaxBaseSalary() != null) {
+            sql.append(" AND seller.BaseSalary <= ?");
+            params.add(criteria.getMaxBaseSalary());
+        }
+        if (criteria.getBirthDateFrom() != null) {
+            sql.append(" AND seller.BirthDate >= ?");
+            params.add(Date.valueOf(criteria.getBirthDateFrom()));
+        }
+        if (criteria.getBirthDateTo() != null) {
+            sql.append(" AND seller.BirthDate <= ?");
+            params.add(Date.valueOf(criteria.getBirthDateTo()));
+        }
+        if (afterName != null) {
+            sql.append(" AND (seller.Name > ? OR (seller.Name = ? AND seller.Id > ?))");
+            params.add(afterName);
+            params.add(afterName);
+            params.add(afterId);
+        }
+        sql.append(" ORDER BY seller.Name, seller.Id LIMIT ?");
+        params.add(limit);
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+        try {
+            conn = DB.getReadConnection();
+            st = conn.prepareStatement(sql.toString());
+            for (int i = 0; i < params.size(); i++) {
+                st.setObject(i + 1, params.get(i));
+            }
+            rs = st.executeQuery();
+            RowMapper<Seller> mapper = sellerMapper(rs);
+            while (rs.next()) {
+                list.add(mapper.mapRow(rs));
+            }
+            return list;
+        } catch (SQLException e) {
+            throw new DbException(e.getMessage());
+        } finally {
             DB.closeResultSet(rs);
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
         }
     }
 
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
     @Override
     public void deleteById(Integer id) {
+        Connection conn = null;
         PreparedStatement st = null;
         try {
+            conn = DB.getConnection();
             st = conn.prepareStatement("DELETE FROM seller WHERE Id = ?");
             st.setInt(1, id);
             st.executeUpdate();
         } catch (SQLException e) {
             throw new DbException(e.getMessage());
         } finally {
+            DB.markWritten();
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
+        }
+    }
+
+    /**
+     * Deletes the row only if it still has the given version. Deleting a
+     * row that is already gone succeeds; deleting one that was changed in
+     * the meantime throws DbConcurrencyException.
+     */
+    void deleteById(Integer id, int version) {
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+        try {
+            conn = DB.getConnection();
+            st = conn.prepareStatement("DELETE FROM seller WHERE Id = ? AND Version = ?");
+            st.setInt(1, id);
+            st.setInt(2, version);
+            if (st.executeUpdate() > 0) {
+                return;
+            }
+            DB.closeStatement(st);
+            st = conn.prepareStatement("SELECT 1 FROM seller WHERE Id = ?");
+            st.setInt(1, id);
+            rs = st.executeQuery();
+            if (rs.next()) {
+                throw new DbConcurrencyException("Seller " + id + " was changed by another user");
+            }
+        } catch (SQLException e) {
+            throw new DbException(e.getMessage());
+        } finally {
+            DB.markWritten();
+            DB.closeResultSet(rs);
             DB.closeStatement(st);
+            DB.closeConnection(conn);
         }
     }
 }
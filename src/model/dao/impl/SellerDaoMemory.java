@@ -0,0 +1,297 @@
+package model.dao.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import db.DbConcurrencyException;
+import db.DbException;
+import model.dao.SellerDao;
+import model.dao.SellerSearchCriteria;
+import model.dao.impl.MemoryStore.SellerKey;
+import model.entities.Department;
+import model.entities.Seller;
+
+public class SellerDaoMemory implements SellerDao {
+
+    private final MemoryStore store;
+
+    SellerDaoMemory(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void insert(Seller obj) {
+        store.inTransaction(() -> {
+            Department department = requireDepartment(obj, 0);
+            obj.setId(store.nextSellerId());
+            obj.setVersion(0);
+            store.putSeller(MemoryStore.copy(obj, department));
+            return null;
+        });
+    }
+
+    @Override
+    public void update(Seller obj) {
+        store.inTransaction(() -> {
+            checkVersion(obj, 0);
+            Department department = requireDepartment(obj, 0);
+            Seller stored = MemoryStore.copy(obj, department);
+            stored.setVersion(obj.getVersion() + 1);
+            store.putSeller(stored);
+            obj.setVersion(stored.getVersion());
+            return null;
+        });
+    }
+
+    @Override
+    public List<Integer> insertAll(Collection<Seller> sellers, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        List<Integer> keys = new ArrayList<>(sellers.size());
+        List<Seller> chunk = new ArrayList<>(Math.min(chunkSize, sellers.size()));
+        for (Seller obj : sellers) {
+            chunk.add(obj);
+            if (chunk.size() == chunkSize) {
+                insertChunk(chunk, keys);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            insertChunk(chunk, keys);
+        }
+        return keys;
+    }
+
+    void insertChunk(List<Seller> chunk, List<Integer> keys) {
+        store.inTransaction(() -> {
+            List<Department> departments = new ArrayList<>(chunk.size());
+            for (Seller obj : chunk) {
+                departments.add(requireDepartment(obj, keys.size()));
+            }
+            for (int i = 0; i < chunk.size(); i++) {
+                Seller obj = chunk.get(i);
+                obj.setId(store.nextSellerId());
+                obj.setVersion(0);
+                store.putSeller(MemoryStore.copy(obj, departments.get(i)));
+                keys.add(obj.getId());
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public int updateAll(Collection<Seller> sellers, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        int committed = 0;
+        List<Seller> chunk = new ArrayList<>(Math.min(chunkSize, sellers.size()));
+        for (Seller obj : sellers) {
+            chunk.add(obj);
+            if (chunk.size() == chunkSize) {
+                updateChunk(chunk, committed);
+                committed += chunk.size();
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            updateChunk(chunk, committed);
+            committed += chunk.size();
+        }
+        return committed;
+    }
+
+    void updateChunk(List<Seller> chunk, int committed) {
+        store.inTransaction(() -> {
+            List<Department> departments = new ArrayList<>(chunk.size());
+            for (Seller obj : chunk) {
+                checkVersion(obj, committed);
+                departments.add(requireDepartment(obj, committed));
+            }
+            for (int i = 0; i < chunk.size(); i++) {
+                Seller stored = MemoryStore.copy(chunk.get(i), departments.get(i));
+                stored.setVersion(chunk.get(i).getVersion() + 1);
+                store.putSeller(stored);
+            }
+            for (Seller obj : chunk) {
+                obj.setVersion(obj.getVersion() + 1);
+            }
+            return null;
+        });
+    }
+
+    private void checkVersion(Seller obj, int committed) {
+        Seller current = store.getSeller(obj.getId());
+        if (current == null || !Objects.equals(current.getVersion(), obj.getVersion())) {
+            String msg = "Seller " + obj.getId() + " was changed or removed by another user";
+            if (committed > 0) {
+                msg += " (" + committed + " rows committed)";
+            }
+            throw new DbConcurrencyException(msg);
+        }
+    }
+
+    private Department requireDepartment(Seller obj, int committed) {
+        Department department = store.getDepartment(obj.getDepartment().getId());
+        if (department == null) {
+            String msg = "Department " + obj.getDepartment().getId() + " does not exist";
+            if (committed > 0) {
+                msg += " (" + committed + " rows committed)";
+            }
+            throw new DbException(msg);
+        }
+        return department;
+    }
+
+    @Override
+    public Seller findById(Integer id) {
+        store.lock.readLock().lock();
+        try {
+            Seller stored = store.getSeller(id);
+            return stored == null ? null : store.toEntity(stored);
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Seller> findByIds(Collection<Integer> ids) {
+        List<Seller> list = new ArrayList<>(ids.size());
+        store.lock.readLock().lock();
+        try {
+            for (Integer id : new TreeSet<>(ids)) {
+                Seller stored = store.getSeller(id);
+                if (stored != null) {
+                    list.add(store.toEntity(stored));
+                }
+            }
+            return list;
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Seller> findAll() {
+        store.lock.readLock().lock();
+        try {
+            return toEntities(store.sellersByName().values());
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Seller> findByDepartment(Department department) {
+        store.lock.readLock().lock();
+        try {
+            return toEntities(store.sellersByDepartment(department.getId()).values());
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long streamAll(Consumer<Seller> action) {
+        List<Seller> rows;
+        store.lock.readLock().lock();
+        try {
+            Map<Integer, Seller> byId = new TreeMap<>();
+            for (Seller stored : store.sellers()) {
+                byId.put(stored.getId(), stored);
+            }
+            rows = toEntities(byId.values());
+        } finally {
+            store.lock.readLock().unlock();
+        }
+        rows.forEach(action);
+        return rows.size();
+    }
+
+    @Override
+    public List<Seller> findPage(String afterName, Integer afterId, int limit) {
+        return search(new SellerSearchCriteria(), afterName, afterId, limit);
+    }
+
+    @Override
+    public List<Seller> search(SellerSearchCriteria criteria, String afterName, Integer afterId, int limit) {
+        String namePrefix = trimToNull(criteria.getNamePrefix());
+        String emailPrefix = trimToNull(criteria.getEmailPrefix());
+        Predicate<Seller> filter = stored -> (emailPrefix == null
+                || startsWithIgnoreCase(stored.getEmail(), emailPrefix))
+                && (criteria.getMinBaseSalary() == null || stored.getBaseSalary() >= criteria.getMinBaseSalary())
+                && (criteria.getMaxBaseSalary() == null || stored.getBaseSalary() <= criteria.getMaxBaseSalary())
+                && (criteria.getBirthDateFrom() == null || stored.getBirthDate() != null
+                        && !stored.getBirthDate().isBefore(criteria.getBirthDateFrom()))
+                && (criteria.getBirthDateTo() == null || stored.getBirthDate() != null
+                        && !stored.getBirthDate().isAfter(criteria.getBirthDateTo()));
+        List<Seller> list = new ArrayList<>(Math.min(limit, 1024));
+        store.lock.readLock().lock();
+        try {
+            NavigableMap<SellerKey, Seller> index = criteria.getDepartment() != null
+                    ? store.sellersByDepartment(criteria.getDepartment().getId())
+                    : store.sellersByName();
+            SellerKey from = null;
+            if (namePrefix != null) {
+                from = MemoryStore.key(namePrefix, null);
+            }
+            if (afterName != null) {
+                SellerKey after = MemoryStore.key(afterName, afterId);
+                if (from == null || after.compareTo(from) > 0) {
+                    index = index.tailMap(after, false);
+                    from = null;
+                }
+            }
+            if (from != null) {
+                index = index.tailMap(from, true);
+            }
+            for (Map.Entry<SellerKey, Seller> entry : index.entrySet()) {
+                if (list.size() >= limit) {
+                    break;
+                }
+                if (namePrefix != null && !startsWithIgnoreCase(entry.getKey().getName(), namePrefix)) {
+                    break;
+                }
+                if (filter.test(entry.getValue())) {
+                    list.add(store.toEntity(entry.getValue()));
+                }
+            }
+            return list;
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    private static String trimToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+
+    private static boolean startsWithIgnoreCase(String value, String prefix) {
+        return value != null && value.regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+
+    @Override
+    public void deleteById(Integer id) {
+        store.inTransaction(() -> {
+            store.removeSeller(id);
+            return null;
+        });
+    }
+
+    private List<Seller> toEntities(Collection<Seller> rows) {
+        List<Seller> list = new ArrayList<>(rows.size());
+        for (Seller stored : rows) {
+            list.add(store.toEntity(stored));
+        }
+        return list;
+    }
+}
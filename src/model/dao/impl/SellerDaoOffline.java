@@ -0,0 +1,101 @@
+package model.dao.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import model.entities.Seller;
+
+/**
+ * Local seller DAO that records every write in the outbox.
+ */
+class SellerDaoOffline extends SellerDaoMemory {
+
+    private final OfflineDaoProvider provider;
+
+    SellerDaoOffline(OfflineDaoProvider provider) {
+        super(provider.getStore());
+        this.provider = provider;
+    }
+
+    @Override
+    public void insert(Seller obj) {
+        provider.inTransaction(() -> {
+            resolve(obj);
+            super.insert(obj);
+            provider.record(OutboxEntry.insert(obj));
+            return null;
+        });
+    }
+
+    @Override
+    public void update(Seller obj) {
+        provider.inTransaction(() -> {
+            resolve(obj);
+            super.update(obj);
+            provider.record(OutboxEntry.update(obj, obj.getVersion() - 1));
+            return null;
+        });
+    }
+
+    @Override
+    void insertChunk(List<Seller> chunk, List<Integer> keys) {
+        provider.inTransaction(() -> {
+            chunk.forEach(this::resolve);
+            super.insertChunk(chunk, keys);
+            for (Seller obj : chunk) {
+                provider.record(OutboxEntry.insert(obj));
+            }
+            return null;
+        });
+    }
+
+    @Override
+    void updateChunk(List<Seller> chunk, int committed) {
+        provider.inTransaction(() -> {
+            chunk.forEach(this::resolve);
+            super.updateChunk(chunk, committed);
+            for (Seller obj : chunk) {
+                provider.record(OutboxEntry.update(obj, obj.getVersion() - 1));
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public Seller findById(Integer id) {
+        return super.findById(provider.resolveSellerId(id));
+    }
+
+    @Override
+    public List<Seller> findByIds(Collection<Integer> ids) {
+        List<Integer> resolved = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            resolved.add(provider.resolveSellerId(id));
+        }
+        return super.findByIds(resolved);
+    }
+
+    @Override
+    public void deleteById(Integer id) {
+        Integer resolved = provider.resolveSellerId(id);
+        provider.inTransaction(() -> {
+            Seller stored = provider.getStore().getSeller(resolved);
+            super.deleteById(resolved);
+            if (resolved < 0) {
+                provider.forget(true, resolved);
+            } else {
+                provider.record(OutboxEntry.deleteSeller(resolved,
+                        stored == null ? null : stored.getVersion()));
+            }
+            return null;
+        });
+    }
+
+    private void resolve(Seller obj) {
+        obj.setId(provider.resolveSellerId(obj.getId()));
+        if (obj.getDepartment() != null) {
+            obj.setDepartment(provider.resolve(obj.getDepartment()));
+        }
+    }
+}
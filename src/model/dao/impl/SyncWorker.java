@@ -0,0 +1,478 @@
+package model.dao.impl;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import db.ChangePoller;
+import db.DB;
+import db.DbConcurrencyException;
+import db.DbException;
+import db.DbIntegrityException;
+import db.RowChange;
+import metrics.Counter;
+import metrics.Metrics;
+import model.entities.Department;
+import model.entities.Seller;
+
+/**
+ * Sends the outbox to the server in order and, once it is empty, pulls
+ * the rows changed on the server at the pull interval. A pull reads the
+ * change_log entries after the last one it saw and re-reads just those
+ * rows from the primary; the first pull, and the one after a pull that
+ * failed or was cut short, replaces every local row. A write the
+ * server rejects because the row changed in the meantime is dropped
+ * together with the later writes to the same row, and the row is reloaded
+ * from the server. While the server cannot be reached the worker just
+ * tries again at the next round.
+ */
+class SyncWorker {
+
+    private static final Logger LOG = Logger.getLogger(SyncWorker.class.getName());
+
+    private static final Counter PUSHED = Metrics.counter("sync.pushed");
+
+    private static final Counter CONFLICTS = Metrics.counter("sync.conflicts");
+
+    private static final Counter REJECTED = Metrics.counter("sync.rejected");
+
+    private static final int CHANGE_BATCH_SIZE = 500;
+
+    /** How long after its own pull interval a missing change_log id is still waited for. */
+    private static final long GAP_TIMEOUT_MILLIS = 30000;
+
+    private final OfflineDaoProvider provider;
+
+    private final MemoryStore store;
+
+    private final Outbox outbox;
+
+    private final JdbcDaoProvider server;
+
+    private final SellerDaoJDBC serverSellers;
+
+    private final DepartmentDaoJDBC serverDepartments;
+
+    private final long syncIntervalSeconds;
+
+    private final long pullIntervalMillis;
+
+    private ScheduledExecutorService scheduler;
+
+    /** The change_log position of the last pull, or null when the next pull must reload everything. */
+    private ChangePoller changeLog;
+
+    private volatile long lastPullAt;
+
+    private volatile long lastSyncAt;
+
+    private volatile long lastFailureAt;
+
+    private volatile boolean online;
+
+    SyncWorker(OfflineDaoProvider provider, Outbox outbox, JdbcDaoProvider server, long syncIntervalSeconds,
+            long pullIntervalSeconds) {
+        this.provider = provider;
+        this.store = provider.getStore();
+        this.outbox = outbox;
+        this.server = server;
+        this.serverSellers = new SellerDaoJDBC(server.getDepartmentCache());
+        this.serverDepartments = new DepartmentDaoJDBC();
+        this.syncIntervalSeconds = Math.max(1, syncIntervalSeconds);
+        this.pullIntervalMillis = TimeUnit.SECONDS.toMillis(pullIntervalSeconds);
+    }
+
+    synchronized void start() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "offline-sync");
+                t.setDaemon(true);
+                return t;
+            });
+            scheduler.scheduleWithFixedDelay(this::runQuietly, 0, syncIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            try {
+                scheduler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            scheduler = null;
+        }
+    }
+
+    boolean isOnline() {
+        return online;
+    }
+
+    long getLastSyncAt() {
+        return lastSyncAt;
+    }
+
+    private void runQuietly() {
+        try {
+            runOnce();
+        } catch (DbException e) {
+            if (online || lastFailureAt == 0) {
+                LOG.log(Level.WARNING, "Server unavailable, " + outbox.size() + " changes kept locally: "
+                        + e.getMessage());
+            }
+            online = false;
+            lastFailureAt = System.currentTimeMillis();
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Sync round failed", e);
+        }
+    }
+
+    /**
+     * Pushes every pending write and pulls when due. Throws DbException
+     * when the server cannot be reached.
+     */
+    synchronized void runOnce() {
+        OutboxEntry entry;
+        boolean pushed = false;
+        while ((entry = outbox.peek()) != null) {
+            push(entry);
+            pushed = true;
+        }
+        if (pushed) {
+            // new server ids must reach the snapshot before the outbox forgets the local ones
+            provider.saveSnapshotQuietly();
+        }
+        if (System.currentTimeMillis() - lastPullAt >= pullIntervalMillis) {
+            pull();
+        }
+        if (!online && lastFailureAt > 0) {
+            LOG.info("Server available again, local changes are synchronized");
+        }
+        online = true;
+        lastSyncAt = System.currentTimeMillis();
+    }
+
+    private void push(OutboxEntry entry) {
+        try {
+            if (entry.isSeller()) {
+                pushSeller(entry);
+            } else {
+                pushDepartment(entry);
+            }
+            PUSHED.increment();
+        } catch (DbConcurrencyException e) {
+            CONFLICTS.increment();
+            LOG.warning("Conflict on " + entry + ", keeping the server version: " + e.getMessage());
+            discard(entry);
+        } catch (DbIntegrityException e) {
+            REJECTED.increment();
+            LOG.warning("Server rejected " + entry + ", keeping the server version: " + e.getMessage());
+            discard(entry);
+        } catch (DbException e) {
+            if (!serverReachable()) {
+                throw e;
+            }
+            REJECTED.increment();
+            LOG.warning("Server rejected " + entry + ", keeping the server version: " + e.getMessage());
+            discard(entry);
+        }
+    }
+
+    private void pushSeller(OutboxEntry entry) {
+        switch (entry.getOperation()) {
+            case INSERT: {
+                Seller row = copyOf(entry.getSeller());
+                row.setId(null);
+                Integer serverId = insertOnce(entry, serverSellers::findIdByClientKey, () -> {
+                    serverSellers.insert(row, entry.getClientKey());
+                    return row.getId();
+                });
+                remap(true, entry.getId(), serverId);
+                break;
+            }
+            case UPDATE: {
+                Seller row = copyOf(entry.getSeller());
+                row.setVersion(entry.getBaseVersion());
+                serverSellers.update(row);
+                outbox.removeFirst();
+                break;
+            }
+            default:
+                if (entry.getBaseVersion() == null) {
+                    serverSellers.deleteById(entry.getId());
+                } else {
+                    serverSellers.deleteById(entry.getId(), entry.getBaseVersion());
+                }
+                outbox.removeFirst();
+                break;
+        }
+    }
+
+    private void pushDepartment(OutboxEntry entry) {
+        switch (entry.getOperation()) {
+            case INSERT: {
+                Department row = MemoryStore.copy(entry.getDepartment());
+                row.setId(null);
+                Integer serverId = insertOnce(entry, serverDepartments::findIdByClientKey, () -> {
+                    serverDepartments.insert(row, entry.getClientKey());
+                    return row.getId();
+                });
+                remap(false, entry.getId(), serverId);
+                break;
+            }
+            case UPDATE: {
+                Department row = MemoryStore.copy(entry.getDepartment());
+                row.setVersion(entry.getBaseVersion());
+                serverDepartments.update(row);
+                outbox.removeFirst();
+                break;
+            }
+            default:
+                if (entry.getBaseVersion() == null) {
+                    serverDepartments.deleteById(entry.getId());
+                } else {
+                    serverDepartments.deleteById(entry.getId(), entry.getBaseVersion());
+                }
+                outbox.removeFirst();
+                break;
+        }
+    }
+
+    /**
+     * Inserts the row unless the server already has it under the entry's
+     * client key, which happens when an earlier round inserted it but
+     * failed before the local id was remapped. Returns the server id.
+     */
+    private static Integer insertOnce(OutboxEntry entry, Function<String, Integer> findByClientKey,
+            Supplier<Integer> insert) {
+        String clientKey = entry.getClientKey();
+        if (clientKey == null) {
+            return insert.get();
+        }
+        Integer serverId = findByClientKey.apply(clientKey);
+        if (serverId != null) {
+            return serverId;
+        }
+        try {
+            return insert.get();
+        } catch (DbException e) {
+            // the insert may have committed before the connection was lost
+            serverId = findByClientKey.apply(clientKey);
+            if (serverId == null) {
+                throw e;
+            }
+            return serverId;
+        }
+    }
+
+    private static Seller copyOf(Seller obj) {
+        return MemoryStore.copy(obj, new Department(obj.getDepartment().getId(), null));
+    }
+
+    /**
+     * Moves a row created offline to the id the server gave it, in the
+     * store, in the pending entries and in the sellers of a new department.
+     */
+    private void remap(boolean seller, int localId, int serverId) {
+        store.inTransaction(() -> {
+            if (seller) {
+                Seller stored = store.getSeller(localId);
+                if (stored != null) {
+                    store.removeSeller(localId);
+                    Seller moved = MemoryStore.copy(stored, stored.getDepartment());
+                    moved.setId(serverId);
+                    store.putSeller(moved);
+                }
+            } else {
+                Department stored = store.getDepartment(localId);
+                if (stored != null) {
+                    List<Seller> sellers = new ArrayList<>(store.sellersByDepartment(localId).values());
+                    Department moved = MemoryStore.copy(stored);
+                    moved.setId(serverId);
+                    store.putDepartment(moved);
+                    for (Seller obj : sellers) {
+                        store.putSeller(MemoryStore.copy(obj, moved));
+                    }
+                    store.removeDepartment(localId);
+                }
+            }
+            provider.alias(seller, localId, serverId);
+            OutboxEntry first = outbox.peek();
+            for (OutboxEntry entry : outbox.entries()) {
+                entry.remap(seller, localId, serverId);
+            }
+            outbox.removeIf(entry -> entry == first);
+            return null;
+        });
+    }
+
+    /**
+     * Drops the entry and every later one for the same row, and puts the
+     * server's version of the row in the store.
+     */
+    private void discard(OutboxEntry entry) {
+        boolean seller = entry.isSeller();
+        int id = entry.getId();
+        Object current = null;
+        if (id > 0) {
+            server.invalidateCaches();
+            current = seller ? serverSellers.findById(id) : serverDepartments.findById(id);
+        }
+        Object row = current;
+        store.inTransaction(() -> {
+            outbox.removeIf(e -> e.isFor(seller, id));
+            if (seller) {
+                store.removeSeller(id);
+                if (row != null) {
+                    store.putSeller(copyOf((Seller) row));
+                }
+            } else if (row != null) {
+                store.putDepartment(MemoryStore.copy((Department) row));
+            } else if (!store.hasSellers(id)) {
+                store.removeDepartment(id);
+            }
+            return null;
+        });
+    }
+
+    private void pull() {
+        long startedAt = System.currentTimeMillis();
+        ChangePoller log = changeLog;
+        // forgotten until this pull has been applied, so one that fails is followed by a full reload
+        changeLog = null;
+        boolean applied;
+        if (log == null) {
+            log = new ChangePoller(pullIntervalMillis, CHANGE_BATCH_SIZE, pullIntervalMillis + GAP_TIMEOUT_MILLIS);
+            log.fetchChanges();
+            applied = pullAll();
+        } else {
+            applied = pullChanges(log.fetchChanges());
+        }
+        lastPullAt = startedAt;
+        if (applied) {
+            changeLog = log;
+        }
+    }
+
+    /**
+     * Replaces every local row with the server's. Returns false without
+     * changing anything if a local write came in meanwhile.
+     */
+    private boolean pullAll() {
+        server.invalidateCaches();
+        // from the primary, which change_log was just read from; a replica may be behind it
+        List<Department> departments = DB.readFromPrimary(serverDepartments::findAll);
+        List<Seller> sellers = DB.readFromPrimary(serverSellers::findAll);
+        Map<Integer, Department> byId = new HashMap<>();
+        for (Department obj : departments) {
+            byId.put(obj.getId(), MemoryStore.copy(obj));
+        }
+        List<Seller> rows = new ArrayList<>(sellers.size());
+        for (Seller obj : sellers) {
+            rows.add(MemoryStore.copy(obj, byId.get(obj.getDepartment().getId())));
+        }
+        store.lock.writeLock().lock();
+        try {
+            if (!outbox.isEmpty()) {
+                return false;
+            }
+            store.replaceAll(byId.values(), rows);
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+        LOG.fine(() -> "Pulled " + departments.size() + " departments and " + sellers.size() + " sellers");
+        return true;
+    }
+
+    /**
+     * Re-reads the changed rows by id and puts them in the store; rows the
+     * server no longer has are removed, with the sellers of a removed
+     * department. Returns false without changing anything if a local write
+     * came in meanwhile.
+     */
+    private boolean pullChanges(List<RowChange> changes) {
+        Set<Integer> departmentIds = new LinkedHashSet<>();
+        Set<Integer> sellerIds = new LinkedHashSet<>();
+        for (RowChange change : changes) {
+            if (change.getTable().equals("department")) {
+                departmentIds.add(change.getRowId());
+            } else if (change.getTable().equals("seller")) {
+                sellerIds.add(change.getRowId());
+            }
+        }
+        if (departmentIds.isEmpty() && sellerIds.isEmpty()) {
+            return true;
+        }
+        server.invalidateCaches();
+        Map<Integer, Department> departments = new HashMap<>();
+        for (Department obj : DB.readFromPrimary(() -> serverDepartments.findByIds(departmentIds))) {
+            departments.put(obj.getId(), MemoryStore.copy(obj));
+        }
+        Map<Integer, Seller> sellers = new HashMap<>();
+        for (Seller obj : DB.readFromPrimary(() -> serverSellers.findByIds(sellerIds))) {
+            sellers.put(obj.getId(), copyOf(obj));
+        }
+        store.lock.writeLock().lock();
+        try {
+            if (!outbox.isEmpty()) {
+                return false;
+            }
+            store.inTransaction(() -> {
+                for (Integer id : departmentIds) {
+                    Department row = departments.get(id);
+                    if (row != null) {
+                        store.putDepartment(row);
+                    } else {
+                        for (Seller obj : new ArrayList<>(store.sellersByDepartment(id).values())) {
+                            store.removeSeller(obj.getId());
+                        }
+                        store.removeDepartment(id);
+                    }
+                }
+                for (Integer id : sellerIds) {
+                    Seller row = sellers.get(id);
+                    if (row != null) {
+                        store.putSeller(row);
+                    } else {
+                        store.removeSeller(id);
+                    }
+                }
+                return null;
+            });
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+        LOG.fine(() -> "Pulled " + departmentIds.size() + " changed departments and " + sellerIds.size()
+                + " changed sellers");
+        return true;
+    }
+
+    private static boolean serverReachable() {
+        Connection conn = null;
+        try {
+            conn = DB.getConnection();
+            return conn.isValid(2);
+        } catch (DbException | SQLException e) {
+            return false;
+        } finally {
+            try {
+                DB.closeConnection(conn);
+            } catch (DbException e) {
+                // the pool drops broken connections on its own
+            }
+        }
+    }
+}
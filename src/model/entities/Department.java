@@ -10,6 +10,8 @@ public class Department implements Serializable {
 
     private String name;
 
+    private Integer version;
+
     public Department() {
     }
 
@@ -18,6 +20,12 @@ public class Department implements Serializable {
         this.name = name;
     }
 
+    public Department(int id, String name, int version) {
+        this.id = id;
+        this.name = name;
+        this.version = version;
+    }
+
     public Integer getId() {
         return id;
     }
@@ -34,6 +42,14 @@ public class Department implements Serializable {
         this.name = name;
     }
 
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
 
     @Override
     public int hashCode() {
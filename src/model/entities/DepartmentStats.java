@@ -0,0 +1,82 @@
+package model.entities;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class DepartmentStats implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Department department;
+
+    private long sellerCount;
+
+    private double totalBaseSalary;
+
+    private double averageBaseSalary;
+
+    private Map<Integer, Long> ageDistribution = new TreeMap<>();
+
+    public DepartmentStats() {
+    }
+
+    public DepartmentStats(Department department, long sellerCount, double totalBaseSalary,
+            double averageBaseSalary) {
+        this.department = department;
+        this.sellerCount = sellerCount;
+        this.totalBaseSalary = totalBaseSalary;
+        this.averageBaseSalary = averageBaseSalary;
+    }
+
+    public Department getDepartment() {
+        return department;
+    }
+
+    public void setDepartment(Department department) {
+        this.department = department;
+    }
+
+    public long getSellerCount() {
+        return sellerCount;
+    }
+
+    public void setSellerCount(long sellerCount) {
+        this.sellerCount = sellerCount;
+    }
+
+    public double getTotalBaseSalary() {
+        return totalBaseSalary;
+    }
+
+    public void setTotalBaseSalary(double totalBaseSalary) {
+        this.totalBaseSalary = totalBaseSalary;
+    }
+
+    public double getAverageBaseSalary() {
+        return averageBaseSalary;
+    }
+
+    public void setAverageBaseSalary(double averageBaseSalary) {
+        this.averageBaseSalary = averageBaseSalary;
+    }
+
+    /**
+     * Seller count per age group, keyed by the first year of each decade
+     * (20 = 20 to 29 years old), in ascending order.
+     */
+    public Map<Integer, Long> getAgeDistribution() {
+        return ageDistribution;
+    }
+
+    public void setAgeDistribution(Map<Integer, Long> ageDistribution) {
+        this.ageDistribution = ageDistribution;
+    }
+
+    @Override
+    public String toString() {
+        return "DepartmentStats [department=" + department + ", sellerCount=" + sellerCount + ", totalBaseSalary="
+                + totalBaseSalary + ", averageBaseSalary=" + averageBaseSalary + ", ageDistribution="
+                + ageDistribution + "]";
+    }
+}
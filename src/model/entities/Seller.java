@@ -1,7 +1,7 @@
 package model.entities;
 
 import java.io.Serializable;
-import java.util.Date;
+import java.time.LocalDate;
 
 public class Seller implements Serializable {
 
@@ -13,15 +13,17 @@ public class Seller implements Serializable {
 
     private String email;
 
-    private Date birthDate;
+    private LocalDate birthDate;
 
     private double baseSalary;
 
     private Department department;
 
+    private Integer version;
+
     public Seller() {}
 
-    public Seller(Integer id, String name, String email, Date birthDate, double baseSalary) {
+    public Seller(Integer id, String name, String email, LocalDate birthDate, double baseSalary) {
         this.id = id;
         this.name = name;
         this.email = email;
@@ -53,11 +55,11 @@ public class Seller implements Serializable {
         this.email = email;
     }
 
-    public Date getBirthDate() {
+    public LocalDate getBirthDate() {
         return birthDate;
     }
 
-    public void setBirthDate(Date birthDate) {
+    public void setBirthDate(LocalDate birthDate) {
         this.birthDate = birthDate;
     }
 
@@ -77,6 +79,14 @@ public class Seller implements Serializable {
         this.department = department;
     }
 
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
@@ -0,0 +1,98 @@
+package model.services;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Collects single-id lookups made within a short window and loads them
+ * with one findByIds call. A lookup for an id that is already waiting
+ * shares its future, and a batch that reaches the maximum size is sent
+ * right away.
+ */
+public class BatchLoader<T> {
+
+    private final Function<List<Integer>, List<T>> loader;
+
+    private final Function<T, Integer> idOf;
+
+    private final long windowMillis;
+
+    private final int maxBatchSize;
+
+    private Map<Integer, CompletableFuture<T>> pending = new LinkedHashMap<>();
+
+    public BatchLoader(Function<List<Integer>, List<T>> loader, Function<T, Integer> idOf, long windowMillis,
+            int maxBatchSize) {
+        this.loader = loader;
+        this.idOf = idOf;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * The row with the given id, or null if there is none, once the batch
+     * it joined has been loaded on the service executor.
+     */
+    public CompletableFuture<T> load(Integer id) {
+        CompletableFuture<T> future;
+        Map<Integer, CompletableFuture<T>> full = null;
+        synchronized (this) {
+            future = pending.get(id);
+            if (future != null) {
+                return future;
+            }
+            future = new CompletableFuture<>();
+            if (pending.isEmpty()) {
+                Executor delayed = CompletableFuture.delayedExecutor(windowMillis, TimeUnit.MILLISECONDS,
+                        ServiceExecutor.get());
+                delayed.execute(this::flush);
+            }
+            pending.put(id, future);
+            if (pending.size() >= maxBatchSize) {
+                full = takePending();
+            }
+        }
+        if (full != null) {
+            Map<Integer, CompletableFuture<T>> batch = full;
+            ServiceExecutor.get().execute(() -> run(batch));
+        }
+        return future;
+    }
+
+    private synchronized Map<Integer, CompletableFuture<T>> takePending() {
+        Map<Integer, CompletableFuture<T>> batch = pending;
+        pending = new LinkedHashMap<>();
+        return batch;
+    }
+
+    private void flush() {
+        Map<Integer, CompletableFuture<T>> batch = takePending();
+        if (!batch.isEmpty()) {
+            run(batch);
+        }
+    }
+
+    private void run(Map<Integer, CompletableFuture<T>> batch) {
+        try {
+            List<T> rows = loader.apply(new ArrayList<>(batch.keySet()));
+            Map<Integer, T> byId = new HashMap<>();
+            for (T row : rows) {
+                byId.put(idOf.apply(row), row);
+            }
+            for (Map.Entry<Integer, CompletableFuture<T>> entry : batch.entrySet()) {
+                entry.getValue().complete(byId.get(entry.getKey()));
+            }
+        } catch (RuntimeException | Error e) {
+            for (CompletableFuture<T> future : batch.values()) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -1,28 +1,108 @@
 package model.services;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+import db.DB;
+import metrics.Metrics;
+import metrics.Timer;
 import model.dao.DaoFactory;
 import model.dao.DepartmentDao;
+import model.dao.SellerDao;
 import model.entities.Department;
+import model.entities.Seller;
 
 public class DepartmentService {
 
+    private static final Timer FIND_ALL = Metrics.timer("service.department.findAll");
+
+    private static final Timer FIND_BY_ID = Metrics.timer("service.department.findById");
+
+    private static final Timer FIND_BY_IDS = Metrics.timer("service.department.findByIds");
+
+    private static final Timer SAVE = Metrics.timer("service.department.saveOrUpdate");
+
+    private static final Timer REMOVE = Metrics.timer("service.department.remove");
+
     private DepartmentDao dao =  DaoFactory.createDepartmentDao();
 
+    private SellerDao sellerDao = DaoFactory.createSellerDao();
+
+    private final BatchLoader<Department> loader = new BatchLoader<>(this::findByIds, Department::getId,
+            SellerService.LOOKUP_WINDOW_MILLIS, SellerService.DEFAULT_BATCH_SIZE);
+
+    private final BatchLoader<Department> changeLoader = new BatchLoader<>(
+            ids -> DB.readFromPrimary(() -> findByIds(ids)), Department::getId,
+            SellerService.LOOKUP_WINDOW_MILLIS, SellerService.DEFAULT_BATCH_SIZE);
+
     public List<Department> findAll() {
-        return dao.findAll();
+        return FIND_ALL.time(() -> dao.findAll());
+    }
+
+    public Department findById(Integer id) {
+        return FIND_BY_ID.time(() -> dao.findById(id));
+    }
+
+    public List<Department> findByIds(Collection<Integer> ids) {
+        return FIND_BY_IDS.time(() -> dao.findByIds(ids));
     }
     
     public void saveOrUpdate(Department obj) {
-        if (obj.getId() == null) {
-            dao.insert(obj);
-        } else {
-            dao.update(obj);
-        }
+        SAVE.time(() -> {
+            if (obj.getId() == null) {
+                dao.insert(obj);
+            } else {
+                dao.update(obj);
+            }
+        });
     }
 
     public void remove(Department obj) {
-        dao.deleteById(obj.getId());
+        REMOVE.time(() -> dao.deleteById(obj.getId()));
+    }
+
+    public void removeMovingSellers(Department obj, Department target) {
+        REMOVE.time(() -> DaoFactory.inTransaction(() -> {
+            List<Seller> sellers = sellerDao.findByDepartment(obj);
+            for (Seller seller : sellers) {
+                seller.setDepartment(target);
+            }
+            if (!sellers.isEmpty()) {
+                sellerDao.updateAll(sellers, SellerService.DEFAULT_BATCH_SIZE);
+            }
+            dao.deleteById(obj.getId());
+        }));
+    }
+
+    public CompletableFuture<List<Department>> findAllAsync() {
+        return ServiceExecutor.supplyAsync(this::findAll);
+    }
+
+    /**
+     * Lookups made within a few milliseconds of each other are loaded
+     * together with one findByIds.
+     */
+    public CompletableFuture<Department> findByIdAsync(Integer id) {
+        return loader.load(id);
+    }
+
+    /**
+     * Like findByIdAsync, but read from the primary, for a row another
+     * client has just changed; null means it is really gone.
+     */
+    public CompletableFuture<Department> findChangedAsync(Integer id) {
+        return changeLoader.load(id);
+    }
+
+    public CompletableFuture<Department> saveOrUpdateAsync(Department obj) {
+        return CompletableFuture.supplyAsync(() -> {
+            saveOrUpdate(obj);
+            return obj;
+        }, ServiceExecutor.get());
+    }
+
+    public CompletableFuture<Void> removeAsync(Department obj) {
+        return CompletableFuture.runAsync(() -> remove(obj), ServiceExecutor.get());
     }
 }
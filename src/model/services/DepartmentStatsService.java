@@ -0,0 +1,46 @@
+package model.services;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import metrics.Metrics;
+import metrics.Timer;
+import model.dao.DaoFactory;
+import model.dao.DepartmentStatsDao;
+import model.entities.DepartmentStats;
+
+public class DepartmentStatsService {
+
+    private static final Timer FIND_ALL = Metrics.timer("service.departmentStats.findAll");
+
+    private static final Timer REFRESH = Metrics.timer("service.departmentStats.refresh");
+
+    private DepartmentStatsDao dao = DaoFactory.createDepartmentStatsDao();
+
+    public List<DepartmentStats> findAll() {
+        return FIND_ALL.time(() -> dao.findAll());
+    }
+
+    public List<DepartmentStats> refresh() {
+        return REFRESH.time(() -> {
+            DaoFactory.getDepartmentStatsCache().invalidate();
+            return dao.findAll();
+        });
+    }
+
+    public long getLoadedAt() {
+        return DaoFactory.getDepartmentStatsCache().getLoadedAt();
+    }
+
+    public long getRefreshIntervalMillis() {
+        return DaoFactory.getDepartmentStatsCache().getRefreshIntervalMillis();
+    }
+
+    public CompletableFuture<List<DepartmentStats>> findAllAsync() {
+        return ServiceExecutor.supplyAsync(this::findAll);
+    }
+
+    public CompletableFuture<List<DepartmentStats>> refreshAsync() {
+        return ServiceExecutor.supplyAsync(this::refresh);
+    }
+}
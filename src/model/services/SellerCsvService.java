@@ -0,0 +1,260 @@
+package model.services;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+import model.dao.DaoFactory;
+import model.dao.DepartmentDao;
+import model.dao.SellerDao;
+import model.entities.Department;
+import model.entities.Seller;
+import model.exceptions.ValidationException;
+
+public class SellerCsvService {
+
+    public static final String HEADER = "Id,Name,Email,BirthDate,BaseSalary,DepartmentId,DepartmentName";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int PROGRESS_INTERVAL = 1000;
+
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    private SellerDao dao = DaoFactory.createSellerDao();
+
+    private DepartmentDao departmentDao = DaoFactory.createDepartmentDao();
+
+    private int batchSize = SellerService.DEFAULT_BATCH_SIZE;
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long exportTo(Path file, LongConsumer progress) {
+        try (BufferedWriter writer = new BufferedWriter(
+                Files.newBufferedWriter(file, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            writer.write(HEADER);
+            writer.newLine();
+            long[] written = new long[1];
+            dao.streamAll(obj -> {
+                try {
+                    writer.write(toCsv(obj));
+                    writer.newLine();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (++written[0] % PROGRESS_INTERVAL == 0 && progress != null) {
+                    progress.accept(written[0]);
+                }
+            });
+            if (progress != null) {
+                progress.accept(written[0]);
+            }
+            return written[0];
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public ImportResult importFrom(Path file, Consumer<ImportResult> progress) {
+        ImportResult result = new ImportResult();
+        List<Seller> chunk = new ArrayList<>(batchSize);
+        try (BufferedReader reader = new BufferedReader(
+                Files.newBufferedReader(file, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            List<String> fields;
+            long[] lineNumber = new long[1];
+            long recordLine = 1;
+            while ((fields = readRecord(reader, lineNumber)) != null) {
+                long start = recordLine;
+                recordLine = lineNumber[0] + 1;
+                if ((fields.size() == 1 && fields.get(0).trim().isEmpty())
+                        || (start == 1 && fields.get(0).equals("Id"))) {
+                    continue;
+                }
+                try {
+                    chunk.add(parse(fields));
+                } catch (ValidationException e) {
+                    result.reject(start, e);
+                }
+                if (chunk.size() == batchSize) {
+                    flush(chunk, result, progress);
+                }
+            }
+            flush(chunk, result, progress);
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void flush(List<Seller> chunk, ImportResult result, Consumer<ImportResult> progress) {
+        if (!chunk.isEmpty()) {
+            dao.insertAll(chunk, batchSize);
+            result.imported += chunk.size();
+            chunk.clear();
+        }
+        if (progress != null) {
+            progress.accept(result);
+        }
+    }
+
+    private Seller parse(List<String> fields) {
+        ValidationException exception = new ValidationException("Validation error");
+        if (fields.size() < 6) {
+            exception.addError("line", "Expected at least 6 fields but found " + fields.size());
+            throw exception;
+        }
+        Seller obj = new Seller();
+        String name = fields.get(1).trim();
+        if (name.isEmpty()) {
+            exception.addError("name", "Field can't be empty");
+        }
+        obj.setName(name);
+        String email = fields.get(2).trim();
+        if (email.isEmpty()) {
+            exception.addError("email", "Field can't be empty");
+        }
+        obj.setEmail(email);
+        try {
+            obj.setBirthDate(LocalDate.parse(fields.get(3).trim()));
+        } catch (DateTimeParseException e) {
+            exception.addError("birthDate", "Invalid date");
+        }
+        try {
+            obj.setBaseSalary(Double.parseDouble(fields.get(4).trim()));
+        } catch (NumberFormatException e) {
+            exception.addError("baseSalary", "Invalid number");
+        }
+        Department dep = null;
+        try {
+            dep = departmentDao.findById(Integer.parseInt(fields.get(5).trim()));
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        if (dep == null) {
+            exception.addError("department", "Unknown department");
+        }
+        obj.setDepartment(dep);
+        if (exception.getErrors().size() > 0) {
+            throw exception;
+        }
+        return obj;
+    }
+
+    private static String toCsv(Seller obj) {
+        LocalDate birthDate = obj.getBirthDate();
+        StringBuilder sb = new StringBuilder(128);
+        sb.append(obj.getId()).append(',');
+        appendField(sb, obj.getName()).append(',');
+        appendField(sb, obj.getEmail()).append(',');
+        sb.append(birthDate == null ? "" : birthDate.toString()).append(',');
+        sb.append(obj.getBaseSalary()).append(',');
+        sb.append(obj.getDepartment().getId()).append(',');
+        appendField(sb, obj.getDepartment().getName());
+        return sb.toString();
+    }
+
+    private static StringBuilder appendField(StringBuilder sb, String value) {
+        if (value == null) {
+            return sb;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) {
+            return sb.append(value);
+        }
+        return sb.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    /**
+     * Reads the fields of one record, or returns null at the end of the
+     * file. A quoted field may span lines; its line breaks are read back as
+     * '\n'. lineNumber is advanced by the number of lines read.
+     */
+    private static List<String> readRecord(BufferedReader reader, long[] lineNumber) throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            return null;
+        }
+        lineNumber[0]++;
+        List<String> fields = new ArrayList<>(8);
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"') {
+                        if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                            current.append('"');
+                            i++;
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        current.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(current.toString());
+                    current.setLength(0);
+                } else {
+                    current.append(c);
+                }
+            }
+            if (!quoted || (line = reader.readLine()) == null) {
+                break;
+            }
+            lineNumber[0]++;
+            current.append('\n');
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+
+    public static class ImportResult {
+
+        private long imported;
+
+        private long rejected;
+
+        private Map<Long, Map<String, String>> errors = new LinkedHashMap<>();
+
+        private void reject(long lineNumber, ValidationException e) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.put(lineNumber, e.getErrors());
+            }
+        }
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public Map<Long, Map<String, String>> getErrors() {
+            return errors;
+        }
+
+        @Override
+        public String toString() {
+            return "ImportResult [imported=" + imported + ", rejected=" + rejected + "]";
+        }
+    }
+}
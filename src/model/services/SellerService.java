@@ -1,28 +1,159 @@
 package model.services;
 
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+import db.DB;
+import metrics.Metrics;
+import metrics.Timer;
 import model.dao.DaoFactory;
 import model.dao.SellerDao;
+import model.dao.SellerSearchCriteria;
 import model.entities.Seller;
 
 public class SellerService {
 
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    public static final long LOOKUP_WINDOW_MILLIS = 5;
+
+    /**
+     * The order findPage returns sellers in: by name ignoring case, like
+     * the database collation, then by id.
+     */
+    public static final Comparator<Seller> PAGE_ORDER = Comparator
+            .comparing(Seller::getName, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+            .thenComparing(Seller::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private static final Timer FIND_ALL = Metrics.timer("service.seller.findAll");
+
+    private static final Timer FIND_BY_ID = Metrics.timer("service.seller.findById");
+
+    private static final Timer FIND_BY_IDS = Metrics.timer("service.seller.findByIds");
+
+    private static final Timer FIND_PAGE = Metrics.timer("service.seller.findPage");
+
+    private static final Timer SEARCH = Metrics.timer("service.seller.search");
+
+    private static final Timer SAVE = Metrics.timer("service.seller.saveOrUpdate");
+
+    private static final Timer BULK_INSERT = Metrics.timer("service.seller.insertAll");
+
+    private static final Timer BULK_UPDATE = Metrics.timer("service.seller.updateAll");
+
+    private static final Timer REMOVE = Metrics.timer("service.seller.remove");
+
     private SellerDao dao =  DaoFactory.createSellerDao();
 
+    private final BatchLoader<Seller> loader =
+            new BatchLoader<>(this::findByIds, Seller::getId, LOOKUP_WINDOW_MILLIS, DEFAULT_BATCH_SIZE);
+
+    private final BatchLoader<Seller> changeLoader = new BatchLoader<>(
+            ids -> DB.readFromPrimary(() -> findByIds(ids)), Seller::getId, LOOKUP_WINDOW_MILLIS,
+            DEFAULT_BATCH_SIZE);
+
     public List<Seller> findAll() {
-        return dao.findAll();
+        return FIND_ALL.time(() -> dao.findAll());
+    }
+
+    public Seller findById(Integer id) {
+        return FIND_BY_ID.time(() -> dao.findById(id));
+    }
+
+    public List<Seller> findByIds(Collection<Integer> ids) {
+        return FIND_BY_IDS.time(() -> dao.findByIds(ids));
     }
     
-    public void saveOrUpdate(Seller obj) {
-        if (obj.getId() == null) {
-            dao.insert(obj);
-        } else {
-            dao.update(obj);
+    public List<Seller> findPage(Seller after, int limit) {
+        if (after == null) {
+            return FIND_PAGE.time(() -> dao.findPage(null, null, limit));
         }
+        return FIND_PAGE.time(() -> dao.findPage(after.getName(), after.getId(), limit));
+    }
+
+    public List<Seller> search(SellerSearchCriteria criteria, Seller after, int limit) {
+        if (after == null) {
+            return SEARCH.time(() -> dao.search(criteria, null, null, limit));
+        }
+        return SEARCH.time(() -> dao.search(criteria, after.getName(), after.getId(), limit));
+    }
+
+    public void saveOrUpdate(Seller obj) {
+        SAVE.time(() -> {
+            if (obj.getId() == null) {
+                dao.insert(obj);
+            } else {
+                dao.update(obj);
+            }
+        });
+    }
+
+    public void saveOrUpdateAll(Collection<Seller> sellers) {
+        DaoFactory.inTransaction(() -> {
+            for (Seller obj : sellers) {
+                saveOrUpdate(obj);
+            }
+        });
+    }
+
+    public List<Integer> insertAll(Collection<Seller> sellers) {
+        return insertAll(sellers, DEFAULT_BATCH_SIZE);
+    }
+
+    public List<Integer> insertAll(Collection<Seller> sellers, int batchSize) {
+        return BULK_INSERT.time(() -> dao.insertAll(sellers, batchSize));
+    }
+
+    public int updateAll(Collection<Seller> sellers) {
+        return updateAll(sellers, DEFAULT_BATCH_SIZE);
+    }
+
+    public int updateAll(Collection<Seller> sellers, int batchSize) {
+        return BULK_UPDATE.time(() -> dao.updateAll(sellers, batchSize));
     }
 
     public void remove(Seller obj) {
-        dao.deleteById(obj.getId());
+        REMOVE.time(() -> dao.deleteById(obj.getId()));
+    }
+
+    public CompletableFuture<List<Seller>> findAllAsync() {
+        return ServiceExecutor.supplyAsync(this::findAll);
+    }
+
+    /**
+     * Lookups made within a few milliseconds of each other are loaded
+     * together with one findByIds.
+     */
+    public CompletableFuture<Seller> findByIdAsync(Integer id) {
+        return loader.load(id);
+    }
+
+    /**
+     * Like findByIdAsync, but read from the primary, for a row another
+     * client has just changed; null means it is really gone.
+     */
+    public CompletableFuture<Seller> findChangedAsync(Integer id) {
+        return changeLoader.load(id);
+    }
+
+    public CompletableFuture<List<Seller>> findPageAsync(Seller after, int limit) {
+        return ServiceExecutor.supplyAsync(() -> findPage(after, limit));
+    }
+
+    public CompletableFuture<List<Seller>> searchAsync(SellerSearchCriteria criteria, Seller after, int limit) {
+        return ServiceExecutor.supplyAsync(() -> search(criteria, after, limit));
+    }
+
+    public CompletableFuture<Seller> saveOrUpdateAsync(Seller obj) {
+        return CompletableFuture.supplyAsync(() -> {
+            saveOrUpdate(obj);
+            return obj;
+        }, ServiceExecutor.get());
+    }
+
+    public CompletableFuture<Void> removeAsync(Seller obj) {
+        return CompletableFuture.runAsync(() -> remove(obj), ServiceExecutor.get());
     }
 }
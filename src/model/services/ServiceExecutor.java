@@ -0,0 +1,84 @@
+package model.services;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public class ServiceExecutor {
+
+    private static ExecutorService executor = null;
+
+    public static synchronized ExecutorService get() {
+        if (executor == null) {
+            executor = createExecutor();
+        }
+        return executor;
+    }
+
+    public static synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Runs the work on the executor. Unlike CompletableFuture.supplyAsync,
+     * cancel(true) on the returned future interrupts the worker, so a load
+     * that is no longer wanted stops waiting for a connection.
+     */
+    public static <T> CompletableFuture<T> supplyAsync(Supplier<T> work) {
+        InterruptibleFuture<T> future = new InterruptibleFuture<>();
+        future.setTask(get().submit(() -> {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(work.get());
+            } catch (RuntimeException | Error e) {
+                future.completeExceptionally(e);
+            }
+        }));
+        return future;
+    }
+
+    private static ExecutorService createExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "service-worker-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    private static class InterruptibleFuture<T> extends CompletableFuture<T> {
+
+        private volatile Future<?> task;
+
+        void setTask(Future<?> task) {
+            this.task = task;
+            if (isCancelled()) {
+                task.cancel(true);
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            Future<?> current = task;
+            if (cancelled && current != null) {
+                current.cancel(mayInterruptIfRunning);
+            }
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import db.FakeDriver.Result;
+
+public class ChangePollerTest {
+
+    private static final String COLUMNS = "Id, TableName, RowId, Operation";
+
+    /** The committed change_log rows by id. */
+    private final NavigableMap<Long, Object[]> changeLog = new ConcurrentSkipListMap<>();
+
+    private final BlockingQueue<List<RowChange>> published = new LinkedBlockingQueue<>();
+
+    private ChangePoller poller;
+
+    @BeforeEach
+    void setUp() {
+        FakeDriver.install();
+        FakeDriver.responder = (sql, params) -> {
+            synchronized (changeLog) {
+                return respond(sql, params);
+            }
+        };
+    }
+
+    private Result respond(String sql, List<Object> params) {
+        if (sql.contains("MAX(Id)")) {
+            return Result.rows("Max", new Object[] { changeLog.isEmpty() ? 0L : changeLog.lastKey() });
+        }
+        List<Object[]> rows = new ArrayList<>();
+        if (sql.contains("WHERE Id > ?")) {
+            long after = ((Number) params.get(0)).longValue();
+            int limit = ((Number) params.get(1)).intValue();
+            for (Object[] row : changeLog.tailMap(after, false).values()) {
+                if (rows.size() == limit) {
+                    break;
+                }
+                rows.add(row);
+            }
+        } else if (sql.contains("WHERE Id IN")) {
+            for (Object id : new TreeSet<>(params)) {
+                Object[] row = changeLog.get(((Number) id).longValue());
+                if (row != null) {
+                    rows.add(row);
+                }
+            }
+        }
+        return Result.rows(COLUMNS, rows.toArray(new Object[0][]));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (poller != null) {
+            poller.stop();
+        }
+    }
+
+    private void commit(long id, String table, int rowId, String operation) {
+        changeLog.put(id, new Object[] { id, table, rowId, operation });
+    }
+
+    /** Commits rows together, so that one poll sees all of them or none. */
+    private void commitTogether(Object[]... rows) {
+        synchronized (changeLog) {
+            for (Object[] row : rows) {
+                commit((Integer) row[0], (String) row[1], (Integer) row[2], (String) row[3]);
+            }
+        }
+    }
+
+    private void start(int batchSize, long gapTimeoutMillis) {
+        poller = new ChangePoller(20, batchSize, gapTimeoutMillis);
+        poller.addListener(published::add);
+        poller.start();
+    }
+
+    private List<RowChange> nextBatch() throws InterruptedException {
+        List<RowChange> batch = published.poll(5, TimeUnit.SECONDS);
+        assertNotNull(batch, "no changes were published");
+        return batch;
+    }
+
+    private static List<Long> ids(List<RowChange> batch) {
+        List<Long> ids = new ArrayList<>();
+        for (RowChange change : batch) {
+            ids.add(change.getChangeId());
+        }
+        return ids;
+    }
+
+    private long gapQueries() {
+        return FakeDriver.executedSql().stream().filter(sql -> sql.contains("WHERE Id IN")).count();
+    }
+
+    @Test
+    void startsAfterTheChangesThatAlreadyExist() throws Exception {
+        commit(1, "seller", 1, "I");
+        commit(2, "seller", 2, "I");
+        start(100, 30000);
+        waitForCursor(2);
+        commit(3, "seller", 3, "U");
+        List<RowChange> batch = nextBatch();
+        assertEquals(List.of(3L), ids(batch));
+        assertEquals(RowChange.Operation.UPDATE, batch.get(0).getOperation());
+        assertEquals(3, poller.getLastChangeId());
+    }
+
+    @Test
+    void readsPastOneBatchInASinglePoll() throws Exception {
+        start(2, 30000);
+        waitForCursor(0);
+        for (int id = 1; id <= 5; id++) {
+            commit(id, "seller", id, "I");
+        }
+        List<Long> seen = new ArrayList<>();
+        while (seen.size() < 5) {
+            seen.addAll(ids(nextBatch()));
+        }
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), seen);
+    }
+
+    @Test
+    void publishesAnIdThatCommitsAfterAHigherOne() throws Exception {
+        start(100, 30000);
+        waitForCursor(0);
+        commitTogether(new Object[] { 1, "seller", 1, "I" }, new Object[] { 3, "seller", 3, "I" });
+        assertEquals(List.of(1L, 3L), ids(nextBatch()));
+        commit(2, "seller", 2, "I");
+        List<RowChange> late = nextBatch();
+        assertEquals(List.of(2L), ids(late));
+        assertEquals(2, late.get(0).getRowId());
+        assertEquals(3, poller.getLastChangeId());
+    }
+
+    @Test
+    void coalescesChangesToTheSameRow() throws Exception {
+        start(100, 30000);
+        waitForCursor(0);
+        commitTogether(new Object[] { 1, "seller", 5, "I" }, new Object[] { 2, "seller", 5, "U" },
+                new Object[] { 3, "department", 5, "D" });
+        List<RowChange> batch = nextBatch();
+        assertEquals(2, batch.size());
+        assertEquals(2, batch.get(0).getChangeId());
+        assertEquals(RowChange.Operation.INSERT, batch.get(0).getOperation());
+        assertEquals("department", batch.get(1).getTable());
+    }
+
+    @Test
+    void givesUpOnAGapAfterTheTimeout() throws Exception {
+        start(100, 100);
+        waitForCursor(0);
+        commit(1, "seller", 1, "I");
+        commit(3, "seller", 3, "I");
+        nextBatch();
+        Thread.sleep(300);
+        long queries = gapQueries();
+        commit(2, "seller", 2, "I");
+        Thread.sleep(200);
+        assertEquals(queries, gapQueries());
+        assertNull(published.poll());
+    }
+
+    private void waitForCursor(long id) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (poller.getLastChangeId() != id && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(id, poller.getLastChangeId());
+    }
+}
@@ -0,0 +1,157 @@
+package db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ConnectionPoolTest {
+
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void setUp() {
+        FakeDriver.install();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    private ConnectionPool newPool(int minSize, int maxSize, int acquireTimeoutMillis) {
+        Properties props = new Properties();
+        props.setProperty("pool.minSize", String.valueOf(minSize));
+        props.setProperty("pool.maxSize", String.valueOf(maxSize));
+        props.setProperty("pool.acquireTimeoutMillis", String.valueOf(acquireTimeoutMillis));
+        props.setProperty("pool.idleTimeoutMillis", "2000");
+        props.setProperty("pool.leakThresholdMillis", "2000");
+        pool = new ConnectionPool(FakeDriver.URL, props);
+        return pool;
+    }
+
+    @Test
+    void opensMinSizeConnectionsUpFront() {
+        newPool(2, 4, 1000);
+        assertEquals(2, pool.getIdleCount());
+        assertEquals(2, FakeDriver.connectionsOpened.get());
+    }
+
+    @Test
+    void reusesReleasedConnections() throws Exception {
+        newPool(1, 4, 1000);
+        for (int i = 0; i < 5; i++) {
+            Connection conn = pool.borrow();
+            assertEquals(1, pool.getInUseCount());
+            conn.close();
+        }
+        assertEquals(1, FakeDriver.connectionsOpened.get());
+        assertEquals(0, pool.getInUseCount());
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    void closingAHandleTwiceReleasesOnce() throws Exception {
+        newPool(1, 1, 1000);
+        Connection conn = pool.borrow();
+        conn.close();
+        conn.close();
+        assertTrue(conn.isClosed());
+        pool.borrow().close();
+        assertEquals(0, pool.getInUseCount());
+    }
+
+    @Test
+    void borrowsWithAFreePermitAreNotCountedAsWaits() throws Exception {
+        newPool(1, 2, 1000);
+        for (int i = 0; i < 10; i++) {
+            pool.borrow().close();
+        }
+        assertEquals(0, pool.getWaitCount());
+        assertEquals(0, pool.getTotalWaitMillis());
+    }
+
+    @Test
+    void countsAWaitWhenThePoolIsExhausted() throws Exception {
+        newPool(1, 1, 5000);
+        Connection held = pool.borrow();
+        CountDownLatch started = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            started.countDown();
+            try {
+                pool.borrow().close();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        waiter.start();
+        started.await();
+        Thread.sleep(100);
+        held.close();
+        waiter.join(5000);
+        assertEquals(1, pool.getWaitCount());
+        assertTrue(pool.getMaxWaitMillis() >= 50, "max wait " + pool.getMaxWaitMillis());
+    }
+
+    @Test
+    void timesOutWhenNoConnectionIsReleased() {
+        newPool(1, 1, 100);
+        pool.borrow();
+        DbTimeoutException e = assertThrows(DbTimeoutException.class, pool::borrow);
+        assertTrue(e.getMessage().contains("1 in use"), e.getMessage());
+        assertEquals(1, pool.getTimeoutCount());
+    }
+
+    @Test
+    void releasesThePermitWhenConnectingFails() throws Exception {
+        newPool(0, 1, 100);
+        FakeDriver.failConnect = true;
+        assertThrows(DbException.class, pool::borrow);
+        FakeDriver.failConnect = false;
+        pool.borrow().close();
+        assertEquals(0, pool.getTimeoutCount());
+    }
+
+    @Test
+    void housekeepingRefillsToMinSize() throws Exception {
+        newPool(2, 4, 1000);
+        Connection a = pool.borrow();
+        Connection b = pool.borrow();
+        FakeDriver.closeAllConnections();
+        a.close();
+        b.close();
+        assertEquals(0, pool.getIdleCount());
+        long deadline = System.currentTimeMillis() + 5000;
+        while (pool.getIdleCount() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(2, pool.getIdleCount());
+        assertEquals(4, FakeDriver.connectionsOpened.get());
+    }
+
+    @Test
+    void rollsBackUncommittedWorkWhenAConnectionComesBack() throws Exception {
+        newPool(1, 1, 1000);
+        Connection conn = pool.borrow();
+        conn.setAutoCommit(false);
+        conn.close();
+        assertEquals(1, FakeDriver.rollbacks.get());
+        assertTrue(pool.borrow().getAutoCommit());
+    }
+
+    @Test
+    void rejectsInvalidSettings() {
+        Properties props = new Properties();
+        props.setProperty("pool.maxSize", "ten");
+        assertThrows(DbException.class, () -> new ConnectionPool(FakeDriver.URL, props));
+    }
+}
@@ -0,0 +1,528 @@
+package db;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * JDBC driver for tests that answers every statement from a responder
+ * instead of a database. install() makes it the primary database of DB
+ * through a temporary db.properties and selects the in-memory DAO provider
+ * for DaoFactory.
+ */
+public class FakeDriver implements Driver {
+
+    public static final String URL = "jdbc:fake:test";
+
+    public static final String REPLICA_URL = "jdbc:fake:replica";
+
+    public interface Responder {
+        Result respond(String sql, List<Object> params) throws SQLException;
+    }
+
+    /**
+     * Rows for a query, or an update count and generated keys for an
+     * update.
+     */
+    public static final class Result {
+
+        private final int updateCount;
+
+        private final String[] columns;
+
+        private final List<Object[]> rows;
+
+        private Result(int updateCount, String[] columns, List<Object[]> rows) {
+            this.updateCount = updateCount;
+            this.columns = columns;
+            this.rows = rows;
+        }
+
+        public static Result update(int count, Object... generatedKeys) {
+            List<Object[]> keys = new ArrayList<>();
+            for (Object key : generatedKeys) {
+                keys.add(new Object[] { key });
+            }
+            return new Result(count, new String[] { "1" }, keys);
+        }
+
+        public static Result rows(String columns, Object[]... rows) {
+            return new Result(-1, columns.split(",\\s*"), Arrays.asList(rows));
+        }
+    }
+
+    /** One statement execution as the driver saw it. */
+    public static final class Executed {
+
+        public final String url;
+
+        public final String sql;
+
+        public final List<Object> params;
+
+        Executed(String url, String sql, List<Object> params) {
+            this.url = url;
+            this.sql = sql;
+            this.params = params;
+        }
+
+        @Override
+        public String toString() {
+            return sql + " " + params;
+        }
+    }
+
+    public static final AtomicInteger connectionsOpened = new AtomicInteger();
+
+    public static final AtomicInteger statementsPrepared = new AtomicInteger();
+
+    public static final AtomicInteger statementsClosed = new AtomicInteger();
+
+    public static final AtomicInteger commits = new AtomicInteger();
+
+    public static final AtomicInteger rollbacks = new AtomicInteger();
+
+    public static final AtomicInteger openResultSets = new AtomicInteger();
+
+    public static final List<Executed> executed = Collections.synchronizedList(new ArrayList<>());
+
+    public static volatile Responder responder;
+
+    /** Answers statements sent to REPLICA_URL; the primary's responder when null. */
+    public static volatile Responder replicaResponder;
+
+    public static volatile boolean failConnect;
+
+    public static volatile boolean failCommit;
+
+    public static volatile boolean failRollback;
+
+    private static final List<FakeConnection> connections = Collections.synchronizedList(new ArrayList<>());
+
+    private static String properties;
+
+    private static String replicaProperties;
+
+    public static synchronized void install() {
+        if (properties == null) {
+            try {
+                DriverManager.registerDriver(new FakeDriver());
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            properties = writeProperties(false);
+            replicaProperties = writeProperties(true);
+            System.setProperty("dao.provider", "memory");
+        }
+        use(properties);
+        reset();
+    }
+
+    /**
+     * Like install(), but DB also reads from a replica at REPLICA_URL until
+     * the next install().
+     */
+    public static synchronized void installReplica() {
+        install();
+        use(replicaProperties);
+    }
+
+    private static void use(String file) {
+        if (!file.equals(System.getProperty("db.properties"))) {
+            System.setProperty("db.properties", file);
+            DB.closePool();
+        }
+    }
+
+    private static String writeProperties(boolean withReplica) {
+        try {
+            Path file = Files.createTempFile("fake-db", ".properties");
+            file.toFile().deleteOnExit();
+            Properties props = new Properties();
+            props.setProperty("dburl", URL);
+            props.setProperty("pool.minSize", "1");
+            props.setProperty("pool.maxSize", "4");
+            props.setProperty("pool.acquireTimeoutMillis", "2000");
+            props.setProperty("metrics.enabled", "false");
+            if (withReplica) {
+                props.setProperty("replica.urls", REPLICA_URL);
+            }
+            try (OutputStream out = Files.newOutputStream(file)) {
+                props.store(out, null);
+            }
+            return file.toString();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static void reset() {
+        responder = null;
+        replicaResponder = null;
+        failConnect = false;
+        failCommit = false;
+        failRollback = false;
+        executed.clear();
+        connectionsOpened.set(0);
+        statementsPrepared.set(0);
+        statementsClosed.set(0);
+        commits.set(0);
+        rollbacks.set(0);
+        openResultSets.set(0);
+    }
+
+    /**
+     * Closes every connection the driver handed out, as a database restart
+     * would.
+     */
+    public static void closeAllConnections() {
+        synchronized (connections) {
+            for (FakeConnection conn : connections) {
+                conn.closed = true;
+            }
+            connections.clear();
+        }
+    }
+
+    public static List<String> executedSql() {
+        synchronized (executed) {
+            List<String> list = new ArrayList<>();
+            for (Executed e : executed) {
+                list.add(e.sql);
+            }
+            return list;
+        }
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+        if (failConnect) {
+            throw new SQLException("Connection refused");
+        }
+        connectionsOpened.incrementAndGet();
+        FakeConnection handler = new FakeConnection(url);
+        connections.add(handler);
+        return proxy(Connection.class, handler);
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return url != null && url.startsWith("jdbc:fake:");
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    private static Result respond(String url, String sql, List<Object> params) throws SQLException {
+        executed.add(new Executed(url, sql, params));
+        Responder current = url.equals(REPLICA_URL) && replicaResponder != null ? replicaResponder : responder;
+        Result result = current == null ? null : current.respond(sql, params);
+        if (result != null) {
+            return result;
+        }
+        return sql.trim().toUpperCase().startsWith("SELECT") ? Result.rows("") : Result.update(0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(FakeDriver.class.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class || type == short.class || type == byte.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == double.class) {
+            return 0.0;
+        }
+        if (type == float.class) {
+            return 0.0f;
+        }
+        return null;
+    }
+
+    private static class FakeConnection implements InvocationHandler {
+
+        private final String url;
+
+        private volatile boolean closed;
+
+        private boolean autoCommit = true;
+
+        FakeConnection(String url) {
+            this.url = url;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "prepareStatement":
+                    checkOpen();
+                    statementsPrepared.incrementAndGet();
+                    return proxy(PreparedStatement.class, new FakeStatement(url, (String) args[0]));
+                case "setAutoCommit":
+                    checkOpen();
+                    autoCommit = (Boolean) args[0];
+                    return null;
+                case "getAutoCommit":
+                    checkOpen();
+                    return autoCommit;
+                case "commit":
+                    checkOpen();
+                    if (failCommit) {
+                        throw new SQLException("Commit failed");
+                    }
+                    commits.incrementAndGet();
+                    return null;
+                case "rollback":
+                    checkOpen();
+                    if (failRollback) {
+                        throw new SQLException("Rollback failed");
+                    }
+                    rollbacks.incrementAndGet();
+                    return null;
+                case "isValid":
+                    return !closed;
+                case "isClosed":
+                    return closed;
+                case "close":
+                    closed = true;
+                    connections.remove(this);
+                    return null;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "FakeConnection";
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        }
+
+        private void checkOpen() throws SQLException {
+            if (closed) {
+                throw new SQLException("Connection is closed");
+            }
+        }
+    }
+
+    private static class FakeStatement implements InvocationHandler {
+
+        private final String url;
+
+        private final String sql;
+
+        private final Map<Integer, Object> params = new TreeMap<>();
+
+        private final List<List<Object>> batch = new ArrayList<>();
+
+        private List<Object[]> generatedKeys = new ArrayList<>();
+
+        private boolean closed;
+
+        FakeStatement(String url, String sql) {
+            this.url = url;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                params.put((Integer) args[0], args[1]);
+                return null;
+            }
+            switch (name) {
+                case "executeQuery": {
+                    Result result = respond(url, sql, currentParams());
+                    return proxy(ResultSet.class, new FakeResultSet(result.columns, result.rows));
+                }
+                case "executeUpdate": {
+                    Result result = respond(url, sql, currentParams());
+                    generatedKeys = new ArrayList<>(result.rows);
+                    return result.updateCount;
+                }
+                case "addBatch":
+                    batch.add(currentParams());
+                    return null;
+                case "executeBatch": {
+                    int[] counts = new int[batch.size()];
+                    generatedKeys = new ArrayList<>();
+                    for (int i = 0; i < batch.size(); i++) {
+                        Result result = respond(url, sql, batch.get(i));
+                        counts[i] = result.updateCount;
+                        generatedKeys.addAll(result.rows);
+                    }
+                    batch.clear();
+                    return counts;
+                }
+                case "clearBatch":
+                    batch.clear();
+                    return null;
+                case "clearParameters":
+                    params.clear();
+                    return null;
+                case "getGeneratedKeys":
+                    return proxy(ResultSet.class, new FakeResultSet(new String[] { "1" }, generatedKeys));
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        statementsClosed.incrementAndGet();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "FakeStatement[" + sql + "]";
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        }
+
+        private List<Object> currentParams() {
+            return new ArrayList<>(params.values());
+        }
+    }
+
+    private static class FakeResultSet implements InvocationHandler {
+
+        private final String[] columns;
+
+        private final List<Object[]> rows;
+
+        private int row = -1;
+
+        private boolean wasNull;
+
+        private boolean closed;
+
+        FakeResultSet(String[] columns, List<Object[]> rows) {
+            this.columns = columns;
+            this.rows = rows;
+            openResultSets.incrementAndGet();
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "next":
+                    return ++row < rows.size();
+                case "findColumn":
+                    return findColumn((String) args[0]);
+                case "wasNull":
+                    return wasNull;
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        openResultSets.decrementAndGet();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            if (name.startsWith("get") && args != null && args.length >= 1) {
+                int index = args[0] instanceof Integer ? (Integer) args[0] : findColumn((String) args[0]);
+                Object value = rows.get(row)[index - 1];
+                wasNull = value == null;
+                return convert(value, args.length == 2 && args[1] instanceof Class
+                        ? (Class<?>) args[1] : method.getReturnType());
+            }
+            return defaultValue(method.getReturnType());
+        }
+
+        private int findColumn(String label) throws SQLException {
+            for (int i = 0; i < columns.length; i++) {
+                if (columns[i].equalsIgnoreCase(label)) {
+                    return i + 1;
+                }
+            }
+            throw new SQLException("Unknown column " + label);
+        }
+
+        private static Object convert(Object value, Class<?> type) {
+            if (value == null) {
+                return defaultValue(type);
+            }
+            if (value instanceof Number) {
+                Number number = (Number) value;
+                if (type == int.class || type == Integer.class) {
+                    return number.intValue();
+                }
+                if (type == long.class || type == Long.class) {
+                    return number.longValue();
+                }
+                if (type == double.class || type == Double.class) {
+                    return number.doubleValue();
+                }
+            }
+            if (type == String.class) {
+                return value.toString();
+            }
+            return value;
+        }
+    }
+}
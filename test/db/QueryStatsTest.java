@@ -0,0 +1,46 @@
+package db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class QueryStatsTest {
+
+    @Test
+    void fastQueriesReportPercentilesNearTheirLatency() {
+        QueryStats stats = new QueryStats();
+        for (int i = 0; i < 1000; i++) {
+            stats.record(10_000 + i, 1, 8, false);
+        }
+        QueryStatsSnapshot snapshot = stats.snapshot("SELECT 1");
+        assertEquals(0.0105, snapshot.getMeanMillis(), 0.0001);
+        assertTrue(snapshot.getP50Millis() >= 0.0105 && snapshot.getP50Millis() <= 0.0105 * 1.25,
+                "p50 " + snapshot.getP50Millis());
+        assertTrue(snapshot.getP99Millis() <= snapshot.getMaxMillis(), "p99 " + snapshot.getP99Millis());
+        assertEquals(0.010999, snapshot.getMaxMillis(), 1e-9);
+    }
+
+    @Test
+    void countsErrorsRowsAndBytes() {
+        QueryStats stats = new QueryStats();
+        stats.record(2_000_000, 10, 400, false);
+        stats.record(4_000_000, 0, 0, true);
+        QueryStatsSnapshot snapshot = stats.snapshot("SELECT 1");
+        assertEquals("SELECT 1", snapshot.getSql());
+        assertEquals(2, snapshot.getCount());
+        assertEquals(1, snapshot.getErrors());
+        assertEquals(10, snapshot.getRows());
+        assertEquals(400, snapshot.getBytes());
+        assertEquals(3.0, snapshot.getMeanMillis(), 1e-9);
+        assertEquals(4.0, snapshot.getP99Millis(), 1e-9);
+    }
+
+    @Test
+    void isEmptyBeforeTheFirstQuery() {
+        QueryStatsSnapshot snapshot = new QueryStats().snapshot("SELECT 1");
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0.0, snapshot.getMeanMillis(), 0.0);
+        assertEquals(0.0, snapshot.getP50Millis(), 0.0);
+    }
+}
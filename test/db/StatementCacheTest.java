@@ -0,0 +1,108 @@
+package db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Properties;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class StatementCacheTest {
+
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void setUp() {
+        FakeDriver.install();
+        Properties props = new Properties();
+        props.setProperty("pool.minSize", "1");
+        props.setProperty("pool.maxSize", "1");
+        props.setProperty("pool.statementCacheSize", "2");
+        pool = new ConnectionPool(FakeDriver.URL, props);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    private void prepareAndClose(String sql) throws SQLException {
+        Connection conn = pool.borrow();
+        try {
+            conn.prepareStatement(sql).close();
+        } finally {
+            conn.close();
+        }
+    }
+
+    @Test
+    void reusesAStatementAcrossBorrows() throws Exception {
+        prepareAndClose("SELECT 1");
+        prepareAndClose("SELECT 1");
+        prepareAndClose("SELECT 1");
+        assertEquals(1, FakeDriver.statementsPrepared.get());
+        assertEquals(2, pool.getStatementCacheHits());
+        assertEquals(1, pool.getStatementCacheMisses());
+        assertEquals(0, FakeDriver.statementsClosed.get());
+    }
+
+    @Test
+    void preparesASecondStatementWhileTheFirstIsInUse() throws Exception {
+        Connection conn = pool.borrow();
+        PreparedStatement first = conn.prepareStatement("SELECT 1");
+        PreparedStatement second = conn.prepareStatement("SELECT 1");
+        assertNotEquals(first, second);
+        assertEquals(2, FakeDriver.statementsPrepared.get());
+        second.close();
+        assertEquals(1, FakeDriver.statementsClosed.get());
+        first.close();
+        conn.close();
+        prepareAndClose("SELECT 1");
+        assertEquals(2, FakeDriver.statementsPrepared.get());
+    }
+
+    @Test
+    void closesTheLeastRecentlyUsedStatementWhenFull() throws Exception {
+        prepareAndClose("SELECT 1");
+        prepareAndClose("SELECT 2");
+        prepareAndClose("SELECT 1");
+        prepareAndClose("SELECT 3");
+        assertEquals(1, FakeDriver.statementsClosed.get());
+        prepareAndClose("SELECT 1");
+        assertEquals(3, FakeDriver.statementsPrepared.get());
+        prepareAndClose("SELECT 2");
+        assertEquals(4, FakeDriver.statementsPrepared.get());
+    }
+
+    @Test
+    void aClosedHandleCannotBeUsed() throws Exception {
+        Connection conn = pool.borrow();
+        PreparedStatement st = conn.prepareStatement("SELECT 1");
+        st.close();
+        assertTrue(st.isClosed());
+        assertThrows(SQLException.class, st::executeQuery);
+        conn.close();
+    }
+
+    @Test
+    void clearsParametersBeforeReuse() throws Exception {
+        Connection conn = pool.borrow();
+        PreparedStatement st = conn.prepareStatement("SELECT ?");
+        st.setInt(1, 42);
+        st.close();
+        st = conn.prepareStatement("SELECT ?");
+        assertFalse(st.isClosed());
+        st.executeQuery();
+        assertTrue(FakeDriver.executed.get(0).params.isEmpty());
+        st.close();
+        conn.close();
+    }
+}
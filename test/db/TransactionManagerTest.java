@@ -0,0 +1,161 @@
+package db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TransactionManagerTest {
+
+    @BeforeEach
+    void setUp() {
+        FakeDriver.install();
+    }
+
+    private static void execute(String sql) {
+        Connection conn = DB.getConnection();
+        try {
+            conn.prepareStatement(sql).executeUpdate();
+        } catch (SQLException e) {
+            throw new DbException(e.getMessage());
+        } finally {
+            DB.closeConnection(conn);
+        }
+    }
+
+    @Test
+    void commitsWhenTheWorkSucceeds() {
+        String result = TransactionManager.inTransaction(() -> {
+            execute("UPDATE a");
+            execute("UPDATE b");
+            return "done";
+        });
+        assertEquals("done", result);
+        assertEquals(1, FakeDriver.commits.get());
+        assertEquals(0, FakeDriver.rollbacks.get());
+        assertFalse(TransactionManager.isActive());
+    }
+
+    @Test
+    void sharesOneConnectionInsideTheTransaction() {
+        TransactionManager.inTransaction(() -> {
+            assertTrue(TransactionManager.isActive());
+            assertSame(DB.getConnection(), DB.getConnection());
+        });
+    }
+
+    @Test
+    void rollsBackAndRethrowsWhenTheWorkFails() {
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> TransactionManager.inTransaction(() -> {
+                    execute("UPDATE a");
+                    throw new IllegalStateException("boom");
+                }));
+        assertEquals("boom", e.getMessage());
+        assertEquals(0, FakeDriver.commits.get());
+        assertEquals(1, FakeDriver.rollbacks.get());
+        assertFalse(TransactionManager.isActive());
+    }
+
+    @Test
+    void nestedCallsJoinTheOuterTransaction() {
+        TransactionManager.inTransaction(() -> {
+            execute("UPDATE a");
+            TransactionManager.inTransaction(() -> execute("UPDATE b"));
+            assertEquals(0, FakeDriver.commits.get());
+        });
+        assertEquals(1, FakeDriver.commits.get());
+    }
+
+    @Test
+    void aParticipantRollbackMarksTheTransactionRollbackOnly() {
+        TransactionManager.inTransaction(() -> {
+            Connection conn = DB.getConnection();
+            try {
+                conn.rollback();
+                conn.commit();
+            } catch (SQLException e) {
+                throw new DbException(e.getMessage());
+            }
+        });
+        assertEquals(0, FakeDriver.commits.get());
+        assertEquals(1, FakeDriver.rollbacks.get());
+    }
+
+    @Test
+    void runsAfterCompletionCallbacksOnceTheTransactionEnds() {
+        List<String> events = new ArrayList<>();
+        TransactionManager.inTransaction(() -> {
+            TransactionManager.afterCompletion(() -> events.add("callback, active=" + TransactionManager.isActive()));
+            events.add("work");
+        });
+        assertEquals(List.of("work", "callback, active=false"), events);
+    }
+
+    @Test
+    void runsAfterCompletionCallbacksAfterARollbackToo() {
+        List<String> events = new ArrayList<>();
+        assertThrows(IllegalStateException.class, () -> TransactionManager.inTransaction(() -> {
+            TransactionManager.afterCompletion(() -> events.add("callback"));
+            throw new IllegalStateException("boom");
+        }));
+        assertEquals(List.of("callback"), events);
+    }
+
+    @Test
+    void runsAfterCompletionRightAwayWithoutATransaction() {
+        List<String> events = new ArrayList<>();
+        TransactionManager.afterCompletion(() -> events.add("callback"));
+        assertEquals(List.of("callback"), events);
+    }
+
+    @Test
+    void keepsAFailedRollbackAsSuppressed() {
+        FakeDriver.failRollback = true;
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> TransactionManager.inTransaction(() -> {
+                    throw new IllegalStateException("boom");
+                }));
+        assertEquals(1, e.getSuppressed().length);
+        assertEquals("Rollback failed", e.getSuppressed()[0].getMessage());
+    }
+
+    @Test
+    void rollsBackOnceWhenTheCommitFails() {
+        FakeDriver.failCommit = true;
+        DbException e = assertThrows(DbException.class, () -> TransactionManager.inTransaction(() -> {
+            execute("UPDATE a");
+        }));
+        assertEquals("Commit failed", e.getMessage());
+        assertEquals(1, FakeDriver.rollbacks.get());
+        assertEquals(0, e.getSuppressed().length);
+        assertFalse(TransactionManager.isActive());
+    }
+
+    @Test
+    void keepsTheCommitFailureWhenTheRollbackFailsToo() {
+        FakeDriver.failCommit = true;
+        FakeDriver.failRollback = true;
+        DbException e = assertThrows(DbException.class, () -> TransactionManager.inTransaction(() -> {
+            execute("UPDATE a");
+        }));
+        assertEquals("Commit failed", e.getMessage());
+        assertEquals(1, e.getSuppressed().length);
+        assertEquals("Rollback failed", e.getSuppressed()[0].getMessage());
+    }
+
+    @Test
+    void requiresATransactionForSavepoints() {
+        assertThrows(IllegalStateException.class, () -> TransactionManager.setSavepoint("x"));
+        assertThrows(IllegalStateException.class, TransactionManager::setRollbackOnly);
+    }
+}
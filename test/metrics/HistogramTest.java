@@ -0,0 +1,82 @@
+package metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class HistogramTest {
+
+    @Test
+    void bucketsAreContiguousAndAtMostAQuarterWide() {
+        int previous = -1;
+        for (long value = 0; value < 200000; value++) {
+            int bucket = Histogram.bucketOf(value);
+            long upper = Histogram.upperBoundOf(bucket);
+            assertTrue(bucket == previous || bucket == previous + 1, "bucket of " + value);
+            assertTrue(upper >= value, "upper bound of " + value + " is " + upper);
+            assertTrue(bucket == 0 || Histogram.upperBoundOf(bucket - 1) < value, "lower bound of " + value);
+            assertTrue(upper - value <= value / 4, "bucket of " + value + " ends at " + upper);
+            previous = bucket;
+        }
+    }
+
+    @Test
+    void coversTheWholeRangeOfLong() {
+        int last = Histogram.bucketOf(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, Histogram.upperBoundOf(last));
+        assertEquals(last, Histogram.bucketOf(7L << 60));
+        assertEquals(last - 1, Histogram.bucketOf((7L << 60) - 1));
+    }
+
+    @Test
+    void percentilesAreWithinAQuarterOfTheRealValue() {
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 10000; value++) {
+            histogram.record(value);
+        }
+        assertWithinAQuarter(5000, histogram.getPercentile(0.5));
+        assertWithinAQuarter(9000, histogram.getPercentile(0.9));
+        assertWithinAQuarter(9900, histogram.getPercentile(0.99));
+        assertEquals(10000, histogram.getPercentile(1.0));
+        assertEquals(10000, histogram.getCount());
+        assertEquals(5000.5, histogram.getMean(), 0.001);
+    }
+
+    private static void assertWithinAQuarter(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected * 5 / 4, "expected about " + expected + " but was " + actual);
+    }
+
+    @Test
+    void neverReportsMoreThanTheMaximum() {
+        Histogram histogram = new Histogram();
+        histogram.record(1000);
+        histogram.record(1001);
+        assertEquals(1001, histogram.getPercentile(0.5));
+        assertEquals(1001, histogram.getPercentile(0.99));
+        assertEquals(1001, histogram.getMax());
+    }
+
+    @Test
+    void recordsNegativeValuesAsZero() {
+        Histogram histogram = new Histogram();
+        histogram.record(-5);
+        histogram.record(0);
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.getSum());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(0.99));
+    }
+
+    @Test
+    void isEmptyAfterAReset() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getPercentile(0.5));
+        assertEquals(0.0, histogram.getMean(), 0.0);
+        histogram.record(42);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(0.5));
+    }
+}
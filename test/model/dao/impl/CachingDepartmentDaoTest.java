@@ -0,0 +1,67 @@
+package model.dao.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import db.FakeDriver;
+import db.FakeDriver.Result;
+import db.TransactionManager;
+import model.entities.Department;
+
+public class CachingDepartmentDaoTest {
+
+    /** The name the database holds for department 1; the fake ignores what updates write. */
+    private volatile String name = "Books";
+
+    private CachingDepartmentDao dao;
+
+    @BeforeEach
+    void setUp() {
+        FakeDriver.install();
+        FakeDriver.responder = (sql, params) -> {
+            if (sql.startsWith("SELECT * FROM department WHERE Id")) {
+                return Result.rows("Id, Name, Version", new Object[] { 1, name, 0 });
+            }
+            return sql.startsWith("UPDATE") ? Result.update(1) : null;
+        };
+        dao = new CachingDepartmentDao(new DepartmentDaoJDBC(), 10, 60000);
+    }
+
+    private long reads() {
+        return FakeDriver.executedSql().stream().filter(sql -> sql.startsWith("SELECT")).count();
+    }
+
+    @Test
+    void servesRepeatedReadsFromTheCache() {
+        Department first = dao.findById(1);
+        assertSame(first, dao.findById(1));
+        assertEquals(1, reads());
+    }
+
+    @Test
+    void dropsRowsCachedDuringATransactionOnceItCommits() {
+        TransactionManager.inTransaction(() -> {
+            dao.update(new Department(1, "Music", 0));
+            name = "Music";
+            dao.findById(1);
+        });
+        dao.findById(1);
+        assertEquals(2, reads());
+    }
+
+    @Test
+    void dropsRowsCachedDuringATransactionThatRollsBack() {
+        assertThrows(IllegalStateException.class, () -> TransactionManager.inTransaction(() -> {
+            dao.update(new Department(1, "Music", 0));
+            name = "Music";
+            assertEquals("Music", dao.findById(1).getName());
+            name = "Books";
+            throw new IllegalStateException("boom");
+        }));
+        assertEquals("Books", dao.findById(1).getName());
+    }
+}
@@ -0,0 +1,77 @@
+package model.dao.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import db.FakeDriver;
+import db.FakeDriver.Executed;
+import db.FakeDriver.Result;
+
+/**
+ * Runs against a replica that has not caught up with the primary: seller
+ * 1 was renamed from Ann to Anna and seller 2 was inserted, but the
+ * replica still holds only the old seller 1.
+ */
+public class IndexedSellerDaoTest {
+
+    private static final String COLUMNS =
+            "Id, Name, Email, BirthDate, BaseSalary, DepartmentId, Version, DepName, DepVersion";
+
+    private IndexedSellerDao dao;
+
+    @BeforeEach
+    void setUp() {
+        FakeDriver.installReplica();
+        FakeDriver.responder = (sql, params) -> sql.startsWith("SELECT seller.*")
+                ? Result.rows(COLUMNS, row(1, "Anna", 1), row(2, "Bea", 0)) : departments(sql);
+        FakeDriver.replicaResponder = (sql, params) -> sql.startsWith("SELECT seller.*")
+                ? Result.rows(COLUMNS, row(1, "Ann", 0)) : departments(sql);
+        CachingDepartmentDao departments = new CachingDepartmentDao(new DepartmentDaoJDBC(), 10, 60000);
+        dao = new IndexedSellerDao(new SellerDaoJDBC(departments), departments, 60000);
+    }
+
+    private static Result departments(String sql) {
+        return sql.startsWith("SELECT") ? Result.rows("Id, Name, Version", new Object[] { 1, "Books", 0 }) : null;
+    }
+
+    private static Object[] row(int id, String name, int version) {
+        return new Object[] { id, name, name.toLowerCase() + "@example.com", LocalDate.of(1990, 1, 1), 1000.0, 1,
+                version, "Books", 0 };
+    }
+
+    private static String lastSellerQueryUrl() {
+        synchronized (FakeDriver.executed) {
+            String url = null;
+            for (Executed e : FakeDriver.executed) {
+                if (e.sql.startsWith("SELECT seller.*")) {
+                    url = e.url;
+                }
+            }
+            return url;
+        }
+    }
+
+    @Test
+    void refreshReadsAChangedRowFromThePrimary() {
+        assertEquals("Ann", dao.findAll().get(0).getName());
+        assertEquals(FakeDriver.REPLICA_URL, lastSellerQueryUrl());
+
+        dao.refresh(List.of(1));
+        assertEquals(FakeDriver.URL, lastSellerQueryUrl());
+        assertEquals("Anna", dao.findById(1).getName());
+    }
+
+    @Test
+    void refreshKeepsARowTheReplicaDoesNotHaveYet() {
+        dao.findAll();
+        dao.refresh(List.of(2));
+        assertNotNull(dao.findById(2), "seller 2 was dropped as deleted");
+        assertEquals(2, dao.findAll().size());
+    }
+}
@@ -0,0 +1,149 @@
+package model.dao.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import model.entities.Department;
+import model.entities.Seller;
+
+public class MemoryStoreTest {
+
+    private MemoryStore store;
+
+    private Department books;
+
+    @BeforeEach
+    void setUp() {
+        store = new MemoryStore();
+        books = new Department(1, "Books", 0);
+        store.putDepartment(books);
+        store.putSeller(seller(1, "Bob", books));
+        store.putSeller(seller(2, "ann", books));
+        store.markClean();
+    }
+
+    private static Seller seller(int id, String name, Department department) {
+        Seller obj = new Seller(id, name, name.toLowerCase() + "@example.com", LocalDate.of(1990, 1, 1), 1000.0);
+        obj.setDepartment(department);
+        obj.setVersion(0);
+        return obj;
+    }
+
+    private static List<String> names(Iterable<Seller> sellers) {
+        List<String> names = new ArrayList<>();
+        for (Seller obj : sellers) {
+            names.add(obj.getName());
+        }
+        return names;
+    }
+
+    @Test
+    void ordersNamesIgnoringCaseAndThenById() {
+        store.putSeller(seller(3, "bob", books));
+        store.putSeller(seller(0, "BOB", books));
+        assertEquals(List.of("ann", "BOB", "Bob", "bob"), names(store.sellersByName().values()));
+        assertEquals(List.of("ann", "BOB", "Bob", "bob"), names(store.sellersByDepartment(1).values()));
+    }
+
+    @Test
+    void keepsTheChangesOfATransactionThatCompletes() {
+        store.inTransaction(() -> {
+            store.putSeller(seller(1, "Carl", books));
+            store.removeSeller(2);
+            return null;
+        });
+        assertEquals(List.of("Carl"), names(store.sellersByName().values()));
+        assertTrue(store.isDirty());
+    }
+
+    @Test
+    void putsEveryRowBackWhenATransactionFails() {
+        Department music = new Department(2, "Music", 0);
+        assertThrows(IllegalStateException.class, () -> store.inTransaction(() -> {
+            store.putSeller(seller(1, "Zed", books));
+            store.putSeller(seller(1, "Zoe", books));
+            store.removeSeller(2);
+            store.putDepartment(music);
+            store.putSeller(seller(3, "Carl", music));
+            throw new IllegalStateException("boom");
+        }));
+        assertEquals("Bob", store.getSeller(1).getName());
+        assertEquals("ann", store.getSeller(2).getName());
+        assertNull(store.getSeller(3));
+        assertNull(store.getDepartment(2));
+        assertEquals(List.of("ann", "Bob"), names(store.sellersByName().values()));
+        assertEquals(List.of("ann", "Bob"), names(store.sellersByDepartment(1).values()));
+        assertFalse(store.hasSellers(2));
+    }
+
+    @Test
+    void aFailedNestedCallRollsBackWithTheOuterOne() {
+        assertThrows(IllegalStateException.class, () -> store.inTransaction(() -> {
+            store.removeSeller(1);
+            return store.inTransaction(() -> {
+                store.removeSeller(2);
+                throw new IllegalStateException("boom");
+            });
+        }));
+        assertEquals(List.of("ann", "Bob"), names(store.sellersByName().values()));
+    }
+
+    @Test
+    void aNestedFailureTheOuterCallHandlesIsNotUndone() {
+        store.inTransaction(() -> {
+            store.removeSeller(1);
+            try {
+                store.inTransaction(() -> {
+                    store.removeSeller(2);
+                    throw new IllegalStateException("boom");
+                });
+            } catch (IllegalStateException e) {
+                // the outer work decides what happens
+            }
+            return null;
+        });
+        assertTrue(store.sellersByName().isEmpty());
+    }
+
+    @Test
+    void writesOutsideATransactionAreNotRemembered() {
+        store.putSeller(seller(3, "Carl", books));
+        assertThrows(IllegalStateException.class, () -> store.inTransaction(() -> {
+            throw new IllegalStateException("boom");
+        }));
+        assertEquals("Carl", store.getSeller(3).getName());
+    }
+
+    @Test
+    void replaceAllRebuildsTheIndexes() {
+        Department music = new Department(7, "Music", 0);
+        store.replaceAll(List.of(music), List.of(seller(9, "Dan", music), seller(8, "carl", music)));
+        assertNull(store.getSeller(1));
+        assertNull(store.getDepartment(1));
+        assertEquals(List.of("carl", "Dan"), names(store.sellersByName().values()));
+        assertTrue(store.sellersByDepartment(1).isEmpty());
+        assertEquals(2, store.sellersByDepartment(7).size());
+        assertEquals(10, store.nextSellerId());
+        assertEquals(8, store.nextDepartmentId());
+    }
+
+    @Test
+    void localIdsAreNegativeAndIgnoreServerIds() {
+        MemoryStore local = new MemoryStore(true);
+        assertEquals(-1, local.nextDepartmentId());
+        local.putDepartment(new Department(-1, "Books", 0));
+        local.putDepartment(new Department(50, "Music", 0));
+        assertEquals(-2, local.nextDepartmentId());
+        assertEquals(-1, local.nextSellerId());
+    }
+}
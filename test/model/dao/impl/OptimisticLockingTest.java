@@ -0,0 +1,117 @@
+package model.dao.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import db.DbConcurrencyException;
+import db.FakeDriver;
+import db.FakeDriver.Result;
+import model.entities.Department;
+import model.entities.Seller;
+
+public class OptimisticLockingTest {
+
+    private SellerDaoJDBC sellerDao;
+
+    private DepartmentDaoJDBC departmentDao;
+
+    @BeforeEach
+    void setUp() {
+        FakeDriver.install();
+        departmentDao = new DepartmentDaoJDBC();
+        sellerDao = new SellerDaoJDBC(new CachingDepartmentDao(departmentDao, 10, 60000));
+    }
+
+    private static Seller seller(int id, int version) {
+        Seller obj = new Seller(id, "Seller " + id, "s" + id + "@example.com", LocalDate.of(1990, 1, 1), 1000.0);
+        obj.setDepartment(new Department(1, "Books", 0));
+        obj.setVersion(version);
+        return obj;
+    }
+
+    @Test
+    void updateChecksAndBumpsTheVersion() {
+        FakeDriver.responder = (sql, params) -> Result.update(1);
+        Seller obj = seller(7, 3);
+        sellerDao.update(obj);
+        assertEquals(4, obj.getVersion().intValue());
+        List<Object> params = FakeDriver.executed.get(0).params;
+        assertTrue(FakeDriver.executed.get(0).sql.contains("WHERE Id = ? AND Version = ?"));
+        assertEquals(List.of(7, 3), params.subList(5, 7));
+    }
+
+    @Test
+    void updateOfAChangedRowThrowsAndKeepsTheVersion() {
+        FakeDriver.responder = (sql, params) -> Result.update(0);
+        Seller obj = seller(7, 3);
+        DbConcurrencyException e = assertThrows(DbConcurrencyException.class, () -> sellerDao.update(obj));
+        assertTrue(e.getMessage().contains("Seller 7"), e.getMessage());
+        assertEquals(3, obj.getVersion().intValue());
+    }
+
+    @Test
+    void updateAllStopsAtTheFirstConflictAndRollsBackItsChunk() {
+        FakeDriver.responder = (sql, params) -> Result.update(params.get(5).equals(4) ? 0 : 1);
+        List<Seller> sellers = List.of(seller(1, 0), seller(2, 0), seller(3, 0), seller(4, 0));
+        DbConcurrencyException e = assertThrows(DbConcurrencyException.class,
+                () -> sellerDao.updateAll(sellers, 2));
+        assertTrue(e.getMessage().contains("Seller 4"), e.getMessage());
+        assertTrue(e.getMessage().contains("2 rows committed"), e.getMessage());
+        assertEquals(1, FakeDriver.commits.get());
+        assertTrue(FakeDriver.rollbacks.get() >= 1);
+        assertEquals(1, sellers.get(0).getVersion().intValue());
+        assertEquals(0, sellers.get(2).getVersion().intValue());
+    }
+
+    @Test
+    void rejectsAnUpdateWithoutAVersion() {
+        Seller obj = seller(7, 0);
+        obj.setVersion(null);
+        assertThrows(IllegalArgumentException.class, () -> sellerDao.update(obj));
+        assertThrows(IllegalArgumentException.class, () -> sellerDao.updateAll(List.of(seller(1, 0), obj), 1));
+        Department department = new Department();
+        department.setId(2);
+        department.setName("Books");
+        assertThrows(IllegalArgumentException.class, () -> departmentDao.update(department));
+        assertTrue(FakeDriver.executed.isEmpty());
+    }
+
+    @Test
+    void departmentUpdateOfAChangedRowThrows() {
+        FakeDriver.responder = (sql, params) -> Result.update(0);
+        Department obj = new Department(2, "Books", 5);
+        assertThrows(DbConcurrencyException.class, () -> departmentDao.update(obj));
+        assertEquals(5, obj.getVersion().intValue());
+    }
+
+    @Test
+    void versionedDeleteRemovesAnUnchangedRow() {
+        FakeDriver.responder = (sql, params) -> Result.update(1);
+        sellerDao.deleteById(7, 3);
+        assertEquals(1, FakeDriver.executed.size());
+        assertEquals(List.of(7, 3), FakeDriver.executed.get(0).params);
+    }
+
+    @Test
+    void versionedDeleteOfAChangedRowThrows() {
+        FakeDriver.responder = (sql, params) -> sql.startsWith("SELECT")
+                ? Result.rows("1", new Object[] { 1 }) : Result.update(0);
+        assertThrows(DbConcurrencyException.class, () -> sellerDao.deleteById(7, 3));
+        assertThrows(DbConcurrencyException.class, () -> departmentDao.deleteById(2, 0));
+    }
+
+    @Test
+    void versionedDeleteOfARowThatIsGoneSucceeds() {
+        FakeDriver.responder = (sql, params) -> sql.startsWith("SELECT") ? Result.rows("1") : Result.update(0);
+        sellerDao.deleteById(7, 3);
+        departmentDao.deleteById(2, 0);
+        assertEquals(4, FakeDriver.executed.size());
+    }
+}
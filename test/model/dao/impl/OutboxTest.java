@@ -0,0 +1,119 @@
+package model.dao.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.DataOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import model.entities.Department;
+import model.entities.Seller;
+
+public class OutboxTest {
+
+    private Path file;
+
+    private Outbox outbox;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        file = Files.createTempDirectory("outbox").resolve("outbox.log");
+        outbox = new Outbox(file);
+    }
+
+    @AfterEach
+    void tearDown() {
+        outbox.close();
+    }
+
+    private Outbox reopen() {
+        outbox.close();
+        outbox = new Outbox(file);
+        return outbox;
+    }
+
+    private static Seller seller(int id) {
+        Seller obj = new Seller(id, "Seller " + id, "s" + id + "@example.com", LocalDate.of(1990, 1, 1), 1000.0);
+        obj.setDepartment(new Department(-1, "Books", 0));
+        obj.setVersion(0);
+        return obj;
+    }
+
+    private static String describe(List<OutboxEntry> entries) {
+        StringBuilder sb = new StringBuilder();
+        for (OutboxEntry entry : entries) {
+            sb.append(sb.length() == 0 ? "" : ", ").append(entry);
+        }
+        return sb.toString();
+    }
+
+    @Test
+    void keepsTheEntriesInOrderAcrossARestart() {
+        OutboxEntry insert = OutboxEntry.insert(seller(-1));
+        outbox.appendAll(List.of(insert, OutboxEntry.update(new Department(3, "Music", 1), 0)));
+        outbox.appendAll(List.of(OutboxEntry.deleteSeller(7, 2)));
+        List<OutboxEntry> entries = reopen().entries();
+        assertEquals("INSERT seller -1, UPDATE department 3, DELETE seller 7", describe(entries));
+        assertEquals(insert.getClientKey(), entries.get(0).getClientKey());
+        assertEquals("Seller -1", entries.get(0).getSeller().getName());
+        assertEquals(2, entries.get(2).getBaseVersion().intValue());
+    }
+
+    @Test
+    void removalsSurviveARestart() {
+        outbox.appendAll(List.of(OutboxEntry.deleteSeller(1, null), OutboxEntry.deleteSeller(2, null),
+                OutboxEntry.deleteDepartment(3, null)));
+        outbox.removeFirst();
+        assertEquals(1, outbox.removeIf(entry -> entry.isFor(false, 3)));
+        assertEquals(0, outbox.removeIf(entry -> entry.isFor(false, 3)));
+        assertEquals("DELETE seller 2", describe(reopen().entries()));
+    }
+
+    @Test
+    void persistsRemappedIds() {
+        outbox.appendAll(List.of(OutboxEntry.insert(seller(-1)), OutboxEntry.update(seller(-1), 0)));
+        for (OutboxEntry entry : outbox.entries()) {
+            entry.remap(true, -1, 40);
+            entry.remap(false, -1, 9);
+        }
+        outbox.persist();
+        List<OutboxEntry> entries = reopen().entries();
+        assertEquals("INSERT seller 40, UPDATE seller 40", describe(entries));
+        assertEquals(9, entries.get(1).getSeller().getDepartment().getId().intValue());
+    }
+
+    @Test
+    void dropsARecordCutShortByACrash() throws Exception {
+        outbox.appendAll(List.of(OutboxEntry.deleteSeller(1, null), OutboxEntry.deleteSeller(2, null)));
+        outbox.close();
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file, StandardOpenOption.APPEND))) {
+            out.writeInt(500);
+            out.write(new byte[] { 1, 2, 3 });
+        }
+        outbox = new Outbox(file);
+        assertEquals(2, outbox.size());
+        outbox.appendAll(List.of(OutboxEntry.deleteSeller(3, null)));
+        assertEquals("DELETE seller 1, DELETE seller 2, DELETE seller 3", describe(reopen().entries()));
+    }
+
+    @Test
+    void onlyInsertsGetAClientKey() {
+        OutboxEntry first = OutboxEntry.insert(seller(-1));
+        OutboxEntry second = OutboxEntry.insert(seller(-1));
+        assertNotNull(first.getClientKey());
+        assertNotEquals(first.getClientKey(), second.getClientKey());
+        assertNotNull(OutboxEntry.insert(new Department(-2, "Music", 0)).getClientKey());
+        assertNull(OutboxEntry.update(seller(1), 0).getClientKey());
+        assertNull(OutboxEntry.deleteDepartment(1, 0).getClientKey());
+    }
+}
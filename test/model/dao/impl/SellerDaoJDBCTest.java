@@ -0,0 +1,141 @@
+package model.dao.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import db.DbConcurrencyException;
+import db.DbException;
+import db.FakeDriver;
+import db.FakeDriver.Result;
+import model.entities.Department;
+import model.entities.Seller;
+
+public class SellerDaoJDBCTest {
+
+    private SellerDaoJDBC dao;
+
+    @BeforeEach
+    void setUp() {
+        FakeDriver.install();
+        dao = new SellerDaoJDBC(new CachingDepartmentDao(new DepartmentDaoJDBC(), 10, 60000));
+    }
+
+    private static Result noSellers(String sql, List<Object> params) {
+        return Result.rows("Id, Name, Email, BirthDate, BaseSalary, DepartmentId, Version, DepName, DepVersion");
+    }
+
+    private static List<Seller> sellers(int count) {
+        List<Seller> list = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            Seller obj = new Seller(null, "Seller " + i, "s" + i + "@example.com", LocalDate.of(1990, 1, 1), 1000.0);
+            obj.setDepartment(new Department(1, "Books", 0));
+            list.add(obj);
+        }
+        return list;
+    }
+
+    @Test
+    void insertReadsTheGeneratedKeyAndClosesItsResultSet() {
+        FakeDriver.responder = (sql, params) -> Result.update(1, 42);
+        Seller obj = sellers(1).get(0);
+        dao.insert(obj);
+        assertEquals(42, obj.getId().intValue());
+        assertEquals(0, obj.getVersion().intValue());
+        assertEquals(0, FakeDriver.openResultSets.get());
+    }
+
+    @Test
+    void insertAllCommitsEachChunkAndAssignsKeys() {
+        AtomicInteger nextId = new AtomicInteger(100);
+        FakeDriver.responder = (sql, params) -> Result.update(1, nextId.getAndIncrement());
+        List<Seller> list = sellers(5);
+        List<Integer> keys = dao.insertAll(list, 2);
+        assertEquals(List.of(100, 101, 102, 103, 104), keys);
+        assertEquals(104, list.get(4).getId().intValue());
+        assertEquals(0, list.get(4).getVersion().intValue());
+        assertEquals(3, FakeDriver.commits.get());
+    }
+
+    @Test
+    void insertAllReportsHowManyRowsWereCommitted() {
+        FakeDriver.responder = (sql, params) -> {
+            if ("Seller 3".equals(params.get(0))) {
+                throw new SQLException("Duplicate entry");
+            }
+            return Result.update(1, 1);
+        };
+        DbException e = assertThrows(DbException.class, () -> dao.insertAll(sellers(4), 2));
+        assertTrue(e.getMessage().contains("Duplicate entry (2 rows committed)"), e.getMessage());
+        assertEquals(1, FakeDriver.commits.get());
+        assertEquals(0, e.getSuppressed().length);
+    }
+
+    @Test
+    void insertAllKeepsAFailedRollbackAsSuppressed() {
+        FakeDriver.responder = (sql, params) -> {
+            throw new SQLException("Duplicate entry");
+        };
+        FakeDriver.failRollback = true;
+        DbException e = assertThrows(DbException.class, () -> dao.insertAll(sellers(2), 10));
+        assertTrue(e.getMessage().startsWith("Duplicate entry"), e.getMessage());
+        assertEquals(1, e.getSuppressed().length);
+        assertEquals("Rollback failed", e.getSuppressed()[0].getMessage());
+    }
+
+    @Test
+    void updateAllKeepsAFailedRollbackAsSuppressed() {
+        FakeDriver.responder = (sql, params) -> Result.update(0);
+        FakeDriver.failRollback = true;
+        List<Seller> list = sellers(2);
+        for (int i = 0; i < list.size(); i++) {
+            list.get(i).setId(i + 1);
+            list.get(i).setVersion(0);
+        }
+        DbConcurrencyException e = assertThrows(DbConcurrencyException.class, () -> dao.updateAll(list, 10));
+        assertEquals(1, e.getSuppressed().length);
+        assertEquals("Rollback failed", e.getSuppressed()[0].getMessage());
+    }
+
+    @Test
+    void findByIdsPadsTheInListToAFixedSize() {
+        FakeDriver.responder = SellerDaoJDBCTest::noSellers;
+        dao.findByIds(List.of(3, 1, 2, 1));
+        assertEquals(1, FakeDriver.executed.size());
+        List<Object> params = FakeDriver.executed.get(0).params;
+        assertEquals(10, params.size());
+        assertEquals(List.of(1, 2, 3, 3), params.subList(0, 4));
+        assertEquals(3, params.get(9));
+
+        FakeDriver.executed.clear();
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 1; i <= 11; i++) {
+            ids.add(i);
+        }
+        dao.findByIds(ids);
+        assertEquals(50, FakeDriver.executed.get(0).params.size());
+    }
+
+    @Test
+    void findByIdsSplitsLongListsAndReusesTheStatement() {
+        FakeDriver.responder = SellerDaoJDBCTest::noSellers;
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 1; i <= 1001; i++) {
+            ids.add(i);
+        }
+        dao.findByIds(ids);
+        assertEquals(3, FakeDriver.executed.size());
+        assertEquals(500, FakeDriver.executed.get(1).params.size());
+        assertEquals(List.of(1001), FakeDriver.executed.get(2).params);
+        assertEquals(2, FakeDriver.statementsPrepared.get());
+    }
+}
@@ -0,0 +1,288 @@
+package model.dao.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import db.DbException;
+import db.FakeDriver;
+import db.FakeDriver.Result;
+import model.dao.DepartmentDao;
+import model.entities.Department;
+
+/**
+ * Drives OfflineDaoProvider against a fake server that holds departments
+ * only.
+ */
+public class SyncWorkerTest {
+
+    /** Server departments by id, as Id, Name, Version rows. */
+    private final Map<Integer, Object[]> serverRows = new ConcurrentHashMap<>();
+
+    /** Server change_log as Id, TableName, RowId, Operation rows. */
+    private final List<Object[]> changeLog = new ArrayList<>();
+
+    /** Server department ids by client key. */
+    private final Map<String, Integer> clientKeys = new ConcurrentHashMap<>();
+
+    /** The id the server reports for any client key, as if every insert had already arrived. */
+    private volatile Integer knownId;
+
+    private volatile boolean failInsert;
+
+    private volatile int deleteCount = 1;
+
+    private volatile boolean failFindByIds;
+
+    private OfflineDaoProvider provider;
+
+    private DepartmentDao dao;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        FakeDriver.install();
+        serverRows.put(5, new Object[] { 5, "Books", 2 });
+        FakeDriver.responder = this::respond;
+        open(3600);
+    }
+
+    private void open(long pullIntervalSeconds) throws Exception {
+        provider = new OfflineDaoProvider(Files.createTempDirectory("offline"), 3600, 3600, pullIntervalSeconds);
+        dao = provider.createDepartmentDao();
+        // the sync thread pulls the server rows and then sleeps for the rest of the test
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!provider.isOnline() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(provider.isOnline());
+        FakeDriver.executed.clear();
+    }
+
+    /** Pulls at every round instead of once an hour. */
+    private void pullEveryRound() throws Exception {
+        provider.close();
+        open(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        FakeDriver.failConnect = false;
+        provider.close();
+    }
+
+    private Result respond(String sql, List<Object> params) throws SQLException {
+        if (sql.startsWith("SELECT COALESCE(MAX(Id), 0) FROM change_log")) {
+            synchronized (changeLog) {
+                return Result.rows("Id", new Object[] { (long) changeLog.size() });
+            }
+        }
+        if (sql.startsWith("SELECT Id, TableName, RowId, Operation FROM change_log WHERE Id >")) {
+            synchronized (changeLog) {
+                long after = (Long) params.get(0);
+                return Result.rows("Id, TableName, RowId, Operation",
+                        changeLog.subList((int) after, changeLog.size()).toArray(new Object[0][]));
+            }
+        }
+        if (sql.startsWith("SELECT * FROM department WHERE Id IN")) {
+            if (failFindByIds) {
+                throw new SQLException("Connection reset");
+            }
+            List<Object[]> rows = new ArrayList<>();
+            for (Object id : new TreeSet<>(params)) {
+                if (serverRows.containsKey(id)) {
+                    rows.add(serverRows.get(id));
+                }
+            }
+            return Result.rows("Id, Name, Version", rows.toArray(new Object[0][]));
+        }
+        if (sql.startsWith("SELECT Id FROM department WHERE ClientKey")) {
+            Integer id = knownId != null ? knownId : clientKeys.get((String) params.get(0));
+            return id == null ? Result.rows("Id") : Result.rows("Id", new Object[] { id });
+        }
+        if (sql.startsWith("INSERT INTO department")) {
+            int id = 40 + serverRows.size();
+            serverRows.put(id, new Object[] { id, params.get(0), 0 });
+            clientKeys.put((String) params.get(1), id);
+            if (failInsert) {
+                throw new SQLException("Connection reset");
+            }
+            return Result.update(1, id);
+        }
+        if (sql.startsWith("DELETE FROM department")) {
+            return Result.update(deleteCount);
+        }
+        if (sql.startsWith("SELECT 1 FROM department") || sql.startsWith("SELECT * FROM department WHERE Id")) {
+            Object[] row = serverRows.get((Integer) params.get(0));
+            return row == null ? Result.rows("Id, Name, Version") : Result.rows("Id, Name, Version", row);
+        }
+        if (sql.startsWith("SELECT * FROM department")) {
+            return Result.rows("Id, Name, Version", serverRows.values().toArray(new Object[0][]));
+        }
+        if (sql.startsWith("SELECT")) {
+            return Result.rows("Id, Name, Email, BirthDate, BaseSalary, DepartmentId, Version, DepName, DepVersion");
+        }
+        return null;
+    }
+
+    private static Department department(String name) {
+        Department obj = new Department();
+        obj.setName(name);
+        return obj;
+    }
+
+    private long count(String prefix) {
+        return FakeDriver.executedSql().stream().filter(sql -> sql.startsWith(prefix)).count();
+    }
+
+    private long fullReloads() {
+        return FakeDriver.executedSql().stream().filter(sql -> sql.equals("SELECT * FROM department")).count();
+    }
+
+    /** Changes a server row the way another client would, logging it in change_log. */
+    private void changeOnServer(int id, String name, int version, String operation) {
+        if (name == null) {
+            serverRows.remove(id);
+        } else {
+            serverRows.put(id, new Object[] { id, name, version });
+        }
+        synchronized (changeLog) {
+            changeLog.add(new Object[] { (long) changeLog.size() + 1, "department", id, operation });
+        }
+    }
+
+    @Test
+    void pullsTheServerRowsOnTheFirstRound() {
+        assertEquals("Books", dao.findById(5).getName());
+        assertTrue(provider.isOnline());
+    }
+
+    @Test
+    void pushesAnOfflineInsertAndMovesTheRowToTheServerId() {
+        Department obj = department("Music");
+        dao.insert(obj);
+        int localId = obj.getId();
+        assertTrue(localId < 0);
+        assertEquals(1, provider.getPendingCount());
+
+        provider.syncNow();
+        assertEquals(0, provider.getPendingCount());
+        assertEquals(1, count("INSERT INTO department"));
+        Department moved = dao.findById(localId);
+        assertEquals(41, moved.getId().intValue());
+        assertEquals("Music", moved.getName());
+    }
+
+    @Test
+    void doesNotInsertARowTheServerAlreadyHas() {
+        Department obj = department("Music");
+        dao.insert(obj);
+        knownId = 77;
+
+        provider.syncNow();
+        assertEquals(0, count("INSERT INTO department"));
+        assertEquals(77, dao.findById(obj.getId()).getId().intValue());
+    }
+
+    @Test
+    void findsAnInsertThatCommittedBeforeTheConnectionWasLost() {
+        failInsert = true;
+        Department obj = department("Music");
+        dao.insert(obj);
+
+        provider.syncNow();
+        assertEquals(1, count("INSERT INTO department"));
+        assertEquals(0, provider.getPendingCount());
+        assertEquals(41, dao.findById(obj.getId()).getId().intValue());
+    }
+
+    @Test
+    void sendsDeletesWithTheVersionTheyWereMadeAgainst() {
+        dao.deleteById(5);
+        provider.syncNow();
+        assertEquals(List.of(5, 2), FakeDriver.executed.get(0).params);
+        assertEquals(0, provider.getPendingCount());
+    }
+
+    @Test
+    void keepsTheServerRowWhenADeleteConflicts() {
+        deleteCount = 0;
+        serverRows.put(5, new Object[] { 5, "Books and Music", 3 });
+        dao.deleteById(5);
+        assertNull(dao.findById(5));
+
+        provider.syncNow();
+        assertEquals(0, provider.getPendingCount());
+        Department restored = dao.findById(5);
+        assertEquals("Books and Music", restored.getName());
+        assertEquals(3, restored.getVersion().intValue());
+    }
+
+    @Test
+    void keepsTheOutboxWhileTheServerIsDown() {
+        dao.insert(department("Music"));
+        FakeDriver.closeAllConnections();
+        FakeDriver.failConnect = true;
+        assertThrows(DbException.class, provider::syncNow);
+        assertEquals(1, provider.getPendingCount());
+
+        FakeDriver.failConnect = false;
+        provider.syncNow();
+        assertEquals(0, provider.getPendingCount());
+        assertEquals(1, count("INSERT INTO department"));
+    }
+
+    @Test
+    void pullsOnlyTheRowsChangedSinceTheLastPull() throws Exception {
+        pullEveryRound();
+        changeOnServer(5, "Books and Music", 3, "U");
+        changeOnServer(6, "Toys", 0, "I");
+
+        provider.syncNow();
+        assertEquals(0, fullReloads());
+        assertEquals(1, count("SELECT * FROM department WHERE Id IN"));
+        assertEquals("Books and Music", dao.findById(5).getName());
+        assertEquals("Toys", dao.findById(6).getName());
+
+        FakeDriver.executed.clear();
+        provider.syncNow();
+        assertEquals(0, fullReloads());
+        assertEquals(0, count("SELECT * FROM department WHERE Id IN"));
+    }
+
+    @Test
+    void removesRowsDeletedOnTheServer() throws Exception {
+        pullEveryRound();
+        changeOnServer(5, null, 0, "D");
+
+        provider.syncNow();
+        assertNull(dao.findById(5));
+        assertEquals(0, fullReloads());
+    }
+
+    @Test
+    void reloadsEverythingAfterAPullFails() throws Exception {
+        pullEveryRound();
+        changeOnServer(5, "Books and Music", 3, "U");
+        failFindByIds = true;
+        assertThrows(DbException.class, provider::syncNow);
+        assertEquals("Books", dao.findById(5).getName());
+
+        failFindByIds = false;
+        provider.syncNow();
+        assertEquals(1, fullReloads());
+        assertEquals("Books and Music", dao.findById(5).getName());
+    }
+}
@@ -0,0 +1,87 @@
+package model.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class BatchLoaderTest {
+
+    private final List<List<Integer>> calls = Collections.synchronizedList(new ArrayList<>());
+
+    /** Loads "row n" for every requested id below 100. */
+    private List<String> load(List<Integer> ids) {
+        calls.add(ids);
+        List<String> rows = new ArrayList<>();
+        for (Integer id : ids) {
+            if (id < 100) {
+                rows.add("row " + id);
+            }
+        }
+        return rows;
+    }
+
+    private static Integer idOf(String row) {
+        return Integer.valueOf(row.substring(4));
+    }
+
+    @Test
+    void loadsTheIdsOfOneWindowWithOneCall() throws Exception {
+        BatchLoader<String> loader = new BatchLoader<>(this::load, BatchLoaderTest::idOf, 50, 100);
+        CompletableFuture<String> first = loader.load(1);
+        CompletableFuture<String> second = loader.load(2);
+        assertEquals("row 1", first.get(2, TimeUnit.SECONDS));
+        assertEquals("row 2", second.get(2, TimeUnit.SECONDS));
+        assertEquals(List.of(List.of(1, 2)), calls);
+    }
+
+    @Test
+    void sharesTheFutureOfAnIdThatIsAlreadyWaiting() throws Exception {
+        BatchLoader<String> loader = new BatchLoader<>(this::load, BatchLoaderTest::idOf, 50, 100);
+        CompletableFuture<String> first = loader.load(7);
+        assertSame(first, loader.load(7));
+        first.get(2, TimeUnit.SECONDS);
+        assertEquals(List.of(List.of(7)), calls);
+    }
+
+    @Test
+    void completesMissingRowsWithNull() throws Exception {
+        BatchLoader<String> loader = new BatchLoader<>(this::load, BatchLoaderTest::idOf, 10, 100);
+        assertNull(loader.load(100).get(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void sendsAFullBatchWithoutWaitingForTheWindow() throws Exception {
+        BatchLoader<String> loader = new BatchLoader<>(this::load, BatchLoaderTest::idOf, 60000, 2);
+        CompletableFuture<String> first = loader.load(1);
+        CompletableFuture<String> second = loader.load(2);
+        assertEquals("row 1", first.get(2, TimeUnit.SECONDS));
+        assertEquals("row 2", second.get(2, TimeUnit.SECONDS));
+        assertEquals(List.of(List.of(1, 2)), calls);
+        CompletableFuture<String> third = loader.load(3);
+        assertSame(third, loader.load(3));
+        assertFalse(third.isDone());
+    }
+
+    @Test
+    void failsEveryFutureOfABatchWhenTheLoadFails() {
+        BatchLoader<String> loader = new BatchLoader<>(ids -> {
+            throw new IllegalStateException("database down");
+        }, BatchLoaderTest::idOf, 10, 100);
+        CompletableFuture<String> first = loader.load(1);
+        CompletableFuture<String> second = loader.load(2);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> first.get(2, TimeUnit.SECONDS));
+        assertEquals("database down", e.getCause().getMessage());
+        assertThrows(ExecutionException.class, () -> second.get(2, TimeUnit.SECONDS));
+    }
+}
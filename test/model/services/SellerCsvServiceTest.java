@@ -0,0 +1,126 @@
+package model.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import db.FakeDriver;
+import model.dao.DaoFactory;
+import model.dao.DepartmentDao;
+import model.dao.SellerDao;
+import model.entities.Department;
+import model.entities.Seller;
+
+/**
+ * Runs against the in-memory DAOs, which hold every row written by the
+ * tests of this class; each test works in a department of its own.
+ */
+public class SellerCsvServiceTest {
+
+    private SellerDao sellerDao;
+
+    private Department department;
+
+    private SellerCsvService service;
+
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        FakeDriver.install();
+        sellerDao = DaoFactory.createSellerDao();
+        DepartmentDao departmentDao = DaoFactory.createDepartmentDao();
+        department = new Department();
+        department.setName("Books, \"Rare\" & Used");
+        departmentDao.insert(department);
+        service = new SellerCsvService();
+        file = Files.createTempFile("sellers", ".csv");
+        file.toFile().deleteOnExit();
+    }
+
+    private Seller insert(String name, String email) {
+        Seller obj = new Seller(null, name, email, LocalDate.of(1985, 3, 14), 2500.5);
+        obj.setDepartment(department);
+        sellerDao.insert(obj);
+        return obj;
+    }
+
+    private List<String> names() {
+        List<String> names = new ArrayList<>();
+        for (Seller obj : sellerDao.findByDepartment(department)) {
+            names.add(obj.getName());
+        }
+        names.sort(null);
+        return names;
+    }
+
+    private void write(String... lines) throws Exception {
+        Files.write(file, List.of(lines), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void readsBackWhatItWrites() throws Exception {
+        insert("Smith, John", "john@example.com");
+        insert("The \"Boss\"", "boss@example.com");
+        insert("Two\nLines", "lines@example.com");
+        long exported = service.exportTo(file, null);
+        String csv = Files.readString(file);
+        assertTrue(csv.startsWith(SellerCsvService.HEADER), csv);
+        assertTrue(csv.contains("\"Smith, John\""), csv);
+        assertTrue(csv.contains("\"The \"\"Boss\"\"\""), csv);
+        assertTrue(csv.contains("\"Books, \"\"Rare\"\" & Used\""), csv);
+
+        SellerCsvService.ImportResult result = service.importFrom(file, null);
+        assertEquals(exported, result.getImported());
+        assertEquals(0, result.getRejected());
+        assertEquals(List.of("Smith, John", "Smith, John", "The \"Boss\"", "The \"Boss\"", "Two\nLines",
+                "Two\nLines"), names());
+        for (Seller obj : sellerDao.findByDepartment(department)) {
+            assertEquals(LocalDate.of(1985, 3, 14), obj.getBirthDate());
+            assertEquals(2500.5, obj.getBaseSalary(), 0.0);
+        }
+    }
+
+    @Test
+    void quotesCarriageReturnsAndReadsThemBackAsLineBreaks() throws Exception {
+        insert("Carriage\rReturn", "cr@example.com");
+        service.exportTo(file, null);
+        assertTrue(Files.readString(file).contains("\"Carriage\rReturn\""));
+        service.importFrom(file, null);
+        assertEquals(List.of("Carriage\nReturn", "Carriage\rReturn"), names());
+    }
+
+    @Test
+    void reportsRejectedRecordsAtTheLineTheyStartOn() throws Exception {
+        int dep = department.getId();
+        write(SellerCsvService.HEADER,
+                ",\"Multi",
+                "Line\",multi@example.com,1990-01-01,100.0," + dep + ",",
+                ",Bad Date,bad@example.com,1990-13-01,100.0," + dep + ",",
+                "",
+                ",,empty@example.com,1990-01-01,abc,999999,",
+                ",Short,short@example.com");
+        service.setBatchSize(2);
+        List<Long> progress = new ArrayList<>();
+        SellerCsvService.ImportResult result = service.importFrom(file, r -> progress.add(r.getImported()));
+        assertEquals(1, result.getImported());
+        assertEquals(3, result.getRejected());
+        Map<Long, Map<String, String>> errors = result.getErrors();
+        assertEquals(List.of(4L, 6L, 7L), new ArrayList<>(errors.keySet()));
+        assertEquals(Map.of("birthDate", "Invalid date"), errors.get(4L));
+        assertEquals(3, errors.get(6L).size());
+        assertTrue(errors.get(7L).containsKey("line"));
+        assertEquals(List.of("Multi\nLine"), names());
+        assertEquals(1L, progress.get(progress.size() - 1).longValue());
+    }
+}
@@ -0,0 +1,74 @@
+package model.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import db.FakeDriver;
+import model.dao.DaoFactory;
+import model.entities.Department;
+import model.entities.Seller;
+
+public class SellerServiceTest {
+
+    private SellerService service;
+
+    private Department department;
+
+    @BeforeEach
+    void setUp() {
+        FakeDriver.install();
+        service = new SellerService();
+        department = new Department();
+        department.setName("Toys");
+        DaoFactory.createDepartmentDao().insert(department);
+    }
+
+    private static Seller seller(Integer id, String name) {
+        Seller obj = new Seller(id, name, "seller@example.com", LocalDate.of(1990, 1, 1), 1000.0);
+        obj.setVersion(0);
+        return obj;
+    }
+
+    private static List<String> describe(List<Seller> sellers) {
+        List<String> list = new ArrayList<>();
+        for (Seller obj : sellers) {
+            list.add(obj.getName() + "#" + obj.getId());
+        }
+        return list;
+    }
+
+    @Test
+    void pageOrderIgnoresCaseAndBreaksTiesById() {
+        List<Seller> sellers = new ArrayList<>(Arrays.asList(seller(4, "bob"), seller(2, "Carl"), seller(3, "BOB"),
+                seller(1, "ann"), seller(null, "Bob"), seller(5, null)));
+        sellers.sort(SellerService.PAGE_ORDER);
+        assertEquals(List.of("null#5", "ann#1", "Bob#null", "BOB#3", "bob#4", "Carl#2"), describe(sellers));
+    }
+
+    @Test
+    void pageOrderMatchesTheOrderPagesAreLoadedIn() {
+        for (String name : List.of("zoe", "Adam", "adam", "ZED", "Mia", "mia", "b")) {
+            Seller obj = seller(null, name);
+            obj.setDepartment(department);
+            service.saveOrUpdate(obj);
+        }
+        List<Seller> paged = new ArrayList<>();
+        List<Seller> page = service.findPage(null, 3);
+        while (!page.isEmpty()) {
+            paged.addAll(page);
+            page = service.findPage(page.get(page.size() - 1), 3);
+        }
+        List<Seller> sorted = new ArrayList<>(service.findAll());
+        sorted.sort(SellerService.PAGE_ORDER);
+        assertTrue(paged.size() >= 7);
+        assertEquals(describe(sorted), describe(paged));
+    }
+}